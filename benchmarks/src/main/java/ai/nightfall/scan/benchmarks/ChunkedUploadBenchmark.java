@@ -0,0 +1,138 @@
+package ai.nightfall.scan.benchmarks;
+
+import ai.nightfall.scan.NightfallClient;
+import ai.nightfall.scan.model.ScanFileRequest;
+import ai.nightfall.scan.model.ScanFileResponse;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of chunked file uploads against a local mock server that accepts every chunk
+ * immediately, so that the cost of reading, buffering and sending chunks dominates. Files are uploaded either from
+ * an <code>InputStream</code> or from a file on disk, with various levels of upload concurrency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ChunkedUploadBenchmark {
+    private static final String FILE_ID = "2eda1019-f991-4535-be9f-cecbe6b6c2eb";
+
+    @Param({"1", "8"})
+    public int concurrency;
+
+    @Param({"stream", "file"})
+    public String source;
+
+    @Param({"16777216"})
+    public int fileSizeBytes;
+
+    @Param({"1048576"})
+    public int chunkSizeBytes;
+
+    private MockWebServer server;
+    private NightfallClient client;
+    private ScanFileRequest request;
+    private byte[] content;
+    private Path file;
+
+    /**
+     * Starts the mock server, and prepares the content to upload.
+     *
+     * @throws IOException if the server cannot be started or the file cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        String upload = "{\"id\": \"" + FILE_ID + "\", \"fileSizeBytes\": " + this.fileSizeBytes
+                + ", \"mimeType\": \"application/octet-stream\", \"chunkSize\": " + this.chunkSizeBytes + "}";
+        this.server = new MockWebServer();
+        this.server.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest request) {
+                String path = request.getPath();
+                if ("PATCH".equals(request.getMethod())) {
+                    return new MockResponse().setResponseCode(204);
+                } else if (path.endsWith("/scan")) {
+                    return new MockResponse().setBody("{\"id\": \"" + FILE_ID + "\", \"message\": \"scan initiated\"}");
+                }
+                return new MockResponse().setBody(upload);
+            }
+        });
+        this.server.start();
+
+        // send every request to the mock server rather than to the API
+        HttpUrl target = this.server.url("/");
+        this.client = new NightfallClient.Builder()
+                .withAPIKey("key")
+                .withFileUploadConcurrency(this.concurrency)
+                .withInterceptor(chain -> {
+                    Request original = chain.request();
+                    HttpUrl url = original.url().newBuilder()
+                            .scheme(target.scheme())
+                            .host(target.host())
+                            .port(target.port())
+                            .build();
+                    return chain.proceed(original.newBuilder().url(url).build());
+                })
+                .build();
+        this.request = new ScanFileRequest(UUID.randomUUID(), "benchmark");
+
+        this.content = new byte[this.fileSizeBytes];
+        new Random(42).nextBytes(this.content);
+        this.file = Files.createTempFile("nightfall-benchmark", ".bin");
+        Files.write(this.file, this.content);
+    }
+
+    /**
+     * Stops the mock server and releases the client.
+     *
+     * @throws IOException if the server cannot be stopped or the file cannot be deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        this.client.close();
+        this.server.shutdown();
+        Files.deleteIfExists(this.file);
+    }
+
+    /**
+     * Uploads the content, then initiates its scan.
+     *
+     * @return the response to the scan request
+     */
+    @Benchmark
+    public ScanFileResponse upload() {
+        if ("file".equals(this.source)) {
+            return this.client.scanFile(this.request, this.file);
+        }
+        return this.client.scanFile(this.request, new ByteArrayInputStream(this.content), this.fileSizeBytes);
+    }
+}
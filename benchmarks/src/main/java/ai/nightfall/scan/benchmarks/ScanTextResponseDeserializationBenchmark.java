@@ -0,0 +1,79 @@
+package ai.nightfall.scan.benchmarks;
+
+import ai.nightfall.scan.model.ScanTextResponse;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how quickly a text scan response is deserialized, for responses with various numbers of findings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScanTextResponseDeserializationBenchmark {
+
+    @Param({"0", "10", "1000", "10000"})
+    public int findingCount;
+
+    private ObjectMapper objectMapper;
+    private byte[] body;
+
+    /**
+     * Builds the response body to deserialize, spreading the findings over ten payload items.
+     */
+    @Setup
+    public void setUp() {
+        this.objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        StringBuilder json = new StringBuilder("{\"findings\": [");
+        for (int item = 0; item < 10; item++) {
+            json.append(item == 0 ? "[" : ", [");
+            for (int i = item; i < this.findingCount; i += 10) {
+                json.append(i < 10 ? "" : ", ").append("{\"finding\": \"4242-4242-4242-4242\",")
+                        .append("\"redactedFinding\": \"[REDACTED]\",")
+                        .append("\"beforeContext\": \"paid with \", \"afterContext\": \" and asked\",")
+                        .append("\"detector\": {\"name\": \"Credit card number\",")
+                        .append("\"uuid\": \"74c1815e-c0c3-4df5-8b1e-6cf98864a454\"},")
+                        .append("\"confidence\": \"VERY_LIKELY\",")
+                        .append("\"location\": {\"byteRange\": {\"start\": ").append(i * 40)
+                        .append(", \"end\": ").append(i * 40 + 19).append("},")
+                        .append("\"codepointRange\": {\"start\": ").append(i * 40)
+                        .append(", \"end\": ").append(i * 40 + 19).append("}},")
+                        .append("\"matchedDetectionRuleUUIDs\": [\"c08c6c43-85ca-40e5-8f46-7d1cf1e176a3\"],")
+                        .append("\"matchedDetectionRules\": []}");
+            }
+            json.append("]");
+        }
+        json.append("], \"redactedPayload\": [\"\", \"\", \"\", \"\", \"\", \"\", \"\", \"\", \"\", \"\"]}");
+        this.body = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Deserializes the response.
+     *
+     * @return the response
+     * @throws IOException if deserialization fails
+     */
+    @Benchmark
+    public ScanTextResponse deserialize() throws IOException {
+        return this.objectMapper.readValue(this.body, ScanTextResponse.class);
+    }
+}
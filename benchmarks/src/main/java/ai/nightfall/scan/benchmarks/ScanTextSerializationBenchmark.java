@@ -0,0 +1,87 @@
+package ai.nightfall.scan.benchmarks;
+
+import ai.nightfall.scan.model.DetectionRule;
+import ai.nightfall.scan.model.Detector;
+import ai.nightfall.scan.model.LogicalOp;
+import ai.nightfall.scan.model.Regex;
+import ai.nightfall.scan.model.ScanTextConfig;
+import ai.nightfall.scan.model.ScanTextRequest;
+import ai.nightfall.scan.model.redaction.RedactionConfig;
+import ai.nightfall.scan.model.redaction.SubstitutionConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how quickly a text scan request is serialized into the JSON body sent to the API, for payloads of
+ * various sizes, with an inline scan configuration that is either serialized with every request or frozen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScanTextSerializationBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int itemCount;
+
+    @Param({"false", "true"})
+    public boolean frozenConfig;
+
+    private ObjectMapper objectMapper;
+    private ScanTextRequest request;
+
+    /**
+     * Builds the request to serialize.
+     */
+    @Setup
+    public void setUp() {
+        this.objectMapper = new ObjectMapper();
+
+        List<Detector> detectors = new ArrayList<>();
+        detectors.add(new Detector("CREDIT_CARD_NUMBER"));
+        detectors.add(new Detector("US_SOCIAL_SECURITY_NUMBER"));
+        detectors.add(new Detector(new Regex("[A-Z]{3}-[0-9]{6}", true)));
+        DetectionRule rule = new DetectionRule(detectors, LogicalOp.ANY, "benchmark rule");
+        ScanTextConfig config = ScanTextConfig.fromDetectionRules(Arrays.asList(rule, rule, rule), 20);
+        config.setDefaultRedactionConfig(new RedactionConfig(new SubstitutionConfig("[REDACTED]")));
+        if (this.frozenConfig) {
+            config = config.freeze();
+        }
+
+        List<String> payload = new ArrayList<>(this.itemCount);
+        for (int i = 0; i < this.itemCount; i++) {
+            payload.add("customer " + i + " paid with 4242-4242-4242-4242 and asked us to \"update\" ticket ABC-"
+                    + (100000 + i) + " \u2014 see the attached thread for details");
+        }
+        this.request = new ScanTextRequest(payload, config);
+    }
+
+    /**
+     * Serializes the request.
+     *
+     * @return the request body
+     * @throws JsonProcessingException if serialization fails
+     */
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.request);
+    }
+}
@@ -0,0 +1,79 @@
+package ai.nightfall.scan.benchmarks;
+
+import ai.nightfall.scan.WebhookSignatureValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Measures how quickly the signature of a webhook request is validated, for request bodies of various sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebhookSignatureValidatorBenchmark {
+
+    @Param({"256", "65536"})
+    public int bodyLength;
+
+    private final WebhookSignatureValidator validator = new WebhookSignatureValidator(Duration.ofDays(1));
+    private final byte[] secret = "super-secret-shhhh".getBytes(StandardCharsets.UTF_8);
+    private String body;
+    private String timestamp;
+    private String signature;
+
+    /**
+     * Builds and signs the request body to validate.
+     *
+     * @throws Exception if the body cannot be signed
+     */
+    @Setup
+    public void setUp() throws Exception {
+        StringBuilder body = new StringBuilder("{\"findingsURL\": \"https://example.com\", \"padding\": \"");
+        while (body.length() < this.bodyLength - 2) {
+            body.append('x');
+        }
+        this.body = body.append("\"}").toString();
+        this.timestamp = Long.toString(Instant.now().getEpochSecond());
+
+        Mac hmac = Mac.getInstance("HmacSHA256");
+        hmac.init(new SecretKeySpec(this.secret, "HmacSHA256"));
+        byte[] hashed = hmac.doFinal((this.timestamp + ":" + this.body).getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : hashed) {
+            hex.append(String.format("%02x", b));
+        }
+        this.signature = hex.toString();
+        if (!validate()) {
+            throw new IllegalStateException("benchmark request signature is invalid");
+        }
+    }
+
+    /**
+     * Validates the signature.
+     *
+     * @return whether the signature is valid
+     */
+    @Benchmark
+    public boolean validate() {
+        return this.validator.validate(this.body, this.secret, this.signature, this.timestamp);
+    }
+}
@@ -0,0 +1,348 @@
+package ai.nightfall.scan.loadgen;
+
+import ai.nightfall.scan.NightfallClient;
+import ai.nightfall.scan.model.Confidence;
+import ai.nightfall.scan.model.DetectionRule;
+import ai.nightfall.scan.model.Detector;
+import ai.nightfall.scan.model.LogicalOp;
+import ai.nightfall.scan.model.ScanFileRequest;
+import ai.nightfall.scan.model.ScanPolicy;
+import ai.nightfall.scan.model.ScanTextConfig;
+import ai.nightfall.scan.model.ScanTextRequest;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a configurable mix of text scans and file scans through a {@link NightfallClient}, either as fast as a
+ * fixed number of workers can issue them or at a target rate, and reports throughput, latency percentiles, retries
+ * and bandwidth. <code>--host</code> is required, so that a run never loads the real API by accident: point it at
+ * a local stand-in such as the mock server module, or at the real API along with <code>--api-key</code>; see
+ * {@link LoadOptions#USAGE}.
+ *
+ * <p>When a target rate is set, each operation's latency is measured from the time it was scheduled to start
+ * rather than from the time a worker got around to it, so that a saturated client shows up as growing latency
+ * instead of being hidden by the workers falling behind schedule.
+ */
+public class LoadGenerator {
+    private static final int REQUEST_VARIANTS = 64;
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LoadOptions options;
+    private final NightfallClient client;
+    private final LoadMetrics metrics;
+    private final PrintStream out;
+    private final List<ScanTextRequest> textRequests = new ArrayList<>();
+    private final ScanFileRequest fileRequest;
+    private final OperationStats textStats = new OperationStats("text");
+    private final OperationStats fileStats = new OperationStats("file");
+
+    LoadGenerator(LoadOptions options, NightfallClient client, LoadMetrics metrics, PrintStream out) {
+        this.options = options;
+        this.client = client;
+        this.metrics = metrics;
+        this.out = out;
+
+        Random random = new Random(42);
+        ScanTextConfig config = options.detectionRuleUUID != null
+                ? ScanTextConfig.fromDetectionRuleUUIDs(Collections.singletonList(options.detectionRuleUUID), 20)
+                : ScanTextConfig.fromDetectionRules(Collections.singletonList(ssnRule()), 20);
+        for (int i = 0; i < REQUEST_VARIANTS; i++) {
+            List<String> payload = new ArrayList<>(options.textItems);
+            for (int j = 0; j < options.textItems; j++) {
+                payload.add(randomText(random, options.textItemBytes));
+            }
+            this.textRequests.add(new ScanTextRequest(payload, config));
+        }
+        ScanPolicy policy = options.detectionRuleUUID != null
+                ? ScanPolicy.fromDetectionRuleUUIDs(Collections.singletonList(options.detectionRuleUUID),
+                        options.webhookURL)
+                : ScanPolicy.fromDetectionRules(Collections.singletonList(ssnRule()), options.webhookURL);
+        this.fileRequest = new ScanFileRequest(policy, "loadgen");
+    }
+
+    /**
+     * Runs a load test with the options provided as command line arguments, and prints the results to standard
+     * output.
+     *
+     * @param args the command line arguments
+     * @throws InterruptedException if the main thread is interrupted while the test runs
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.println(LoadOptions.USAGE);
+            return;
+        }
+
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        LoadMetrics metrics = new LoadMetrics();
+        NightfallClient.Builder builder = new NightfallClient.Builder()
+                .withAPIHost(options.host)
+                .withFileUploadConcurrency(options.uploadConcurrency)
+                .withMetrics(metrics);
+        if (options.apiKey != null) {
+            builder.withAPIKey(options.apiKey);
+        }
+        try (NightfallClient client = builder.build()) {
+            new LoadGenerator(options, client, metrics, System.out).run();
+        }
+    }
+
+    void run() throws InterruptedException {
+        long intervalNanos = this.options.rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / this.options.rate) : 0;
+        long startNanos = System.nanoTime();
+        long warmupEndNanos = startNanos + this.options.warmup.toNanos();
+        long endNanos = warmupEndNanos + this.options.duration.toNanos();
+        AtomicLong nextTicket = new AtomicLong();
+
+        ExecutorService workers = Executors.newFixedThreadPool(this.options.concurrency);
+        for (int i = 0; i < this.options.concurrency; i++) {
+            workers.execute(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    long intendedNanos = intervalNanos > 0
+                            ? startNanos + nextTicket.getAndIncrement() * intervalNanos
+                            : System.nanoTime();
+                    if (intendedNanos >= endNanos || !sleepUntil(intendedNanos)) {
+                        return;
+                    }
+                    runOperation(intendedNanos);
+                }
+            });
+        }
+        workers.shutdown();
+
+        this.out.printf("loading %s with %d workers%s for %ds after a %ds warmup%n",
+                this.options.host, this.options.concurrency,
+                intervalNanos > 0 ? " at " + this.options.rate + " ops/s" : "",
+                this.options.duration.getSeconds(), this.options.warmup.getSeconds());
+
+        boolean warmingUp = this.options.warmup.toNanos() > 0;
+        long measureStartNanos = startNanos;
+        LoadMetrics.Snapshot baseline = this.metrics.snapshot();
+        LoadMetrics.Snapshot previous = baseline;
+        long previousNanos = startNanos;
+        long nextReportNanos = startNanos + this.options.reportInterval.toNanos();
+        boolean done = false;
+        while (!done) {
+            long wakeNanos = warmingUp ? Math.min(nextReportNanos, warmupEndNanos) : nextReportNanos;
+            done = workers.awaitTermination(Math.max(wakeNanos - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+
+            long now = System.nanoTime();
+            LoadMetrics.Snapshot current = this.metrics.snapshot();
+            Histogram text = this.textStats.recorder.getIntervalHistogram();
+            Histogram file = this.fileStats.recorder.getIntervalHistogram();
+            printInterval(now - startNanos, now - previousNanos, text, file, current.minus(previous), warmingUp);
+            if (warmingUp && now >= warmupEndNanos) {
+                // discard everything that happened during the warmup
+                warmingUp = false;
+                measureStartNanos = now;
+                baseline = current;
+                this.textStats.reset();
+                this.fileStats.reset();
+            } else if (!warmingUp) {
+                this.textStats.add(text);
+                this.fileStats.add(file);
+            }
+            if (now >= nextReportNanos) {
+                nextReportNanos += this.options.reportInterval.toNanos();
+            }
+            previous = current;
+            previousNanos = now;
+        }
+
+        long elapsedNanos = System.nanoTime() - measureStartNanos;
+        printSummary(elapsedNanos, this.metrics.snapshot().minus(baseline));
+    }
+
+    private void runOperation(long intendedNanos) {
+        int totalWeight = this.options.textWeight + this.options.fileWeight;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean text = random.nextInt(totalWeight) < this.options.textWeight;
+        OperationStats stats = text ? this.textStats : this.fileStats;
+        try {
+            if (text) {
+                this.client.scanText(this.textRequests.get(random.nextInt(this.textRequests.size())));
+            } else {
+                this.client.scanFile(this.fileRequest, new SyntheticInputStream(this.options.fileBytes),
+                        this.options.fileBytes);
+            }
+            stats.recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedNanos));
+        } catch (RuntimeException e) {
+            stats.errors.increment();
+        }
+    }
+
+    private void printInterval(long sinceStartNanos, long intervalNanos, Histogram text, Histogram file,
+                               LoadMetrics.Snapshot http, boolean warmingUp) {
+        double seconds = intervalNanos / 1e9;
+        this.out.printf("[%5ds]%s %s | %s | retries=%d 429s=%d out=%s in=%s%n",
+                TimeUnit.NANOSECONDS.toSeconds(sinceStartNanos), warmingUp ? " (warmup)" : "",
+                intervalSummary("text", text, seconds), intervalSummary("file", file, seconds),
+                http.retries, http.rateLimited, rate(http.bytesSent, seconds), rate(http.bytesReceived, seconds));
+    }
+
+    private static String intervalSummary(String name, Histogram histogram, double seconds) {
+        if (histogram.getTotalCount() == 0) {
+            return name + ": -";
+        }
+        return String.format("%s: %.1f ops/s p50=%s p99=%s", name, histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)));
+    }
+
+    private void printSummary(long elapsedNanos, LoadMetrics.Snapshot http) {
+        double seconds = elapsedNanos / 1e9;
+        this.out.printf("%nsummary over %.1fs%n", seconds);
+        for (OperationStats stats : new OperationStats[] {this.textStats, this.fileStats}) {
+            long count = stats.total.getTotalCount();
+            long errors = stats.errors.sum();
+            if (count == 0 && errors == 0) {
+                continue;
+            }
+            StringBuilder percentiles = new StringBuilder();
+            for (double percentile : PERCENTILES) {
+                percentiles.append(String.format(" p%s=%s", formatPercentile(percentile),
+                        millis(stats.total.getValueAtPercentile(percentile))));
+            }
+            this.out.printf("  %s: %d ok, %d failed, %.1f ops/s, mean=%s%s max=%s%n", stats.name, count, errors,
+                    count / seconds, millis((long) stats.total.getMean()), percentiles,
+                    millis(stats.total.getMaxValue()));
+        }
+        this.out.printf("  http: %d attempts, %d retries, %d rate limited, sent %s, received %s%n",
+                http.attempts, http.retries, http.rateLimited, rate(http.bytesSent, seconds),
+                rate(http.bytesReceived, seconds));
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.1fms", micros / 1000.0);
+    }
+
+    private static String rate(long bytes, double seconds) {
+        return String.format("%.2f MB/s", bytes / seconds / (1024 * 1024));
+    }
+
+    private static boolean sleepUntil(long deadlineNanos) {
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static DetectionRule ssnRule() {
+        Detector ssn = new Detector("US_SOCIAL_SECURITY_NUMBER");
+        ssn.setMinConfidence(Confidence.POSSIBLE);
+        ssn.setMinNumFindings(1);
+        return new DetectionRule(Collections.singletonList(ssn), LogicalOp.ANY);
+    }
+
+    /**
+     * Generates ASCII text of the requested length, occasionally containing something that looks like a social
+     * security number, so that the scans produce some findings.
+     */
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            if (random.nextInt(20) == 0) {
+                text.append(String.format("%03d-%02d-%04d ", 100 + random.nextInt(600), 10 + random.nextInt(90),
+                        1000 + random.nextInt(9000)));
+            } else {
+                int wordLength = 2 + random.nextInt(8);
+                for (int i = 0; i < wordLength; i++) {
+                    text.append((char) ('a' + random.nextInt(26)));
+                }
+                text.append(' ');
+            }
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+
+    /**
+     * The latencies and failures of one kind of operation.
+     */
+    private static final class OperationStats {
+        private final String name;
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        private final LongAdder errors = new LongAdder();
+        private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+
+        OperationStats(String name) {
+            this.name = name;
+        }
+
+        void add(Histogram interval) {
+            this.total.add(interval);
+        }
+
+        void reset() {
+            this.total.reset();
+            this.errors.reset();
+        }
+    }
+
+    /**
+     * A stream of generated file content, so that large files can be uploaded without holding them in memory.
+     */
+    private static final class SyntheticInputStream extends InputStream {
+        private long remaining;
+
+        SyntheticInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+            this.remaining--;
+            return 'a' + (int) (this.remaining % 26);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+            int n = (int) Math.min(len, this.remaining);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = (byte) ('a' + (int) ((this.remaining - i - 1) % 26));
+            }
+            this.remaining -= n;
+            return n;
+        }
+    }
+}
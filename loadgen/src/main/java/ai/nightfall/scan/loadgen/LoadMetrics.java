@@ -0,0 +1,66 @@
+package ai.nightfall.scan.loadgen;
+
+import ai.nightfall.scan.NightfallMetrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the HTTP-level activity behind the operations of a load generation run, as reported by the client.
+ */
+final class LoadMetrics implements NightfallMetrics {
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+
+    @Override
+    public void onAttempt(String method, String endpoint, int attempt, int statusCode, long durationNanos,
+                          long requestBytes, long responseBytes) {
+        this.attempts.increment();
+        if (statusCode == 429) {
+            this.rateLimited.increment();
+        }
+        if (requestBytes > 0) {
+            this.bytesSent.add(requestBytes);
+        }
+        if (responseBytes > 0) {
+            this.bytesReceived.add(responseBytes);
+        }
+    }
+
+    @Override
+    public void onRetryWait(String method, String endpoint, long delayNanos) {
+        this.retries.increment();
+    }
+
+    Snapshot snapshot() {
+        return new Snapshot(this.attempts.sum(), this.retries.sum(), this.rateLimited.sum(), this.bytesSent.sum(),
+                this.bytesReceived.sum());
+    }
+
+    /**
+     * The counter values at a point in time.
+     */
+    static final class Snapshot {
+        final long attempts;
+        final long retries;
+        final long rateLimited;
+        final long bytesSent;
+        final long bytesReceived;
+
+        Snapshot(long attempts, long retries, long rateLimited, long bytesSent, long bytesReceived) {
+            this.attempts = attempts;
+            this.retries = retries;
+            this.rateLimited = rateLimited;
+            this.bytesSent = bytesSent;
+            this.bytesReceived = bytesReceived;
+        }
+
+        Snapshot minus(Snapshot other) {
+            return new Snapshot(this.attempts - other.attempts, this.retries - other.retries,
+                    this.rateLimited - other.rateLimited, this.bytesSent - other.bytesSent,
+                    this.bytesReceived - other.bytesReceived);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ai.nightfall.scan.loadgen;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * The options of a load generation run, parsed from <code>--name=value</code> command line arguments.
+ */
+final class LoadOptions {
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -jar loadgen.jar --host=URL [options]",
+            "",
+            "  --host=URL                  API host to load, e.g. http://localhost:8080 for a local mock server",
+            "                              or https://api.nightfall.ai for the real API (required)",
+            "  --api-key=KEY               API key (default: $NIGHTFALL_API_KEY)",
+            "  --duration=DURATION         measured duration of the run, e.g. 30s or 5m (default: 60s)",
+            "  --warmup=DURATION           unmeasured duration before the run (default: 10s)",
+            "  --concurrency=N             maximum number of operations in flight (default: 8)",
+            "  --rate=OPS                  target operations per second; 0 issues operations back to back",
+            "                              from every worker (default: 0)",
+            "  --text-weight=N             relative share of text scans in the mix (default: 1)",
+            "  --file-weight=N             relative share of file scans in the mix (default: 0)",
+            "  --text-items=N              payload items per text scan (default: 10)",
+            "  --text-item-bytes=N         size of each payload item (default: 256)",
+            "  --file-bytes=N              size of each scanned file (default: 1048576)",
+            "  --upload-concurrency=N      the client's file upload concurrency (default: 4)",
+            "  --detection-rule-uuid=UUID  detection rule to scan with (default: an inline SSN detector)",
+            "  --webhook-url=URL           webhook URL for file scan results (default: https://localhost/webhook)",
+            "  --report-interval=DURATION  interval between progress reports (default: 10s)");
+
+    String host;
+    String apiKey;
+    Duration duration = Duration.ofSeconds(60);
+    Duration warmup = Duration.ofSeconds(10);
+    int concurrency = 8;
+    double rate;
+    int textWeight = 1;
+    int fileWeight;
+    int textItems = 10;
+    int textItemBytes = 256;
+    long fileBytes = 1024 * 1024;
+    int uploadConcurrency = 4;
+    UUID detectionRuleUUID;
+    String webhookURL = "https://localhost/webhook";
+    Duration reportInterval = Duration.ofSeconds(10);
+
+    /**
+     * Parses the provided command line arguments.
+     *
+     * @param args the command line arguments
+     * @return the parsed options
+     * @throws IllegalArgumentException if an argument is unknown or invalid
+     */
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("malformed argument: " + arg);
+            }
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (name) {
+                case "host":
+                    options.host = value;
+                    break;
+                case "api-key":
+                    options.apiKey = value;
+                    break;
+                case "duration":
+                    options.duration = parseDuration(name, value);
+                    break;
+                case "warmup":
+                    options.warmup = parseDuration(name, value);
+                    break;
+                case "concurrency":
+                    options.concurrency = parsePositive(name, value);
+                    break;
+                case "rate":
+                    options.rate = Double.parseDouble(value);
+                    break;
+                case "text-weight":
+                    options.textWeight = Integer.parseInt(value);
+                    break;
+                case "file-weight":
+                    options.fileWeight = Integer.parseInt(value);
+                    break;
+                case "text-items":
+                    options.textItems = parsePositive(name, value);
+                    break;
+                case "text-item-bytes":
+                    options.textItemBytes = parsePositive(name, value);
+                    break;
+                case "file-bytes":
+                    options.fileBytes = Long.parseLong(value);
+                    break;
+                case "upload-concurrency":
+                    options.uploadConcurrency = parsePositive(name, value);
+                    break;
+                case "detection-rule-uuid":
+                    options.detectionRuleUUID = UUID.fromString(value);
+                    break;
+                case "webhook-url":
+                    options.webhookURL = value;
+                    break;
+                case "report-interval":
+                    options.reportInterval = parseDuration(name, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: --" + name);
+            }
+        }
+
+        if (options.host == null || options.host.isEmpty()) {
+            throw new IllegalArgumentException("--host is required");
+        } else if (options.rate < 0 || options.textWeight < 0 || options.fileWeight < 0 || options.fileBytes <= 0) {
+            throw new IllegalArgumentException("rates, weights and sizes must not be negative");
+        } else if (options.textWeight + options.fileWeight == 0) {
+            throw new IllegalArgumentException("at least one of --text-weight and --file-weight must be positive");
+        } else if (options.duration.isZero() || options.reportInterval.isZero()) {
+            throw new IllegalArgumentException("--duration and --report-interval must be positive");
+        }
+        return options;
+    }
+
+    private static int parsePositive(String name, String value) {
+        int n = Integer.parseInt(value);
+        if (n <= 0) {
+            throw new IllegalArgumentException("--" + name + " must be positive");
+        }
+        return n;
+    }
+
+    private static Duration parseDuration(String name, String value) {
+        try {
+            if (value.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            } else if (value.endsWith("s")) {
+                return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+            } else if (value.endsWith("m")) {
+                return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("--" + name + " must be a duration such as 500ms, 30s or 5m");
+    }
+}
@@ -0,0 +1,212 @@
+package ai.nightfall.scan.micrometer;
+
+import ai.nightfall.scan.NightfallMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the measurements reported by a {@link ai.nightfall.scan.NightfallClient} in a Micrometer
+ * {@link MeterRegistry}. Request and attempt latencies are published with percentile histograms, so that
+ * percentiles can be aggregated across instances by the monitoring system.
+ */
+public class MicrometerNightfallMetrics implements NightfallMetrics {
+    private static final String REQUESTS = "nightfall.client.requests";
+    private static final String ATTEMPTS = "nightfall.client.attempts";
+    private static final String REQUEST_SIZE = "nightfall.client.request.size";
+    private static final String RESPONSE_SIZE = "nightfall.client.response.size";
+    private static final String RETRY_WAIT = "nightfall.client.retry.wait";
+    private static final String RATE_LIMIT_WAIT = "nightfall.client.rate.limit.wait";
+    private static final String COMPRESSION_RATIO = "nightfall.client.request.compression.ratio";
+    // The status code of meters that are not tagged with a status
+    private static final int NO_STATUS = -1;
+
+    private final MeterRegistry registry;
+    private final Tags commonTags;
+    private final Timer uploadQueueWait;
+    private final ConcurrentMap<MeterKey, Meter> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new instance that records meters in the provided registry.
+     *
+     * @param registry the registry in which to record meters
+     */
+    public MicrometerNightfallMetrics(MeterRegistry registry) {
+        this(registry, Collections.emptyList());
+    }
+
+    /**
+     * Create a new instance that records meters in the provided registry, adding the provided tags to every meter,
+     * e.g. to tell apart several clients within the same application.
+     *
+     * @param registry the registry in which to record meters
+     * @param tags the tags to add to every meter
+     */
+    public MicrometerNightfallMetrics(MeterRegistry registry, Iterable<Tag> tags) {
+        if (registry == null) {
+            throw new IllegalArgumentException("registry must be non-null");
+        }
+        this.registry = registry;
+        this.commonTags = Tags.of(tags);
+        this.uploadQueueWait = Timer.builder("nightfall.client.upload.queue.wait")
+                .description("Time file chunk uploads spend waiting for an upload worker")
+                .tags(this.commonTags)
+                .register(registry);
+    }
+
+    @Override
+    public void onAttempt(String method, String endpoint, int attempt, int statusCode, long durationNanos,
+                          long requestBytes, long responseBytes) {
+        this.<Timer>meter(ATTEMPTS, method, endpoint, statusCode).record(durationNanos, TimeUnit.NANOSECONDS);
+        if (requestBytes >= 0) {
+            this.<DistributionSummary>meter(REQUEST_SIZE, method, endpoint, NO_STATUS).record(requestBytes);
+        }
+        if (responseBytes >= 0) {
+            this.<DistributionSummary>meter(RESPONSE_SIZE, method, endpoint, NO_STATUS).record(responseBytes);
+        }
+    }
+
+    @Override
+    public void onRequest(String method, String endpoint, int attempts, int statusCode, long durationNanos) {
+        this.<Timer>meter(REQUESTS, method, endpoint, statusCode).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onRetryWait(String method, String endpoint, long delayNanos) {
+        this.<Timer>meter(RETRY_WAIT, method, endpoint, NO_STATUS).record(delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onRateLimitWait(String method, String endpoint, long delayNanos) {
+        this.<Timer>meter(RATE_LIMIT_WAIT, method, endpoint, NO_STATUS).record(delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onRequestCompression(String method, String endpoint, long uncompressedBytes, long compressedBytes) {
+        if (uncompressedBytes <= 0) {
+            return;
+        }
+        this.<DistributionSummary>meter(COMPRESSION_RATIO, method, endpoint, NO_STATUS)
+                .record((double) compressedBytes / uncompressedBytes);
+    }
+
+    @Override
+    public void onUploadQueueWait(long waitNanos) {
+        this.uploadQueueWait.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Looks up the meter with the provided name and tag values, registering it on first use. Once registered,
+    // recording a measurement costs a map lookup rather than building tags and looking up the registry.
+    @SuppressWarnings("unchecked")
+    private <M extends Meter> M meter(String name, String method, String endpoint, int statusCode) {
+        MeterKey key = new MeterKey(name, method, endpoint, statusCode);
+        Meter meter = this.meters.get(key);
+        if (meter == null) {
+            meter = this.meters.computeIfAbsent(key, this::register);
+        }
+        return (M) meter;
+    }
+
+    private Meter register(MeterKey key) {
+        Tags tags = endpointTags(key.method, key.endpoint);
+        switch (key.name) {
+            case ATTEMPTS:
+                return Timer.builder(ATTEMPTS)
+                        .description("Latency of individual HTTP calls to the Nightfall API")
+                        .tags(statusTags(tags, key.statusCode))
+                        .publishPercentileHistogram()
+                        .register(this.registry);
+            case REQUESTS:
+                return Timer.builder(REQUESTS)
+                        .description("Latency of requests to the Nightfall API, including retries")
+                        .tags(statusTags(tags, key.statusCode))
+                        .publishPercentileHistogram()
+                        .register(this.registry);
+            case REQUEST_SIZE:
+            case RESPONSE_SIZE:
+                return DistributionSummary.builder(key.name)
+                        .baseUnit("bytes")
+                        .tags(tags)
+                        .register(this.registry);
+            case RETRY_WAIT:
+                return Timer.builder(RETRY_WAIT)
+                        .description("Time spent waiting before retrying failed requests")
+                        .tags(tags)
+                        .register(this.registry);
+            case RATE_LIMIT_WAIT:
+                return Timer.builder(RATE_LIMIT_WAIT)
+                        .description("Time requests are held back by the client-side rate limiter")
+                        .tags(tags)
+                        .register(this.registry);
+            case COMPRESSION_RATIO:
+                return DistributionSummary.builder(COMPRESSION_RATIO)
+                        .description("Size of compressed request bodies relative to their uncompressed size")
+                        .tags(tags)
+                        .register(this.registry);
+            default:
+                throw new IllegalArgumentException("unknown meter: " + key.name);
+        }
+    }
+
+    private Tags endpointTags(String method, String endpoint) {
+        return this.commonTags.and("method", method, "endpoint", endpoint);
+    }
+
+    private static Tags statusTags(Tags tags, int statusCode) {
+        return tags.and("status", Integer.toString(statusCode), "outcome", outcome(statusCode));
+    }
+
+    private static String outcome(int statusCode) {
+        if (statusCode == 0) {
+            return "IO_ERROR";
+        } else if (statusCode < 300) {
+            return "SUCCESS";
+        } else if (statusCode < 500) {
+            return "CLIENT_ERROR";
+        }
+        return "SERVER_ERROR";
+    }
+
+    /**
+     * Identifies a meter by its name and the values of its per-request tags.
+     */
+    private static final class MeterKey {
+        private final String name;
+        private final String method;
+        private final String endpoint;
+        private final int statusCode;
+
+        MeterKey(String name, String method, String endpoint, int statusCode) {
+            this.name = name;
+            this.method = method;
+            this.endpoint = endpoint;
+            this.statusCode = statusCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            } else if (!(o instanceof MeterKey)) {
+                return false;
+            }
+            MeterKey that = (MeterKey) o;
+            return this.statusCode == that.statusCode && this.name.equals(that.name)
+                    && Objects.equals(this.method, that.method) && Objects.equals(this.endpoint, that.endpoint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.name, this.method, this.endpoint, this.statusCode);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package ai.nightfall.scan.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.GzipSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the requests received by a {@link FakeNightfallServer}. Requests are served concurrently, on the threads
+ * of the underlying mock web server.
+ */
+final class FakeNightfallDispatcher extends Dispatcher {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String UPLOAD_PREFIX = "/v3/upload/";
+
+    private final Map<String, Pattern> detectors;
+    private final long chunkSize;
+    private final long latencyMillis;
+    private final int rateLimitEvery;
+    private final Duration retryAfter;
+    private final ConcurrentMap<UUID, Upload> uploads = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong rateLimitedCount = new AtomicLong();
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private final AtomicLong fileScanCount = new AtomicLong();
+
+    FakeNightfallDispatcher(Map<String, Pattern> detectors, long chunkSize, Duration latency, int rateLimitEvery,
+                            Duration retryAfter) {
+        this.detectors = detectors;
+        this.chunkSize = chunkSize;
+        this.latencyMillis = latency.toMillis();
+        this.rateLimitEvery = rateLimitEvery;
+        this.retryAfter = retryAfter;
+    }
+
+    long getRequestCount() {
+        return this.requestCount.get();
+    }
+
+    long getRateLimitedCount() {
+        return this.rateLimitedCount.get();
+    }
+
+    long getUploadedBytes() {
+        return this.uploadedBytes.get();
+    }
+
+    long getFileScanCount() {
+        return this.fileScanCount.get();
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+        MockResponse response = serve(request);
+        if (this.latencyMillis > 0) {
+            response.setHeadersDelay(this.latencyMillis, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    private MockResponse serve(RecordedRequest request) {
+        long count = this.requestCount.incrementAndGet();
+        String auth = request.getHeader("Authorization");
+        if (auth == null || !auth.startsWith("Bearer ") || auth.length() == "Bearer ".length()) {
+            return error(401, 40100, "Unauthenticated", "missing API key");
+        }
+        if (this.rateLimitEvery > 0 && count % this.rateLimitEvery == 0) {
+            this.rateLimitedCount.incrementAndGet();
+            MockResponse response = error(429, 42900, "Too Many Requests", "rate limit exceeded");
+            response.setHeader("X-Rate-Limit-Remaining", "0");
+            if (this.retryAfter != null) {
+                response.setHeader("Retry-After", Long.toString(this.retryAfter.getSeconds()));
+            }
+            return response;
+        }
+
+        // tolerate hosts that were configured with a trailing slash
+        String path = request.getRequestUrl().encodedPath().replaceFirst("^/+", "/");
+        String method = request.getMethod();
+        try {
+            if (path.equals("/v3/scan") && method.equals("POST")) {
+                return scanText(request);
+            } else if (path.equals("/v3/upload") && method.equals("POST")) {
+                return initializeUpload(request);
+            } else if (path.startsWith(UPLOAD_PREFIX)) {
+                String[] segments = path.substring(UPLOAD_PREFIX.length()).split("/", -1);
+                Upload upload = this.uploads.get(UUID.fromString(segments[0]));
+                if (upload == null) {
+                    return error(404, 40400, "Not Found", "file upload not found");
+                } else if (segments.length == 1 && method.equals("PATCH")) {
+                    return uploadChunk(upload, request);
+                } else if (segments.length == 2 && segments[1].equals("finish") && method.equals("POST")) {
+                    return completeUpload(upload);
+                } else if (segments.length == 2 && segments[1].equals("scan") && method.equals("POST")) {
+                    return scanFile(upload);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            return error(400, 40000, "Bad Request", e.getMessage());
+        }
+        return error(404, 40400, "Not Found", "no such endpoint: " + method + " " + path);
+    }
+
+    private MockResponse scanText(RecordedRequest request) throws IOException {
+        JsonNode body = objectMapper.readTree(body(request).readUtf8());
+        JsonNode payload = body.get("payload");
+        if (payload == null || !payload.isArray()) {
+            throw new IllegalArgumentException("payload must be an array");
+        } else if (!body.hasNonNull("policy") && !body.hasNonNull("policyUUIDs")) {
+            throw new IllegalArgumentException("either policy or policyUUIDs must be provided");
+        }
+
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode findings = response.putArray("findings");
+        ArrayNode redactedPayload = response.putArray("redactedPayload");
+        for (JsonNode item : payload) {
+            String text = item.asText();
+            ArrayNode itemFindings = findings.addArray();
+            for (Map.Entry<String, Pattern> detector : this.detectors.entrySet()) {
+                Matcher matcher = detector.getValue().matcher(text);
+                while (matcher.find()) {
+                    addFinding(itemFindings, detector.getKey(), text, matcher.start(), matcher.end());
+                }
+            }
+            redactedPayload.add("");
+        }
+        return json(200, response);
+    }
+
+    /**
+     * Returns the body of the provided request, decompressing it if the client sent it gzip-encoded.
+     */
+    private static Buffer body(RecordedRequest request) throws IOException {
+        if (!"gzip".equalsIgnoreCase(request.getHeader("Content-Encoding"))) {
+            return request.getBody().clone();
+        }
+        Buffer decompressed = new Buffer();
+        try (GzipSource source = new GzipSource(request.getBody().clone())) {
+            while (source.read(decompressed, 8192) != -1) {
+                // keep reading until the end of the stream
+            }
+        }
+        return decompressed;
+    }
+
+    private static void addFinding(ArrayNode findings, String detector, String text, int start, int end) {
+        ObjectNode finding = findings.addObject();
+        finding.put("finding", text.substring(start, end));
+        finding.putObject("detector")
+                .put("name", detector)
+                .put("uuid", UUID.nameUUIDFromBytes(detector.getBytes(StandardCharsets.UTF_8)).toString());
+        finding.put("confidence", "LIKELY");
+
+        int byteStart = text.substring(0, start).getBytes(StandardCharsets.UTF_8).length;
+        int byteEnd = byteStart + text.substring(start, end).getBytes(StandardCharsets.UTF_8).length;
+        int codepointStart = text.codePointCount(0, start);
+        int codepointEnd = codepointStart + text.codePointCount(start, end);
+        ObjectNode location = finding.putObject("location");
+        location.putObject("byteRange").put("start", byteStart).put("end", byteEnd);
+        location.putObject("codepointRange").put("start", codepointStart).put("end", codepointEnd);
+    }
+
+    private MockResponse initializeUpload(RecordedRequest request) throws IOException {
+        JsonNode body = objectMapper.readTree(body(request).readUtf8());
+        long fileSizeBytes = body.path("fileSizeBytes").asLong(-1);
+        if (fileSizeBytes <= 0) {
+            throw new IllegalArgumentException("fileSizeBytes must be positive");
+        }
+
+        Upload upload = new Upload(UUID.randomUUID(), fileSizeBytes, this.chunkSize);
+        this.uploads.put(upload.id, upload);
+        return json(200, upload.toJson());
+    }
+
+    private MockResponse uploadChunk(Upload upload, RecordedRequest request) throws IOException {
+        String offsetHeader = request.getHeader("X-Upload-Offset");
+        if (offsetHeader == null) {
+            throw new IllegalArgumentException("missing X-Upload-Offset header");
+        }
+        long offset = Long.parseLong(offsetHeader);
+        long expectedLength = Math.min(upload.chunkSize, upload.fileSizeBytes - offset);
+        if (offset < 0 || offset % upload.chunkSize != 0 || expectedLength <= 0) {
+            throw new IllegalArgumentException("invalid upload offset: " + offset);
+        }
+        long received = body(request).size();
+        if (received != expectedLength) {
+            throw new IllegalArgumentException("expected " + expectedLength + " bytes at offset " + offset
+                    + ", received " + received);
+        } else if (upload.completed) {
+            throw new IllegalArgumentException("file upload is already complete");
+        }
+
+        if (upload.uploadedOffsets.add(offset)) {
+            upload.uploadedBytes.addAndGet(expectedLength);
+            this.uploadedBytes.addAndGet(expectedLength);
+        }
+        return new MockResponse().setResponseCode(204);
+    }
+
+    private MockResponse completeUpload(Upload upload) {
+        if (upload.uploadedBytes.get() != upload.fileSizeBytes) {
+            throw new IllegalArgumentException("received " + upload.uploadedBytes.get() + " of "
+                    + upload.fileSizeBytes + " bytes");
+        }
+        upload.completed = true;
+        return json(200, upload.toJson());
+    }
+
+    private MockResponse scanFile(Upload upload) {
+        if (!upload.completed) {
+            throw new IllegalArgumentException("file upload is not complete");
+        }
+        this.uploads.remove(upload.id);
+        this.fileScanCount.incrementAndGet();
+
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("id", upload.id.toString());
+        response.put("message", "scan initiated");
+        return json(200, response);
+    }
+
+    private static MockResponse error(int status, int code, String message, String description) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("code", code);
+        response.put("message", message);
+        response.put("description", description);
+        return json(status, response);
+    }
+
+    private static MockResponse json(int status, JsonNode body) {
+        return new MockResponse()
+                .setResponseCode(status)
+                .setHeader("Content-Type", "application/json")
+                .setBody(body.toString());
+    }
+
+    /**
+     * The state of a single file upload.
+     */
+    private static final class Upload {
+        private final UUID id;
+        private final long fileSizeBytes;
+        private final long chunkSize;
+        private final Set<Long> uploadedOffsets = ConcurrentHashMap.newKeySet();
+        private final AtomicLong uploadedBytes = new AtomicLong();
+        private volatile boolean completed;
+
+        Upload(UUID id, long fileSizeBytes, long chunkSize) {
+            this.id = id;
+            this.fileSizeBytes = fileSizeBytes;
+            this.chunkSize = chunkSize;
+        }
+
+        ObjectNode toJson() {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("id", this.id.toString());
+            node.put("fileSizeBytes", this.fileSizeBytes);
+            node.put("chunkSize", this.chunkSize);
+            node.put("mimeType", "application/octet-stream");
+            return node;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package ai.nightfall.scan.mock;
+
+import okhttp3.mockwebserver.MockWebServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * An embeddable fake of the Nightfall API, which serves text scans and the file upload lifecycle from memory. Point
+ * a client at it with <code>NightfallClient.Builder#withAPIHost(server.getURL())</code>; any API key is accepted.
+ *
+ * <p>Text scans report every match of the configured detectors' regular expressions as a finding. File uploads are
+ * validated, so that chunks at invalid offsets, or uploads that are completed before all bytes were received, are
+ * rejected the same way the API would reject them, but their contents are discarded as they are received.
+ */
+public class FakeNightfallServer implements Closeable {
+    private final MockWebServer server;
+    private final FakeNightfallDispatcher dispatcher;
+
+    private FakeNightfallServer(Builder builder) throws IOException {
+        this.dispatcher = new FakeNightfallDispatcher(builder.detectors, builder.chunkSize, builder.latency,
+                builder.rateLimitEvery, builder.retryAfter);
+        this.server = new MockWebServer();
+        this.server.setDispatcher(this.dispatcher);
+        this.server.start(InetAddress.getLoopbackAddress(), builder.port);
+    }
+
+    /**
+     * Get the base URL of the server.
+     *
+     * @return a URL such as <code>http://127.0.0.1:54321</code>
+     */
+    public String getURL() {
+        return "http://" + this.server.getHostName() + ":" + this.server.getPort();
+    }
+
+    /**
+     * Get the number of requests the server has received, including rejected requests.
+     *
+     * @return the number of requests
+     */
+    public long getRequestCount() {
+        return this.dispatcher.getRequestCount();
+    }
+
+    /**
+     * Get the number of requests the server has rejected with a 429 status code.
+     *
+     * @return the number of rate limited requests
+     */
+    public long getRateLimitedCount() {
+        return this.dispatcher.getRateLimitedCount();
+    }
+
+    /**
+     * Get the number of file bytes the server has accepted across all uploads.
+     *
+     * @return the number of uploaded bytes
+     */
+    public long getUploadedBytes() {
+        return this.dispatcher.getUploadedBytes();
+    }
+
+    /**
+     * Get the number of file scans the server has accepted.
+     *
+     * @return the number of file scans
+     */
+    public long getFileScanCount() {
+        return this.dispatcher.getFileScanCount();
+    }
+
+    /**
+     * Stops the server.
+     *
+     * @throws IOException if the server cannot be stopped
+     */
+    @Override
+    public void close() throws IOException {
+        this.server.shutdown();
+    }
+
+    /**
+     * A builder class that configures, then starts, a fake server.
+     */
+    public static class Builder {
+        private final Map<String, Pattern> detectors = new LinkedHashMap<>();
+        private long chunkSize = 1024 * 1024;
+        private Duration latency = Duration.ZERO;
+        private int rateLimitEvery;
+        private Duration retryAfter;
+        private int port;
+
+        /**
+         * Adds a detector that reports every match of the provided regular expression as a finding.
+         *
+         * @param name the name of the detector, as reported in its findings
+         * @param regex the regular expression to match against each payload item
+         * @return the builder
+         * @throws IllegalArgumentException if the regular expression is invalid
+         */
+        public Builder withDetector(String name, String regex) {
+            if (name == null || regex == null) {
+                throw new IllegalArgumentException("name and regex must be non-null");
+            }
+            this.detectors.put(name, Pattern.compile(regex));
+            return this;
+        }
+
+        /**
+         * Sets the chunk size that the server assigns to file uploads. Defaults to 1 MiB if unset.
+         *
+         * @param chunkSize a positive number of bytes
+         * @return the builder
+         * @throws IllegalArgumentException if the argument is not positive
+         */
+        public Builder withChunkSize(long chunkSize) {
+            if (chunkSize <= 0) {
+                throw new IllegalArgumentException("chunkSize must be positive");
+            }
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Sets the time the server waits before responding to each request. Defaults to zero if unset.
+         *
+         * @param latency a non-negative duration
+         * @return the builder
+         * @throws IllegalArgumentException if the argument is null or negative
+         */
+        public Builder withLatency(Duration latency) {
+            if (latency == null || latency.isNegative()) {
+                throw new IllegalArgumentException("latency must be non-negative");
+            }
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * Makes the server reject every n-th request with a 429 status code. The rejected requests have no effect.
+         * By default, no requests are rejected.
+         *
+         * @param n a positive interval, e.g. 10 to reject one request in ten
+         * @return the builder
+         * @throws IllegalArgumentException if the argument is not positive
+         */
+        public Builder withRateLimitEvery(int n) {
+            if (n <= 0) {
+                throw new IllegalArgumentException("n must be positive");
+            }
+            this.rateLimitEvery = n;
+            return this;
+        }
+
+        /**
+         * Sets the value of the <code>Retry-After</code> header of rate limited responses, in whole seconds. By
+         * default, the header is omitted, leaving the delay up to the client's retry policy.
+         *
+         * @param retryAfter a non-negative duration, or null to omit the header
+         * @return the builder
+         * @throws IllegalArgumentException if the argument is negative
+         */
+        public Builder withRetryAfter(Duration retryAfter) {
+            if (retryAfter != null && retryAfter.isNegative()) {
+                throw new IllegalArgumentException("retryAfter must be non-negative");
+            }
+            this.retryAfter = retryAfter;
+            return this;
+        }
+
+        /**
+         * Sets the port on which the server listens. Defaults to an ephemeral port if unset.
+         *
+         * @param port a port number, or 0 for an ephemeral port
+         * @return the builder
+         * @throws IllegalArgumentException if the argument is not a valid port number
+         */
+        public Builder withPort(int port) {
+            if (port < 0 || port > 65535) {
+                throw new IllegalArgumentException("port must be in range [0,65535]");
+            }
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Starts a server using the configured values.
+         *
+         * @return a running server
+         * @throws IOException if the server cannot listen on the configured port
+         */
+        public FakeNightfallServer start() throws IOException {
+            return new FakeNightfallServer(this);
+        }
+    }
+}
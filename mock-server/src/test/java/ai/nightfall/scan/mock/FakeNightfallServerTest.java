@@ -0,0 +1,106 @@
+package ai.nightfall.scan.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the FakeNightfallServer.
+ */
+public class FakeNightfallServerTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private final OkHttpClient httpClient = new OkHttpClient();
+
+    @Test
+    public void testScanText() throws IOException {
+        try (FakeNightfallServer server = new FakeNightfallServer.Builder()
+                .withDetector("SSN", "\\d{3}-\\d{2}-\\d{4}")
+                .start()) {
+            String body = "{\"payload\": [\"nothing\", \"é 123-45-6789\"], \"policyUUIDs\": []}";
+            JsonNode response = call(server, "POST", "/v3/scan", RequestBody.create(body, JSON), null, 200);
+
+            assertEquals(0, response.get("findings").get(0).size());
+            JsonNode finding = response.get("findings").get(1).get(0);
+            assertEquals("123-45-6789", finding.get("finding").asText());
+            assertEquals("SSN", finding.get("detector").get("name").asText());
+            assertEquals(3, finding.get("location").get("byteRange").get("start").asInt());
+            assertEquals(2, finding.get("location").get("codepointRange").get("start").asInt());
+
+            call(server, "POST", "/v3/scan", RequestBody.create("{\"payload\": []}", JSON), null, 400);
+        }
+    }
+
+    @Test
+    public void testUploadLifecycle() throws IOException {
+        try (FakeNightfallServer server = new FakeNightfallServer.Builder().withChunkSize(4).start()) {
+            JsonNode upload = call(server, "POST", "/v3/upload",
+                    RequestBody.create("{\"fileSizeBytes\": 6}", JSON), null, 200);
+            String path = "/v3/upload/" + upload.get("id").asText();
+            assertEquals(4, upload.get("chunkSize").asLong());
+
+            call(server, "PATCH", path, RequestBody.create(new byte[4]), "3", 400);
+            call(server, "PATCH", path, RequestBody.create(new byte[4]), "0", 204);
+            call(server, "POST", path + "/finish", RequestBody.create(new byte[0]), null, 400);
+            call(server, "PATCH", path, RequestBody.create(new byte[2]), "4", 204);
+            call(server, "POST", path + "/finish", RequestBody.create(new byte[0]), null, 200);
+            JsonNode scan = call(server, "POST", path + "/scan", RequestBody.create("{}", JSON), null, 200);
+
+            assertEquals(upload.get("id"), scan.get("id"));
+            assertEquals(6, server.getUploadedBytes());
+            assertEquals(1, server.getFileScanCount());
+            call(server, "POST", path + "/scan", RequestBody.create("{}", JSON), null, 404);
+        }
+    }
+
+    @Test
+    public void testRateLimitAndLatency() throws IOException {
+        try (FakeNightfallServer server = new FakeNightfallServer.Builder()
+                .withRateLimitEvery(2)
+                .withRetryAfter(Duration.ofSeconds(1))
+                .withLatency(Duration.ofMillis(50))
+                .start()) {
+            RequestBody body = RequestBody.create("{\"payload\": [], \"policyUUIDs\": []}", JSON);
+            long start = System.nanoTime();
+            call(server, "POST", "/v3/scan", body, null, 200);
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 50);
+
+            Request request = new Request.Builder().url(server.getURL() + "/v3/scan")
+                    .header("Authorization", "Bearer key").post(body).build();
+            try (Response response = this.httpClient.newCall(request).execute()) {
+                assertEquals(429, response.code());
+                assertEquals("1", response.header("Retry-After"));
+            }
+            assertEquals(2, server.getRequestCount());
+            assertEquals(1, server.getRateLimitedCount());
+        }
+    }
+
+    private JsonNode call(FakeNightfallServer server, String method, String path, RequestBody body,
+                          String uploadOffset, int expectedStatus) throws IOException {
+        Request.Builder request = new Request.Builder()
+                .url(server.getURL() + path)
+                .header("Authorization", "Bearer key")
+                .method(method, body);
+        if (uploadOffset != null) {
+            request.header("X-Upload-Offset", uploadOffset);
+        }
+        try (Response response = this.httpClient.newCall(request.build()).execute()) {
+            assertEquals(expectedStatus, response.code());
+            String responseBody = response.body().string();
+            return responseBody.isEmpty() ? null : objectMapper.readTree(responseBody);
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.Finding;
+import ai.nightfall.scan.model.NightfallClientException;
+import ai.nightfall.scan.model.ScanTextConfig;
+import ai.nightfall.scan.model.ScanTextRequest;
+import ai.nightfall.scan.model.ScanTextResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrently submitted single-item text scans into batched calls to
+ * {@link NightfallClient#scanTextAsync(ScanTextRequest)}. Items are grouped by the scan configuration they are
+ * submitted with; a batch is sent as soon as it reaches the configured item count or request size, or once the
+ * first item in the batch has waited for the configured linger duration, whichever happens first. The findings for each
+ * item are then delivered to the future returned when that item was submitted.
+ *
+ * <p>Items submitted with an inline {@link ScanTextConfig} are only batched together if they were submitted
+ * with the same config <em>instance</em>, so callers should reuse config objects rather than rebuilding them for
+ * every item. Items submitted with policy UUIDs are batched together if the lists of UUIDs are equal.
+ *
+ * <p>This class is thread-safe. Closing it flushes any pending batches; it does not close the underlying client.
+ */
+public class BatchingTextScanner implements Closeable {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    // The quotes around a payload item and the comma that separates it from the next one
+    static final int ITEM_DELIMITER_BYTES = 3;
+
+    private final NightfallClient client;
+    private final int maxBatchSize;
+    private final long maxBatchBytes;
+    private final Duration maxLinger;
+    private final ScheduledExecutorService scheduler;
+    private final Map<BatchKey, Batch> pendingBatches = new HashMap<>();
+    private boolean closed;
+
+    private BatchingTextScanner(NightfallClient client, int maxBatchSize, long maxBatchBytes, Duration maxLinger) {
+        this.client = client;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchBytes = maxBatchBytes;
+        this.maxLinger = maxLinger;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread t = new Thread(runnable, "nightfall-batching-text-scanner");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Submits a single item to be scanned against the provided scanning <code>policy</code>.
+     *
+     * @param item the content to scan
+     * @param policy the configuration to use to scan the content
+     * @return a future containing a response whose findings and redacted payload each contain exactly one element,
+     *      corresponding to <code>item</code>
+     * @throws IllegalArgumentException thrown if <code>item</code> or <code>policy</code> is null
+     * @throws IllegalStateException thrown if this scanner has been closed
+     */
+    public CompletableFuture<ScanTextResponse> submit(String item, ScanTextConfig policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy must be non-null");
+        }
+        return submit(item, new BatchKey(policy, null));
+    }
+
+    /**
+     * Submits a single item to be scanned against the provided <code>policyUUIDs</code>.
+     *
+     * @param item the content to scan
+     * @param policyUUIDs a list of UUIDs referring to pre-created policies to-be-used when scanning. Maximum 1.
+     * @return a future containing a response whose findings and redacted payload each contain exactly one element,
+     *      corresponding to <code>item</code>
+     * @throws IllegalArgumentException thrown if <code>item</code> or <code>policyUUIDs</code> is null
+     * @throws IllegalStateException thrown if this scanner has been closed
+     */
+    public CompletableFuture<ScanTextResponse> submit(String item, List<UUID> policyUUIDs) {
+        if (policyUUIDs == null) {
+            throw new IllegalArgumentException("policyUUIDs must be non-null");
+        }
+        return submit(item, new BatchKey(null, new ArrayList<>(policyUUIDs)));
+    }
+
+    private CompletableFuture<ScanTextResponse> submit(String item, BatchKey key) {
+        if (item == null) {
+            throw new IllegalArgumentException("item must be non-null");
+        }
+
+        CompletableFuture<ScanTextResponse> result = new CompletableFuture<>();
+        long itemBytes = jsonLength(item) + ITEM_DELIMITER_BYTES;
+        List<Batch> readyBatches = new ArrayList<>();
+        synchronized (this) {
+            if (this.closed) {
+                throw new IllegalStateException("scanner is closed");
+            }
+
+            Batch batch = this.pendingBatches.get(key);
+            if (batch != null && batch.bytes + itemBytes > this.maxBatchBytes) {
+                // flush what we have so far rather than exceeding the byte limit
+                readyBatches.add(this.pendingBatches.remove(key));
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new Batch(key, requestLength(key));
+                this.pendingBatches.put(key, batch);
+                Batch lingering = batch;
+                this.scheduler.schedule(() -> flushIfPending(lingering),
+                        this.maxLinger.toNanos(), TimeUnit.NANOSECONDS);
+            }
+
+            batch.add(item, itemBytes, result);
+            if (batch.items.size() >= this.maxBatchSize || batch.bytes >= this.maxBatchBytes) {
+                readyBatches.add(this.pendingBatches.remove(key));
+            }
+        }
+
+        for (Batch ready : readyBatches) {
+            send(ready);
+        }
+        return result;
+    }
+
+    /**
+     * Immediately sends all pending batches, regardless of their size or age.
+     */
+    public void flush() {
+        List<Batch> readyBatches;
+        synchronized (this) {
+            readyBatches = new ArrayList<>(this.pendingBatches.values());
+            this.pendingBatches.clear();
+        }
+        for (Batch ready : readyBatches) {
+            send(ready);
+        }
+    }
+
+    /**
+     * Flushes all pending batches and stops accepting new submissions. Futures for flushed items still complete
+     * normally after this method returns.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+        }
+        flush();
+        this.scheduler.shutdown();
+    }
+
+    private void flushIfPending(Batch batch) {
+        synchronized (this) {
+            if (!this.pendingBatches.remove(batch.key, batch)) {
+                return; // already sent because it filled up
+            }
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        ScanTextRequest request;
+        if (batch.key.policy != null) {
+            request = new ScanTextRequest(batch.items, batch.key.policy);
+        } else {
+            request = new ScanTextRequest(batch.items, batch.key.policyUUIDs);
+        }
+
+        CompletableFuture<ScanTextResponse> response;
+        try {
+            response = this.client.scanTextAsync(request);
+        } catch (RuntimeException e) {
+            batch.completeExceptionally(e);
+            return;
+        }
+
+        response.whenComplete((resp, t) -> {
+            if (t != null) {
+                batch.completeExceptionally(t);
+                return;
+            }
+            batch.complete(resp);
+        });
+    }
+
+    // Computes the size of the request body that a batch of the provided configuration has before any items are added.
+    private static long requestLength(BatchKey key) {
+        ScanTextRequest empty = key.policy != null
+                ? new ScanTextRequest(Collections.emptyList(), key.policy)
+                : new ScanTextRequest(Collections.emptyList(), key.policyUUIDs);
+        return serializedLength(empty);
+    }
+
+    // Computes the size of the JSON serialization of the provided request.
+    static long serializedLength(ScanTextRequest request) {
+        try {
+            return objectMapper.writeValueAsBytes(request).length;
+        } catch (JsonProcessingException e) {
+            throw new NightfallClientException("processing scan request: " + e.getMessage());
+        }
+    }
+
+    // Counts the bytes a string occupies once escaped as the contents of a JSON string and UTF-8 encoded.
+    static long jsonLength(CharSequence s) {
+        long count = 0;
+        for (int i = 0; i < s.length(); i++) {
+            count += jsonLength(s.charAt(i));
+        }
+        return count;
+    }
+
+    // Counts the bytes a single character occupies once escaped as part of a JSON string and UTF-8 encoded.
+    static int jsonLength(char c) {
+        if (c == '"' || c == '\\' || c == '\b' || c == '\t' || c == '\n' || c == '\f' || c == '\r') {
+            return 2;
+        } else if (c < 0x20) {
+            return 6; // a six-character unicode escape
+        } else if (c < 0x80) {
+            return 1;
+        } else if (c < 0x800) {
+            return 2;
+        } else if (Character.isSurrogate(c)) {
+            return 6; // characters outside the BMP are written as a pair of escaped surrogates
+        }
+        return 3;
+    }
+
+    // Counts the bytes a string occupies once UTF-8 encoded, without actually encoding it.
+    static long utf8Length(CharSequence s) {
+        long count = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                count++;
+            } else if (c < 0x800) {
+                count += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                count += 4;
+                i++;
+            } else {
+                count += 3;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Identifies the scan configuration shared by all items in a batch.
+     */
+    private static final class BatchKey {
+        private final ScanTextConfig policy;
+        private final List<UUID> policyUUIDs;
+
+        BatchKey(ScanTextConfig policy, List<UUID> policyUUIDs) {
+            this.policy = policy;
+            this.policyUUIDs = policyUUIDs;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BatchKey)) {
+                return false;
+            }
+            BatchKey other = (BatchKey) o;
+            return this.policy == other.policy && Objects.equals(this.policyUUIDs, other.policyUUIDs);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(this.policy) + Objects.hashCode(this.policyUUIDs);
+        }
+    }
+
+    /**
+     * The items accumulated for a single request, along with the futures of their submitters.
+     */
+    private static final class Batch {
+        private final BatchKey key;
+        private final List<String> items = new ArrayList<>();
+        private final List<CompletableFuture<ScanTextResponse>> futures = new ArrayList<>();
+        private long bytes;
+
+        Batch(BatchKey key, long requestBytes) {
+            this.key = key;
+            this.bytes = requestBytes;
+        }
+
+        void add(String item, long itemBytes, CompletableFuture<ScanTextResponse> future) {
+            this.items.add(item);
+            this.futures.add(future);
+            this.bytes += itemBytes;
+        }
+
+        void complete(ScanTextResponse response) {
+            List<List<Finding>> findings = response.getFindings();
+            List<String> redactedPayload = response.getRedactedPayload();
+            if (findings == null || findings.size() != this.futures.size()) {
+                completeExceptionally(new NightfallClientException(
+                        "expected findings for " + this.futures.size() + " items in batched scan response"));
+                return;
+            }
+
+            for (int i = 0; i < this.futures.size(); i++) {
+                List<String> redacted = null;
+                if (redactedPayload != null && i < redactedPayload.size()) {
+                    redacted = Collections.singletonList(redactedPayload.get(i));
+                }
+                this.futures.get(i).complete(
+                        new ScanTextResponse(Collections.singletonList(findings.get(i)), redacted));
+            }
+        }
+
+        void completeExceptionally(Throwable t) {
+            for (CompletableFuture<ScanTextResponse> future : this.futures) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+
+    /**
+     * A builder class that configures, validates, then creates instances of a batching text scanner.
+     */
+    public static class Builder {
+        private final NightfallClient client;
+        private int maxBatchSize = 100;
+        private long maxBatchBytes = 500_000;
+        private Duration maxLinger = Duration.ofMillis(10);
+
+        /**
+         * Creates a builder for a scanner that sends its batches with the provided client.
+         *
+         * @param client the client to use to issue scan requests
+         * @throws IllegalArgumentException if <code>client</code> is null
+         */
+        public Builder(NightfallClient client) {
+            if (client == null) {
+                throw new IllegalArgumentException("client must be non-null");
+            }
+            this.client = client;
+        }
+
+        /**
+         * Sets the maximum number of items to send in a single request. If unset, defaults to 100.
+         *
+         * @param maxBatchSize a positive integer
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withMaxBatchSize(int maxBatchSize) {
+            if (maxBatchSize < 1) {
+                throw new IllegalArgumentException("maxBatchSize must be positive");
+            }
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of a single request body. The size is that of the serialized JSON request, so it
+         * accounts for the escaping of the items and for the scan configuration sent along with them. An individual
+         * item too large to fit within this limit is still sent, but in a batch of its own. If unset, defaults to
+         * 500KB, which is the maximum payload size accepted by the API.
+         *
+         * @param maxBatchBytes a positive number of bytes
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withMaxBatchBytes(long maxBatchBytes) {
+            if (maxBatchBytes < 1) {
+                throw new IllegalArgumentException("maxBatchBytes must be positive");
+            }
+            this.maxBatchBytes = maxBatchBytes;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of time that an item may wait for other items to join its batch before the batch
+         * is sent. If unset, defaults to 10 milliseconds.
+         *
+         * @param maxLinger a non-negative duration
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withMaxLinger(Duration maxLinger) {
+            if (maxLinger == null || maxLinger.isNegative()) {
+                throw new IllegalArgumentException("maxLinger must be a non-negative duration");
+            }
+            this.maxLinger = maxLinger;
+            return this;
+        }
+
+        /**
+         * Builds the scanner using the configured values, falling back on defaults if any values
+         * were not explicitly set.
+         *
+         * @return a batching text scanner
+         */
+        public BatchingTextScanner build() {
+            return new BatchingTextScanner(this.client, this.maxBatchSize, this.maxBatchBytes, this.maxLinger);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ai.nightfall.scan;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A request body that writes the remaining bytes of a {@link ByteBuffer}, which may be a direct buffer. The
+ * buffer's position is left untouched, so the body may be written more than once if its request is retried.
+ */
+class ByteBufferRequestBody extends RequestBody {
+    private final ByteBuffer buffer;
+    private final MediaType mediaType;
+
+    /**
+     * Create a new request body.
+     *
+     * @param buffer the buffer holding the body, between its position and limit
+     * @param mediaType the content type of the body
+     */
+    ByteBufferRequestBody(ByteBuffer buffer, MediaType mediaType) {
+        this.buffer = buffer;
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Get the buffer holding the body.
+     *
+     * @return the buffer
+     */
+    ByteBuffer getBuffer() {
+        return this.buffer;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return this.mediaType;
+    }
+
+    @Override
+    public long contentLength() {
+        return this.buffer.remaining();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        ByteBuffer slice = this.buffer.duplicate();
+        while (slice.hasRemaining()) {
+            sink.write(slice);
+        }
+    }
+}
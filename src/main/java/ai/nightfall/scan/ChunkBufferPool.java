@@ -0,0 +1,82 @@
+package ai.nightfall.scan;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of reusable buffers for holding file chunks while they are uploaded. No more than
+ * <code>maxBuffers</code> buffers are handed out at any given time, across all uploads sharing the pool, which caps
+ * the memory used to buffer chunks at <code>maxBuffers * chunkSize</code> bytes.
+ *
+ * <p>Released buffers are kept and handed out again, so that in steady state uploading allocates no new buffers.
+ * A pooled buffer that is too small for a requested chunk is discarded and replaced.
+ */
+final class ChunkBufferPool {
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<ByteBuffer> free = new ConcurrentLinkedDeque<>();
+    private final boolean direct;
+
+    /**
+     * Create a new buffer pool.
+     *
+     * @param maxBuffers the maximum number of buffers that may be in use at any given time
+     * @param direct whether to allocate direct buffers, outside of the Java heap
+     */
+    ChunkBufferPool(int maxBuffers, boolean direct) {
+        this.permits = new Semaphore(maxBuffers);
+        this.direct = direct;
+    }
+
+    /**
+     * Takes a buffer from the pool, waiting up to the provided timeout for one to be released if all buffers are
+     * in use.
+     *
+     * @param capacity the minimum capacity of the buffer
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout argument
+     * @return a cleared buffer whose limit is <code>capacity</code>, or null if the timeout elapsed
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    ByteBuffer acquire(int capacity, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!this.permits.tryAcquire(timeout, unit)) {
+            return null;
+        }
+        return take(capacity);
+    }
+
+    /**
+     * Takes a buffer from the pool if one is available without waiting.
+     *
+     * @param capacity the minimum capacity of the buffer
+     * @return a cleared buffer whose limit is <code>capacity</code>, or null if all buffers are in use
+     */
+    ByteBuffer tryAcquire(int capacity) {
+        if (!this.permits.tryAcquire()) {
+            return null;
+        }
+        return take(capacity);
+    }
+
+    /**
+     * Returns a buffer obtained from this pool, making it available to other uploads. The buffer must not be used
+     * by the caller afterwards.
+     *
+     * @param buffer the buffer to return
+     */
+    void release(ByteBuffer buffer) {
+        this.free.offerFirst(buffer);
+        this.permits.release();
+    }
+
+    private ByteBuffer take(int capacity) {
+        ByteBuffer buffer = this.free.pollFirst();
+        if (buffer == null || buffer.capacity() < capacity) {
+            buffer = this.direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+        buffer.clear();
+        buffer.limit(capacity);
+        return buffer;
+    }
+}
@@ -0,0 +1,283 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.Finding;
+import ai.nightfall.scan.model.NightfallClientException;
+import ai.nightfall.scan.model.ScanTextRequest;
+import ai.nightfall.scan.model.ScanTextResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A text scan that avoids sending payload items whose results are already known or about to be known. Each item
+ * is first looked up in a {@link ScanResultCache}, then among the items currently being scanned by other calls
+ * with the same configuration, whose results it then shares once they arrive. Only the remaining items are sent
+ * to the API; their results are stored in the cache, handed to any calls that are waiting for them, and merged
+ * with the other results into a response for the original request.
+ */
+final class DeduplicatedTextScan {
+    private final ScanResultCache cache;
+    private final ConcurrentMap<String, CompletableFuture<ScanTextResponse>> inFlight;
+    private final ScanTextRequest request;
+    private final String[] keys;
+    private final ScanTextResponse[] results;
+    private final List<Integer> misses = new ArrayList<>();
+    private final List<CompletableFuture<ScanTextResponse>> owned = new ArrayList<>();
+    private final List<Integer> shared = new ArrayList<>();
+    private final List<CompletableFuture<ScanTextResponse>> sharedResults = new ArrayList<>();
+
+    private DeduplicatedTextScan(ScanResultCache cache,
+                                 ConcurrentMap<String, CompletableFuture<ScanTextResponse>> inFlight,
+                                 ScanTextRequest request, String[] keys) {
+        this.cache = cache;
+        this.inFlight = inFlight;
+        this.request = request;
+        this.keys = keys;
+        this.results = new ScanTextResponse[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            if (cache != null) {
+                this.results[i] = cache.get(keys[i]);
+                if (this.results[i] != null) {
+                    continue;
+                }
+            }
+            CompletableFuture<ScanTextResponse> result = null;
+            if (inFlight != null) {
+                CompletableFuture<ScanTextResponse> pending = new CompletableFuture<>();
+                result = inFlight.putIfAbsent(keys[i], pending);
+                if (result == null) {
+                    this.owned.add(pending);
+                } else {
+                    this.shared.add(i);
+                    this.sharedResults.add(result);
+                    continue;
+                }
+            } else {
+                this.owned.add(null);
+            }
+            this.misses.add(i);
+        }
+    }
+
+    /**
+     * Whether the results of scanning <code>request</code> may be shared with other calls. Requests that report
+     * violations or send alerts are always sent to the API, since the API only records violations and sends alerts
+     * for the requests it receives. Policies referenced by UUID may carry alerts configured on the server, so
+     * requests that use them are only deduplicated if the caller opted in.
+     *
+     * @param request the request about to be issued
+     * @param policyUUIDs whether requests that reference their policies by UUID may be deduplicated
+     * @return true if the request may be deduplicated
+     */
+    static boolean isDeduplicable(ScanTextRequest request, boolean policyUUIDs) {
+        if (request.getPayload() == null || request.getViolationConfig() != null) {
+            return false;
+        } else if (request.getPolicy() != null) {
+            return request.getPolicy().getAlertConfig() == null;
+        }
+        return policyUUIDs && request.getPolicyUUIDs() != null;
+    }
+
+    /**
+     * Looks up every item of the request payload in the cache and among the items being scanned by other calls.
+     *
+     * @param cache the cache to look up, or null
+     * @param inFlight the items being scanned, by key, or null if in-flight scans should not be shared
+     * @param objectMapper the mapper used to serialize the scan configuration into the item keys
+     * @param request a deduplicable request
+     * @return the outcome of the lookup
+     */
+    static DeduplicatedTextScan lookup(ScanResultCache cache,
+                                       ConcurrentMap<String, CompletableFuture<ScanTextResponse>> inFlight,
+                                       ObjectMapper objectMapper, ScanTextRequest request) {
+        byte[] config = configDigest(objectMapper, request);
+        List<String> payload = request.getPayload();
+        String[] keys = new String[payload.size()];
+        for (int i = 0; i < keys.length; i++) {
+            MessageDigest digest = sha256();
+            digest.update(config);
+            String item = payload.get(i);
+            if (item != null) {
+                digest.update(item.getBytes(StandardCharsets.UTF_8));
+            }
+            keys[i] = toHex(digest.digest());
+        }
+        return new DeduplicatedTextScan(cache, inFlight, request, keys);
+    }
+
+    /**
+     * Whether any item of the request payload needs to be sent to the API.
+     *
+     * @return true if {@link #missRequest()} must be issued
+     */
+    boolean hasMisses() {
+        return !this.misses.isEmpty();
+    }
+
+    /**
+     * Get the request to send to the API.
+     *
+     * @return a request with the same configuration as the original one, whose payload only contains the items
+     *      that were neither cached nor being scanned by another call
+     */
+    ScanTextRequest missRequest() {
+        List<String> payload = new ArrayList<>(this.misses.size());
+        for (int i : this.misses) {
+            payload.add(this.request.getPayload().get(i));
+        }
+        if (this.request.getPolicy() != null) {
+            return new ScanTextRequest(payload, this.request.getPolicy());
+        }
+        return new ScanTextRequest(payload, this.request.getPolicyUUIDs());
+    }
+
+    /**
+     * Records the results of the items that were sent to the API, caching them and handing them to any calls
+     * that are waiting for them.
+     *
+     * @param response the response to the request returned by {@link #missRequest()}
+     * @throws NightfallClientException if the response does not contain a result for every item
+     */
+    void complete(ScanTextResponse response) {
+        List<List<Finding>> findings = response.getFindings();
+        List<String> redactedPayload = response.getRedactedPayload();
+        if (findings == null || findings.size() != this.misses.size()) {
+            NightfallClientException e = new NightfallClientException(
+                    "expected findings for " + this.misses.size() + " items in scan response");
+            fail(e);
+            throw e;
+        }
+
+        for (int j = 0; j < this.misses.size(); j++) {
+            List<Finding> itemFindings = findings.get(j) == null
+                    ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(findings.get(j)));
+            List<String> redacted = null;
+            if (redactedPayload != null && j < redactedPayload.size()) {
+                redacted = Collections.singletonList(redactedPayload.get(j));
+            }
+            ScanTextResponse result = new ScanTextResponse(Collections.singletonList(itemFindings), redacted);
+            int i = this.misses.get(j);
+            this.results[i] = result;
+            if (this.cache != null) {
+                this.cache.put(this.keys[i], result);
+            }
+            CompletableFuture<ScanTextResponse> pending = this.owned.get(j);
+            if (pending != null) {
+                this.inFlight.remove(this.keys[i], pending);
+                pending.complete(result);
+            }
+        }
+    }
+
+    /**
+     * Fails the calls that are waiting for the items that were sent to the API, e.g. because the request failed.
+     * Has no effect once {@link #complete(ScanTextResponse)} has succeeded.
+     *
+     * @param t the cause of the failure
+     */
+    void fail(Throwable t) {
+        for (int j = 0; j < this.misses.size(); j++) {
+            CompletableFuture<ScanTextResponse> pending = this.owned.get(j);
+            if (pending != null) {
+                this.inFlight.remove(this.keys[this.misses.get(j)], pending);
+                pending.completeExceptionally(t);
+            }
+        }
+    }
+
+    /**
+     * Waits for the results of the items being scanned by other calls, then assembles the response to the
+     * original request.
+     *
+     * @return the response to the original request
+     */
+    ScanTextResponse response() {
+        try {
+            return responseAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new NightfallClientException("scanning text: " + e.getCause());
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #response()}.
+     *
+     * @return a future containing the response to the original request
+     */
+    CompletableFuture<ScanTextResponse> responseAsync() {
+        if (this.shared.isEmpty()) {
+            return CompletableFuture.completedFuture(assemble());
+        }
+        return CompletableFuture.allOf(this.sharedResults.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    for (int j = 0; j < this.shared.size(); j++) {
+                        this.results[this.shared.get(j)] = this.sharedResults.get(j).join();
+                    }
+                    return assemble();
+                });
+    }
+
+    private ScanTextResponse assemble() {
+        boolean redacted = false;
+        for (ScanTextResponse result : this.results) {
+            redacted |= result.getRedactedPayload() != null;
+        }
+        List<List<Finding>> findings = new ArrayList<>(this.results.length);
+        List<String> redactedPayload = redacted ? new ArrayList<>(this.results.length) : null;
+        for (ScanTextResponse result : this.results) {
+            findings.add(result.getFindings().get(0));
+            if (redacted) {
+                List<String> itemRedacted = result.getRedactedPayload();
+                redactedPayload.add(itemRedacted != null && !itemRedacted.isEmpty() ? itemRedacted.get(0) : "");
+            }
+        }
+        return new ScanTextResponse(findings, redactedPayload);
+    }
+
+    // Digests the scan configuration, so that it only needs to be serialized once per request.
+    private static byte[] configDigest(ObjectMapper objectMapper, ScanTextRequest request) {
+        MessageDigest digest = sha256();
+        if (request.getPolicy() != null) {
+            try {
+                digest.update("policy:".getBytes(StandardCharsets.UTF_8));
+                digest.update(objectMapper.writeValueAsBytes(request.getPolicy()));
+            } catch (JsonProcessingException e) {
+                throw new NightfallClientException("processing scan request: " + e.getMessage());
+            }
+        } else {
+            List<UUID> policyUUIDs = new ArrayList<>(request.getPolicyUUIDs());
+            Collections.sort(policyUUIDs);
+            digest.update(("policyUUIDs:" + policyUUIDs).getBytes(StandardCharsets.UTF_8));
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+
+    private static String toHex(byte[] digest) {
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
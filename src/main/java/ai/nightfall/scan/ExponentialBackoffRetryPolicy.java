@@ -0,0 +1,220 @@
+package ai.nightfall.scan;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A retry policy that waits exponentially longer between successive attempts. With jitter enabled (the default),
+ * each delay is drawn uniformly at random from <code>[0, min(maxDelay, baseDelay * 2^(attempt - 1))]</code>
+ * ("full jitter"), so that many clients that were rate limited at the same time do not all retry in lockstep.
+ *
+ * <p>If the API indicates how long to wait via the <code>Retry-After</code> header, that delay is used instead
+ * of the computed backoff. Regardless of the delays, no more than <code>maxAttempts</code> attempts are made,
+ * and a request is not retried if doing so would exceed the per-call retry budget.
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+    private final int maxAttempts;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+    private final boolean jitter;
+    private final Duration retryBudget;
+    private final boolean retryAfterHeader;
+    private final boolean serverErrorRetries;
+    private final boolean connectionErrorRetries;
+
+    private ExponentialBackoffRetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.baseDelay = builder.baseDelay;
+        this.maxDelay = builder.maxDelay;
+        this.jitter = builder.jitter;
+        this.retryBudget = builder.retryBudget;
+        this.retryAfterHeader = builder.retryAfterHeader;
+        this.serverErrorRetries = builder.serverErrorRetries;
+        this.connectionErrorRetries = builder.connectionErrorRetries;
+    }
+
+    @Override
+    public Duration getRetryDelay(RetryContext context) {
+        if (isAttemptLimitReached(context) || !isRetryable(context)) {
+            return null;
+        }
+
+        Duration delay;
+        if (this.retryAfterHeader && context.getRetryAfter() != null) {
+            delay = context.getRetryAfter().isNegative() ? Duration.ZERO : context.getRetryAfter();
+        } else {
+            delay = computeBackoff(context.getAttempt());
+        }
+
+        if (this.retryBudget != null && context.getElapsed().plus(delay).compareTo(this.retryBudget) > 0) {
+            return null;
+        }
+        return delay;
+    }
+
+    @Override
+    public boolean isAttemptLimitReached(RetryContext context) {
+        return context.getAttempt() >= this.maxAttempts;
+    }
+
+    private boolean isRetryable(RetryContext context) {
+        int status = context.getStatusCode();
+        if (status == 429) {
+            return true;
+        } else if (status >= 500) {
+            // 501 and 505 indicate that the request can never succeed
+            return this.serverErrorRetries && status != 501 && status != 505;
+        } else if (status > 0) {
+            return false;
+        }
+        return context.isTimeout() || (this.connectionErrorRetries && context.isConnectionError());
+    }
+
+    private Duration computeBackoff(int attempt) {
+        long capMillis = this.maxDelay.toMillis();
+        long backoffMillis = this.baseDelay.toMillis();
+        for (int i = 1; i < attempt && backoffMillis < capMillis; i++) {
+            backoffMillis *= 2;
+        }
+        backoffMillis = Math.min(backoffMillis, capMillis);
+
+        if (this.jitter) {
+            backoffMillis = ThreadLocalRandom.current().nextLong(backoffMillis + 1);
+        }
+        return Duration.ofMillis(backoffMillis);
+    }
+
+    /**
+     * A builder class that configures, validates, then creates instances of an exponential backoff retry policy.
+     */
+    public static class Builder {
+        private int maxAttempts = 5;
+        private Duration baseDelay = Duration.ofMillis(500);
+        private Duration maxDelay = Duration.ofSeconds(30);
+        private boolean jitter = true;
+        private Duration retryBudget = Duration.ofMinutes(2);
+        private boolean retryAfterHeader = true;
+        private boolean serverErrorRetries = true;
+        private boolean connectionErrorRetries = true;
+
+        /**
+         * Sets the maximum number of attempts, including the first one, that may be made for a single request.
+         * If unset, defaults to 5.
+         *
+         * @param maxAttempts a positive integer
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withMaxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be positive");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the delay before the first retry, which doubles with every subsequent retry. If unset, defaults
+         * to 500 milliseconds.
+         *
+         * @param baseDelay a non-negative duration
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withBaseDelay(Duration baseDelay) {
+            if (baseDelay == null || baseDelay.isNegative()) {
+                throw new IllegalArgumentException("baseDelay must be a non-negative duration");
+            }
+            this.baseDelay = baseDelay;
+            return this;
+        }
+
+        /**
+         * Sets the upper bound for the computed delay between two attempts. If unset, defaults to 30 seconds.
+         *
+         * @param maxDelay a non-negative duration
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withMaxDelay(Duration maxDelay) {
+            if (maxDelay == null || maxDelay.isNegative()) {
+                throw new IllegalArgumentException("maxDelay must be a non-negative duration");
+            }
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * Sets whether the computed delay should be randomized. If unset, defaults to true.
+         *
+         * @param jitter whether to apply full jitter to computed delays
+         * @return the builder
+         */
+        public Builder withJitter(boolean jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of time that may be spent on a single request, measured from the first attempt.
+         * A request is not retried if waiting for the next attempt would exceed this budget. If unset, defaults to
+         * 2 minutes; if set to null, the time spent on a request is not bounded.
+         *
+         * @param retryBudget a positive duration, or null
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withRetryBudget(Duration retryBudget) {
+            if (retryBudget != null && (retryBudget.isNegative() || retryBudget.isZero())) {
+                throw new IllegalArgumentException("retryBudget must be a positive duration");
+            }
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        /**
+         * Sets whether to wait for the delay requested by the API via the <code>Retry-After</code> header,
+         * rather than the computed delay, when one is present. If unset, defaults to true.
+         *
+         * @param retryAfterHeader whether to honor the delay requested by the API
+         * @return the builder
+         */
+        public Builder withRetryAfterHeader(boolean retryAfterHeader) {
+            this.retryAfterHeader = retryAfterHeader;
+            return this;
+        }
+
+        /**
+         * Sets whether to retry requests for which the API returned a 5xx status code. If unset, defaults to true.
+         *
+         * @param serverErrorRetries whether to retry server errors
+         * @return the builder
+         */
+        public Builder withServerErrorRetries(boolean serverErrorRetries) {
+            this.serverErrorRetries = serverErrorRetries;
+            return this;
+        }
+
+        /**
+         * Sets whether to retry requests that failed because a connection could not be established, including when
+         * connecting timed out, or was reset. If unset, defaults to true.
+         *
+         * @param connectionErrorRetries whether to retry connection errors
+         * @return the builder
+         */
+        public Builder withConnectionErrorRetries(boolean connectionErrorRetries) {
+            this.connectionErrorRetries = connectionErrorRetries;
+            return this;
+        }
+
+        /**
+         * Builds the retry policy using the configured values, falling back on defaults if any values
+         * were not explicitly set.
+         *
+         * @return a retry policy
+         */
+        public ExponentialBackoffRetryPolicy build() {
+            return new ExponentialBackoffRetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ai.nightfall.scan;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * A request body that streams a slice of a file directly from a {@link FileChannel} into the HTTP connection.
+ * Bytes are transferred with positional reads, so the same channel may be shared by many bodies that are written
+ * concurrently, and a body may be written more than once if its request is retried.
+ */
+class FileChannelRequestBody extends RequestBody {
+    private final FileChannel channel;
+    private final long position;
+    private final long length;
+    private final MediaType mediaType;
+
+    /**
+     * Create a new request body.
+     *
+     * @param channel the channel to read from
+     * @param position the offset within the file of the first byte of the slice
+     * @param length the number of bytes in the slice
+     * @param mediaType the content type of the body
+     */
+    FileChannelRequestBody(FileChannel channel, long position, long length, MediaType mediaType) {
+        this.channel = channel;
+        this.position = position;
+        this.length = length;
+        this.mediaType = mediaType;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return this.mediaType;
+    }
+
+    @Override
+    public long contentLength() {
+        return this.length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        long written = 0;
+        while (written < this.length) {
+            long transferred = this.channel.transferTo(this.position + written, this.length - written, sink);
+            if (transferred <= 0) {
+                throw new IOException("unexpected end of file at offset " + (this.position + written));
+            }
+            written += transferred;
+        }
+    }
+}
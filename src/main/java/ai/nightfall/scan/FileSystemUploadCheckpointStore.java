@@ -0,0 +1,80 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.UploadCheckpoint;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * An upload checkpoint store that keeps each checkpoint as a JSON file in a local directory. Checkpoints are
+ * written to a temporary file first and then atomically moved into place, so a crash while saving never leaves
+ * a corrupt checkpoint behind.
+ */
+public class FileSystemUploadCheckpointStore implements UploadCheckpointStore {
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Path directory;
+
+    /**
+     * Create a new checkpoint store.
+     *
+     * @param directory the directory in which to keep checkpoints; it is created if it does not exist
+     * @throws IllegalArgumentException if <code>directory</code> is null
+     */
+    public FileSystemUploadCheckpointStore(Path directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory must be non-null");
+        }
+        this.directory = directory;
+    }
+
+    @Override
+    public UploadCheckpoint load(String key) throws IOException {
+        try {
+            return objectMapper.readValue(Files.readAllBytes(pathFor(key)), UploadCheckpoint.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void save(String key, UploadCheckpoint checkpoint) throws IOException {
+        Files.createDirectories(this.directory);
+        Path target = pathFor(key);
+        Path temp = Files.createTempFile(this.directory, target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, objectMapper.writeValueAsBytes(checkpoint));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(pathFor(key));
+    }
+
+    private Path pathFor(String key) {
+        try {
+            // keys may contain characters that are not allowed in file names, so use their digest instead
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest) {
+                name.append(String.format("%02x", b));
+            }
+            return this.directory.resolve(name.append(".json").toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.ScanTextResponse;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link ScanResultCache} that keeps results on the Java heap. Once the cache holds the configured maximum
+ * number of results, the least recently used result is evicted to make room for a new one, and results expire
+ * once the configured time to live has elapsed since they were stored.
+ */
+public class InMemoryScanResultCache implements ScanResultCache {
+    private final long timeToLiveNanos;
+    private final Map<String, Entry> entries;
+
+    private InMemoryScanResultCache(Builder builder) {
+        this.timeToLiveNanos = builder.timeToLive.toNanos();
+        int maxEntries = builder.maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public synchronized ScanTextResponse get(String key) {
+        Entry entry = this.entries.get(key);
+        if (entry == null) {
+            return null;
+        } else if (System.nanoTime() - entry.expiresAtNanos >= 0) {
+            this.entries.remove(key);
+            return null;
+        }
+        return entry.result;
+    }
+
+    @Override
+    public synchronized void put(String key, ScanTextResponse result) {
+        this.entries.put(key, new Entry(result, System.nanoTime() + this.timeToLiveNanos));
+    }
+
+    /**
+     * Get the number of results currently held by the cache, including any that have expired but were not
+     * looked up since.
+     *
+     * @return the number of cached results
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    private static final class Entry {
+        private final ScanTextResponse result;
+        private final long expiresAtNanos;
+
+        Entry(ScanTextResponse result, long expiresAtNanos) {
+            this.result = result;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    /**
+     * A builder class that configures, validates, then creates instances of an in-memory scan result cache.
+     */
+    public static class Builder {
+        private int maxEntries = 10_000;
+        private Duration timeToLive = Duration.ofHours(1);
+
+        /**
+         * Sets the maximum number of results to keep. If unset, defaults to 10,000.
+         *
+         * @param maxEntries a positive integer
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withMaxEntries(int maxEntries) {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("maxEntries must be positive");
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Sets the amount of time after which a stored result expires. Since the detectors behind a policy may
+         * change, this bounds how long a stale result may be served. If unset, defaults to 1 hour.
+         *
+         * @param timeToLive a positive duration
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withTimeToLive(Duration timeToLive) {
+            if (timeToLive == null || timeToLive.isNegative() || timeToLive.isZero()) {
+                throw new IllegalArgumentException("timeToLive must be a positive duration");
+            }
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * Builds the cache using the configured values, falling back on defaults if any values
+         * were not explicitly set.
+         *
+         * @return an in-memory scan result cache
+         */
+        public InMemoryScanResultCache build() {
+            return new InMemoryScanResultCache(this);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package ai.nightfall.scan;
 import ai.nightfall.scan.model.BaseNightfallException;
 import ai.nightfall.scan.model.CompleteFileUploadRequest;
 import ai.nightfall.scan.model.FileUpload;
+import ai.nightfall.scan.model.Finding;
 import ai.nightfall.scan.model.InitializeFileUploadRequest;
 import ai.nightfall.scan.model.NightfallAPIException;
 import ai.nightfall.scan.model.NightfallClientException;
@@ -12,62 +13,143 @@ import ai.nightfall.scan.model.ScanFileRequest;
 import ai.nightfall.scan.model.ScanFileResponse;
 import ai.nightfall.scan.model.ScanTextRequest;
 import ai.nightfall.scan.model.ScanTextResponse;
-import ai.nightfall.scan.model.UploadFileChunkRequest;
+import ai.nightfall.scan.model.UploadCheckpoint;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.Headers;
+import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
 
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Provides a client for accessing the Nightfall Developer Platform.
  */
 public class NightfallClient implements Closeable {
 
+    private static final Logger logger = Logger.getLogger(NightfallClient.class.getName());
     private static final ObjectMapper objectMapper = new ObjectMapper()
             .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     private static final long wakeupDurationMillis = Duration.ofSeconds(15).toMillis();
-    private static final int DEFAULT_RETRY_COUNT = 5;
     private static final String API_HOST = "https://api.nightfall.ai";
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+    // Values larger than this (early 2001) in rate limit reset headers are interpreted as Unix timestamps
+    private static final long EPOCH_SECONDS_THRESHOLD = 1_000_000_000L;
+    // Checkpoints of resumable uploads are saved at most every this many chunks, or this often, whichever is first
+    private static final int CHECKPOINT_INTERVAL_CHUNKS = 16;
+    private static final long CHECKPOINT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // The models the client serializes into request bodies and deserializes from responses, respectively
+    private static final List<Class<?>> REQUEST_MODELS = Arrays.asList(ScanTextRequest.class,
+            InitializeFileUploadRequest.class, CompleteFileUploadRequest.class, ScanFileRequest.class);
+    private static final List<Class<?>> RESPONSE_MODELS = Arrays.asList(ScanTextResponse.class, Finding.class,
+            FileUpload.class, ScanFileResponse.class, NightfallErrorResponse.class);
     private final String implVersion = loadImplVersion();
 
     private final String apiHost;
     private final String apiKey;
     private final int fileUploadConcurrency;
-    private final int retryCount;
-    private final ExecutorService executor;
+    private final int prewarmedConnections;
+    private final RetryPolicy retryPolicy;
+    private final RetryPolicy chunkRetryPolicy;
+    private final RateLimiter rateLimiter;
+    private final ChunkBufferPool chunkBufferPool;
+    private final UploadCheckpointStore uploadCheckpointStore;
+    private final ScanResultCache scanResultCache;
+    private final ConcurrentMap<String, CompletableFuture<ScanTextResponse>> inFlightScans;
+    private final boolean policyUUIDDeduplication;
+    private final NightfallMetrics metrics;
+    private final NightfallTracer tracer;
+    private final long requestCompressionThreshold;
+    private final UploadScheduler uploadScheduler;
+    private final ScheduledExecutorService retryScheduler;
     private final OkHttpClient httpClient;
 
     // package-visible for testing
     NightfallClient(String apiHost, String apiKey, int fileUploadConcurrency, OkHttpClient httpClient) {
+        this(apiHost, new Builder().withAPIKey(apiKey).withFileUploadConcurrency(fileUploadConcurrency), httpClient);
+    }
+
+    // package-visible for testing
+    NightfallClient(String apiHost, Builder config, OkHttpClient httpClient) {
         this.apiHost = apiHost;
-        this.apiKey = apiKey;
-        this.fileUploadConcurrency = fileUploadConcurrency;
-        this.retryCount = DEFAULT_RETRY_COUNT;
-        this.executor = Executors.newFixedThreadPool(this.fileUploadConcurrency);
+        this.apiKey = config.apiKey;
+        this.fileUploadConcurrency = config.fileUploadConcurrency;
+        this.prewarmedConnections = config.prewarmedConnections;
+        this.retryPolicy = config.retryPolicy;
+        this.chunkRetryPolicy = config.chunkRetryPolicy;
+        this.rateLimiter = config.rateLimiter;
+        this.chunkBufferPool = new ChunkBufferPool(this.fileUploadConcurrency, config.directChunkBuffers);
+        this.uploadCheckpointStore = config.uploadCheckpointStore;
+        this.scanResultCache = config.scanResultCache;
+        this.inFlightScans = config.inFlightDeduplication ? new ConcurrentHashMap<>() : null;
+        this.policyUUIDDeduplication = config.policyUUIDDeduplication;
+        this.metrics = config.metrics != null ? config.metrics : NightfallMetrics.noop();
+        this.tracer = config.tracer != null ? config.tracer : NightfallTracer.noop();
+        this.requestCompressionThreshold = config.requestCompression ? config.requestCompressionThreshold : -1;
+        ExecutorService uploadExecutor = config.virtualThreads
+                ? VirtualThreads.newExecutor()
+                : Executors.newFixedThreadPool(this.fileUploadConcurrency);
+        this.uploadScheduler = new UploadScheduler(uploadExecutor, this.fileUploadConcurrency, config.metrics);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread t = new Thread(runnable, "nightfall-retry-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
         this.httpClient = httpClient;
     }
 
@@ -84,16 +166,80 @@ public class NightfallClient implements Closeable {
      */
     @Override
     public void close() {
-        this.executor.shutdown();
+        this.uploadScheduler.shutdown();
+        this.retryScheduler.shutdown();
         this.httpClient.dispatcher().executorService().shutdown();
     }
 
+    /**
+     * Prepares the client to serve its first requests as quickly as later ones: builds the JSON serializers and
+     * deserializers of the request and response models ahead of time, and opens connections to the API host, as
+     * many as set by {@link Builder#withPrewarmedConnections(int)} but at least one. This method blocks until
+     * every connection attempt has completed. Connection failures are ignored, since requests open connections as
+     * they need them anyway.
+     *
+     * @return the number of connections in the client's connection pool once warm-up has completed
+     * @throws NightfallClientException thrown if the calling thread is interrupted while waiting for connections
+     */
+    public int warmUp() {
+        for (Class<?> model : REQUEST_MODELS) {
+            objectMapper.canSerialize(model);
+        }
+        for (Class<?> model : RESPONSE_MODELS) {
+            objectMapper.canDeserialize(objectMapper.constructType(model));
+        }
+
+        CountDownLatch connections = this.prewarmConnections(Math.max(this.prewarmedConnections, 1));
+        try {
+            connections.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NightfallClientException("interrupted while warming up connections");
+        }
+        return this.httpClient.connectionPool().connectionCount();
+    }
+
+    /**
+     * Opens up to <code>count</code> connections to the API host in the background, by issuing concurrent
+     * <code>HEAD</code> requests whose responses are discarded.
+     *
+     * @return a latch that is released once every request has completed or failed
+     */
+    CountDownLatch prewarmConnections(int count) {
+        CountDownLatch completed = new CountDownLatch(count);
+        Request request = new Request.Builder().url(this.apiHost + "/").head().build();
+        Callback discard = new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                // best effort: the connection will be opened by the first request instead
+                completed.countDown();
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                completed.countDown();
+            }
+        };
+        for (int i = 0; i < count; i++) {
+            this.httpClient.newCall(request).enqueue(discard);
+        }
+        return completed;
+    }
+
     /**
      * Scans the provided plaintext against the provided detectors, and returns all findings. The response object will
      * contain a list of lists representing the findings. Each index <code>i</code> in the findings array will
      * correspond one-to-one with the input request payload list, so all findings stored in a given sub-list refer to
      * matches that occurred in the <code>i</code>th index of the request payload.
      *
+     * <p>If the client was built with a {@link ScanResultCache}, payload items whose results are cached are not
+     * sent to the API. Likewise, if in-flight deduplication is enabled, payload items that are identical to items
+     * currently being scanned by a concurrent call with the same configuration are not sent, and receive the
+     * results of that call instead. Requests that report violations or configure alerts are always sent in full,
+     * as are requests that reference their policies by UUID unless
+     * {@link Builder#withPolicyUUIDDeduplication(boolean)} is enabled.
+     *
      * @param request the data to scan, along with the configuration describing how to scan the data. The
      *                request payload may not exceed 500KB.
      * @return an object containing the findings from each item in the request payload
@@ -106,6 +252,172 @@ public class NightfallClient implements Closeable {
         if (request == null) {
             throw new IllegalArgumentException("request must be non-null");
         }
+        if ((this.scanResultCache == null && this.inFlightScans == null)
+                || !DeduplicatedTextScan.isDeduplicable(request, this.policyUUIDDeduplication)) {
+            return this.issueRequest("/v3/scan", "POST", scanTextRequestBody(request), null,
+                    ScanTextResponse.class, null);
+        }
+
+        DeduplicatedTextScan scan = DeduplicatedTextScan.lookup(this.scanResultCache, this.inFlightScans,
+                objectMapper, request);
+        if (scan.hasMisses()) {
+            try {
+                scan.complete(this.issueRequest("/v3/scan", "POST", scanTextRequestBody(scan.missRequest()), null,
+                        ScanTextResponse.class, null));
+            } catch (RuntimeException e) {
+                scan.fail(e);
+                throw e;
+            }
+        }
+        return scan.response();
+    }
+
+    /**
+     * Scans the provided plaintext against the provided detectors, and streams the findings to
+     * <code>handler</code> as the response is decoded, instead of building a {@link ScanTextResponse}. This keeps
+     * memory usage flat for requests that produce large numbers of findings.
+     *
+     * <p>The handler is invoked on the calling thread. Failed attempts are retried as usual until the API
+     * returns a successful response; once it has, and before the first finding is delivered, the request is no
+     * longer retried. If reading that response fails, a {@link NightfallClientException} is thrown and the findings
+     * delivered so far may be incomplete. An exception thrown by the handler stops reading the response, and is
+     * rethrown as-is.
+     *
+     * @param request the data to scan, along with the configuration describing how to scan the data. The
+     *                request payload may not exceed 500KB.
+     * @param handler receives each finding, along with the index of the payload item in which it occurred
+     * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
+     * @throws NightfallClientException thrown if a I/O error occurs while processing the request
+     * @throws IllegalArgumentException thrown if <code>request</code> or <code>handler</code> is null
+     * @throws NightfallRequestTimeoutException thrown if the request is aborted because the timeout is exceeded
+     */
+    public void scanText(ScanTextRequest request, ScanTextResponseHandler handler) {
+        if (request == null) {
+            throw new IllegalArgumentException("request must be non-null");
+        } else if (handler == null) {
+            throw new IllegalArgumentException("handler must be non-null");
+        }
+        this.issueRequest("/v3/scan", "POST", scanTextRequestBody(request), null, streamingReader(handler), null);
+    }
+
+    /**
+     * Scans a payload whose items are produced lazily against the detectors configured in <code>request</code>.
+     * The request body is serialized directly into the HTTP connection as the items are produced, so that
+     * large batches never have to be held in memory in their entirety.
+     *
+     * <p>Since a streaming payload can only be consumed once, the request is not retried if it fails, regardless
+     * of the client's retry policy.
+     *
+     * @param request the configuration describing how to scan the data; its payload must be null
+     * @param payload the data to scan. The request payload may not exceed 500KB.
+     * @return an object containing the findings from each item in the request payload
+     * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
+     * @throws NightfallClientException thrown if a I/O error occurs while processing the request
+     * @throws IllegalArgumentException thrown if <code>request</code> or <code>payload</code> is null, or if
+     *      <code>request</code> has a payload of its own
+     * @throws NightfallRequestTimeoutException thrown if the request is aborted because the timeout is exceeded
+     */
+    public ScanTextResponse scanText(ScanTextRequest request, StreamingPayload payload) {
+        return this.issueRequest("/v3/scan", "POST", streamingRequestBody(request, payload), null,
+                ScanTextResponse.class, null);
+    }
+
+    /**
+     * Scans a payload whose items are produced lazily, as described in
+     * {@link #scanText(ScanTextRequest, StreamingPayload)}, and streams the findings to <code>handler</code> as
+     * described in {@link #scanText(ScanTextRequest, ScanTextResponseHandler)}. Neither the request nor the
+     * response is ever held in memory in its entirety.
+     *
+     * @param request the configuration describing how to scan the data; its payload must be null
+     * @param payload the data to scan. The request payload may not exceed 500KB.
+     * @param handler receives each finding, along with the index of the payload item in which it occurred
+     * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
+     * @throws NightfallClientException thrown if a I/O error occurs while processing the request
+     * @throws IllegalArgumentException thrown if any argument is null, or if <code>request</code> has a payload
+     *      of its own
+     * @throws NightfallRequestTimeoutException thrown if the request is aborted because the timeout is exceeded
+     */
+    public void scanText(ScanTextRequest request, StreamingPayload payload, ScanTextResponseHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler must be non-null");
+        }
+        this.issueRequest("/v3/scan", "POST", streamingRequestBody(request, payload), null,
+                streamingReader(handler), null);
+    }
+
+    /**
+     * Asynchronous variant of {@link #scanText(ScanTextRequest)}. The request is dispatched on the underlying
+     * HTTP client's dispatcher, and rate-limited requests are retried without blocking the calling thread.
+     *
+     * <p>The returned future completes exceptionally with a {@link NightfallAPIException},
+     * {@link NightfallClientException}, or {@link NightfallRequestTimeoutException} under the same conditions
+     * that the synchronous variant would throw them. If none of the request is answered from the result cache or
+     * shared with a concurrent call (see {@link Builder#withScanResultCache(ScanResultCache)} and
+     * {@link Builder#withInFlightDeduplication(boolean)}), cancelling the future cancels the in-flight HTTP request.
+     * Otherwise, cancelling it only stops waiting for the result, and the HTTP request, whose result other calls
+     * may share, runs to completion.
+     *
+     * @param request the data to scan, along with the configuration describing how to scan the data. The
+     *                request payload may not exceed 500KB.
+     * @return a future containing the findings from each item in the request payload
+     * @throws IllegalArgumentException thrown if <code>request</code> is null
+     */
+    public CompletableFuture<ScanTextResponse> scanTextAsync(ScanTextRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("request must be non-null");
+        }
+        if ((this.scanResultCache == null && this.inFlightScans == null)
+                || !DeduplicatedTextScan.isDeduplicable(request, this.policyUUIDDeduplication)) {
+            return this.issueRequestAsync("/v3/scan", "POST", scanTextRequestBody(request), null,
+                    ScanTextResponse.class, null);
+        }
+
+        DeduplicatedTextScan scan = DeduplicatedTextScan.lookup(this.scanResultCache, this.inFlightScans,
+                objectMapper, request);
+        if (!scan.hasMisses()) {
+            return scan.responseAsync();
+        }
+        CompletableFuture<ScanTextResponse> response;
+        try {
+            response = this.issueRequestAsync("/v3/scan", "POST", scanTextRequestBody(scan.missRequest()), null,
+                    ScanTextResponse.class, null);
+        } catch (RuntimeException e) {
+            scan.fail(e);
+            throw e;
+        }
+        return response.whenComplete((resp, t) -> {
+            if (t != null) {
+                scan.fail(unwrapCompletionException(t));
+            }
+        }).thenCompose(resp -> {
+            scan.complete(resp);
+            return scan.responseAsync();
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #scanText(ScanTextRequest, ScanTextResponseHandler)}. The handler is invoked
+     * on a thread of the underlying HTTP client's dispatcher, and the returned future completes once the entire
+     * response has been delivered to it. If the handler throws an exception, the future completes exceptionally
+     * with that exception.
+     *
+     * @param request the data to scan, along with the configuration describing how to scan the data. The
+     *                request payload may not exceed 500KB.
+     * @param handler receives each finding, along with the index of the payload item in which it occurred
+     * @return a future that completes once all findings have been delivered
+     * @throws IllegalArgumentException thrown if <code>request</code> or <code>handler</code> is null
+     */
+    public CompletableFuture<Void> scanTextAsync(ScanTextRequest request, ScanTextResponseHandler handler) {
+        if (request == null) {
+            throw new IllegalArgumentException("request must be non-null");
+        } else if (handler == null) {
+            throw new IllegalArgumentException("handler must be non-null");
+        }
+        return this.issueRequestAsync("/v3/scan", "POST", scanTextRequestBody(request), null,
+                streamingReader(handler), null);
+    }
+
+    private static RequestBody scanTextRequestBody(ScanTextRequest request) {
         byte[] jsonBody;
         try {
             jsonBody = objectMapper.writeValueAsBytes(request);
@@ -114,7 +426,72 @@ public class NightfallClient implements Closeable {
         }
 
         MediaType json = MediaType.parse("application/json");
-        return this.issueRequest("/v3/scan", "POST", json, jsonBody, null, ScanTextResponse.class);
+        return RequestBody.create(jsonBody, json);
+    }
+
+    private static RequestBody streamingRequestBody(ScanTextRequest request, StreamingPayload payload) {
+        if (request == null) {
+            throw new IllegalArgumentException("request must be non-null");
+        } else if (payload == null) {
+            throw new IllegalArgumentException("payload must be non-null");
+        } else if (request.getPayload() != null) {
+            throw new IllegalArgumentException("request payload must be null when streaming the payload");
+        }
+
+        return new StreamingScanTextRequestBody(objectMapper, request, payload);
+    }
+
+    /**
+     * Reads a text scan response by streaming it to <code>handler</code>. Failures while reading the body are
+     * reported as client exceptions rather than I/O errors, so that the request is not retried after findings
+     * may have been delivered. Exceptions thrown by the handler are marked as such, so that they reach the caller
+     * unwrapped.
+     */
+    private static ResponseReader<Void> streamingReader(ScanTextResponseHandler handler) {
+        ScanTextResponseHandler guarded = new ScanTextResponseHandler() {
+            @Override
+            public void onFinding(int payloadIndex, Finding finding) {
+                try {
+                    handler.onFinding(payloadIndex, finding);
+                } catch (RuntimeException e) {
+                    throw new HandlerException(e);
+                }
+            }
+
+            @Override
+            public void onRedactedPayload(int payloadIndex, String redactedPayload) {
+                try {
+                    handler.onRedactedPayload(payloadIndex, redactedPayload);
+                } catch (RuntimeException e) {
+                    throw new HandlerException(e);
+                }
+            }
+        };
+        return body -> {
+            try {
+                ScanTextResponseParser.parse(body.byteStream(), objectMapper, guarded);
+            } catch (IOException e) {
+                throw new NightfallClientException("reading scan response: " + e.getMessage());
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Carries an exception thrown by a {@link ScanTextResponseHandler} past the client's handling of unexpected
+     * failures, which would otherwise replace it with a {@link NightfallClientException}.
+     */
+    private static final class HandlerException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        HandlerException(RuntimeException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized RuntimeException getCause() {
+            return (RuntimeException) super.getCause();
+        }
     }
 
     /**
@@ -172,20 +549,163 @@ public class NightfallClient implements Closeable {
             throw new IllegalArgumentException("content must be non-null");
         }
 
-        Instant deadline = null;
-        if (timeout != null) {
-            if (timeout.isNegative()) {
-                throw new IllegalArgumentException("timeout must be positive");
+        Instant deadline = computeDeadline(timeout);
+        ChunkSource chunks = new StreamChunkSource(content, true, deadline);
+        return traceScanFile(contentSizeBytes,
+                span -> uploadAndScan(request, contentSizeBytes, chunks, deadline, span));
+    }
+
+    /**
+     * A convenience method that abstracts the details of the multi-step file upload and scan process for a file
+     * on the local file system. Chunks are streamed directly from the file into each upload request, without
+     * first being copied onto the heap.
+     *
+     * @param request contains configuration describing which detectors to use to scan the file, as well as a webhook
+     *                URL for delivering the results of the scan.
+     * @param file the path of the file to upload
+     * @return an acknowledgment that the asynchronous scan has been initiated.
+     * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
+     * @throws NightfallClientException thrown if a I/O error occurs while processing the request
+     * @throws NightfallRequestTimeoutException thrown if the request is aborted because read/write timeout is exceeded
+     */
+    public ScanFileResponse scanFile(ScanFileRequest request, Path file) {
+        return scanFile(request, file, null);
+    }
+
+    /**
+     * A convenience method that abstracts the details of the multi-step file upload and scan process for a file
+     * on the local file system. Chunks are streamed directly from the file into each upload request, without
+     * first being copied onto the heap.
+     *
+     * <p>The file must not be modified while it is being uploaded. If the client is configured with an
+     * {@link UploadCheckpointStore}, the progress of the upload is persisted as chunks are uploaded, and a later call
+     * for the same, unmodified file resumes the upload rather than starting over.
+     *
+     * @param request contains configuration describing which detectors to use to scan the file, as well as a webhook
+     *                URL for delivering the results of the scan.
+     * @param file the path of the file to upload
+     * @param timeout the allowed duration for the request; if the execution time exceeds this duration, the request
+     *                will be aborted.
+     * @return an acknowledgment that the asynchronous scan has been initiated.
+     * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
+     * @throws NightfallClientException thrown if the file cannot be read, or if a I/O error occurs while processing
+     *      the request
+     * @throws NightfallRequestTimeoutException thrown if execution time exceeds the provided <code>timeout</code>,
+     *      or if an HTTP request is terminated by the client for exceeding read/write timeouts.
+     */
+    public ScanFileResponse scanFile(ScanFileRequest request, Path file, Duration timeout) {
+        if (request == null) {
+            throw new IllegalArgumentException("request must be non-null");
+        } else if (file == null) {
+            throw new IllegalArgumentException("file must be non-null");
+        }
+
+        Instant deadline = computeDeadline(timeout);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long contentSizeBytes = channel.size();
+            ChunkSource chunks = new ChannelChunkSource(channel);
+            if (this.uploadCheckpointStore == null) {
+                return traceScanFile(contentSizeBytes,
+                        span -> uploadAndScan(request, contentSizeBytes, chunks, deadline, span));
             }
 
-            deadline = Instant.now().plus(timeout);
+            // identify the file by its contents' last known location and version
+            String checkpointKey = file.toAbsolutePath().normalize() + ":" + contentSizeBytes + ":"
+                    + Files.getLastModifiedTime(file).toMillis();
+            return traceScanFile(contentSizeBytes,
+                    span -> resumableUploadAndScan(request, contentSizeBytes, chunks, deadline, checkpointKey, span));
+        } catch (IOException e) {
+            throw new NightfallClientException("reading file to upload: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A convenience method that abstracts the details of the multi-step file upload and scan process for content
+     * that supports random access. Rather than reading the content sequentially, each of the
+     * <code>fileUploadConcurrency</code> upload workers reads the chunk it is about to upload on its own, so that
+     * reading and uploading overlap across all workers.
+     *
+     * <p>This method reads the entire channel, starting from position 0, but it *does not* close it; closing remains
+     * the caller's responsibility. Channels other than {@link FileChannel} are read one block at a time while holding
+     * the channel's monitor, so the caller must not use the channel concurrently.
+     *
+     * @param request contains configuration describing which detectors to use to scan the file, as well as a webhook
+     *                URL for delivering the results of the scan.
+     * @param content a channel containing the bytes representing the file to upload
+     * @return an acknowledgment that the asynchronous scan has been initiated.
+     * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
+     * @throws NightfallClientException thrown if a I/O error occurs while processing the request
+     * @throws NightfallRequestTimeoutException thrown if the request is aborted because read/write timeout is exceeded
+     */
+    public ScanFileResponse scanFile(ScanFileRequest request, SeekableByteChannel content) {
+        return scanFile(request, content, null);
+    }
+
+    /**
+     * A convenience method that abstracts the details of the multi-step file upload and scan process for content
+     * that supports random access. Rather than reading the content sequentially, each of the
+     * <code>fileUploadConcurrency</code> upload workers reads the chunk it is about to upload on its own, so that
+     * reading and uploading overlap across all workers.
+     *
+     * <p>This method reads the entire channel, starting from position 0, but it *does not* close it; closing remains
+     * the caller's responsibility. Channels other than {@link FileChannel} are read one block at a time while holding
+     * the channel's monitor, so the caller must not use the channel concurrently.
+     *
+     * @param request contains configuration describing which detectors to use to scan the file, as well as a webhook
+     *                URL for delivering the results of the scan.
+     * @param content a channel containing the bytes representing the file to upload
+     * @param timeout the allowed duration for the request; if the execution time exceeds this duration, the request
+     *                will be aborted.
+     * @return an acknowledgment that the asynchronous scan has been initiated.
+     * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
+     * @throws NightfallClientException thrown if a I/O error occurs while processing the request
+     * @throws NightfallRequestTimeoutException thrown if execution time exceeds the provided <code>timeout</code>,
+     *      or if an HTTP request is terminated by the client for exceeding read/write timeouts.
+     */
+    public ScanFileResponse scanFile(ScanFileRequest request, SeekableByteChannel content, Duration timeout) {
+        if (request == null) {
+            throw new IllegalArgumentException("request must be non-null");
+        } else if (content == null) {
+            throw new IllegalArgumentException("content must be non-null");
+        }
+
+        Instant deadline = computeDeadline(timeout);
+        long contentSizeBytes;
+        try {
+            contentSizeBytes = content.size();
+        } catch (IOException e) {
+            throw new NightfallClientException("reading content to upload: " + e.getMessage());
+        }
+        ChunkSource chunks = new ChannelChunkSource(content);
+        return traceScanFile(contentSizeBytes,
+                span -> uploadAndScan(request, contentSizeBytes, chunks, deadline, span));
+    }
+
+    /**
+     * Runs a file scan within a <code>nightfall.scanFile</code> span, which is passed on to every request that the
+     * scan issues.
+     */
+    private ScanFileResponse traceScanFile(
+            long contentSizeBytes, Function<NightfallTracer.Span, ScanFileResponse> scan) {
+        NightfallTracer.Span span = this.tracer.startSpan("nightfall.scanFile", null);
+        span.setAttribute("nightfall.file.size", contentSizeBytes);
+        try {
+            return scan.apply(span);
+        } catch (RuntimeException e) {
+            span.recordException(e);
+            throw e;
+        } finally {
+            span.end();
         }
+    }
 
+    private ScanFileResponse uploadAndScan(ScanFileRequest request, long contentSizeBytes, ChunkSource chunks,
+                                           Instant deadline, NightfallTracer.Span span) {
         InitializeFileUploadRequest initRequest = new InitializeFileUploadRequest(contentSizeBytes);
-        FileUpload upload = this.initializeFileUpload(initRequest);
+        FileUpload upload = this.initializeFileUpload(initRequest, span);
 
         AtomicReference<BaseNightfallException> uploadException = new AtomicReference<>();
-        boolean uploadSuccess = doChunkedUpload(upload, content, deadline, uploadException);
+        boolean uploadSuccess = doChunkedUpload(upload, chunks, deadline, null, uploadException, span);
         if (!uploadSuccess) {
             BaseNightfallException except = uploadException.get();
             if (except != null) {
@@ -195,179 +715,1288 @@ public class NightfallClient implements Closeable {
         }
 
         CompleteFileUploadRequest completeReq = new CompleteFileUploadRequest(upload.getFileID());
-        upload = this.completeFileUpload(completeReq);
+        upload = this.completeFileUpload(completeReq, span);
 
-        return this.scanUploadedFile(request, upload.getFileID());
+        return this.scanUploadedFile(request, upload.getFileID(), span);
     }
 
-    private boolean doChunkedUpload(
-            FileUpload upload, InputStream content, Instant deadline,
-            AtomicReference<BaseNightfallException> uploadException) {
-        // Use a semaphore to avoid loading the entire stream into memory
-        int numPermits = this.fileUploadConcurrency;
-        Semaphore semaphore = new Semaphore(numPermits);
-
-        AtomicBoolean allChunksSucceed = new AtomicBoolean(true);
-        for (int offset = 0; offset < upload.getFileSizeBytes(); offset += upload.getChunkSize()) {
-            semaphore.acquireUninterruptibly();
-            checkFileUploadDeadline(deadline);
-
-            if (!allChunksSucceed.get()) {
-                return false;
-            }
-
-            UploadFileChunkRequest chunkReq = new UploadFileChunkRequest(upload.getFileID(), offset);
-            byte[] data = new byte[(int) upload.getChunkSize()];
+    /**
+     * Like {@link #uploadAndScan(ScanFileRequest, long, ChunkSource, Instant, NightfallTracer.Span)}, but persists
+     * the progress of the upload under <code>checkpointKey</code>, and picks up where a previous call left off if a
+     * checkpoint exists. If the API no longer knows the checkpointed upload while its remaining chunks are
+     * uploaded or it is completed, e.g. because it expired, the upload starts over. Errors from the scan request
+     * itself are always rethrown; the checkpoint is kept so that a later call can scan the completed upload without
+     * uploading it again, unless the API reports that the upload no longer exists.
+     */
+    private ScanFileResponse resumableUploadAndScan(
+            ScanFileRequest request, long contentSizeBytes, ChunkSource chunks, Instant deadline,
+            String checkpointKey, NightfallTracer.Span span) {
+        UploadCheckpoint checkpoint = loadCheckpoint(checkpointKey);
+        if (checkpoint != null && checkpoint.getFileSizeBytes() == contentSizeBytes) {
+            UploadProgress progress = new UploadProgress(checkpointKey, checkpoint);
+            boolean resumed = true;
             try {
-                int bytesRead = content.read(data);
-                boolean notLastChunk = offset + upload.getChunkSize() < upload.getFileSizeBytes();
-                if (bytesRead < data.length && notLastChunk) {
-                    semaphore.release();
-                    throw new NightfallClientException("failed to read data from input stream");
-                } else if (bytesRead < data.length) {
-                    data = Arrays.copyOfRange(data, 0, bytesRead);
+                finishUpload(progress, chunks, deadline, span);
+            } catch (NightfallAPIException e) {
+                if (!isStaleUpload(e)) {
+                    throw e;
                 }
-            } catch (IOException e) {
-                semaphore.release();
-                throw new NightfallClientException("reading content to upload: " + e.getMessage());
+                deleteCheckpoint(checkpointKey);
+                resumed = false;
             }
-            chunkReq.setContent(data);
-
-            this.executor.execute(() -> {
-                try {
-                    this.uploadFileChunk(chunkReq);
-                } catch (BaseNightfallException e) {
-                    allChunksSucceed.set(false);
-                    uploadException.set(e);
-                } catch (Throwable t) {
-                    allChunksSucceed.set(false);
-                } finally {
-                    semaphore.release();
-                }
-            });
-        }
-
-        while (true) {
-            try {
-                // Attempt to acquire all permits; this is only possible when all chunks have been uploaded.
-                // Allow spurious wake-ups in case the caller puts a deadline on the operation.
-                boolean success = semaphore.tryAcquire(numPermits, wakeupDurationMillis, TimeUnit.MILLISECONDS);
-                if (success) {
-                    return allChunksSucceed.get();
-                }
-                checkFileUploadDeadline(deadline);
-            } catch (InterruptedException e) {
-                throw new NightfallClientException("interrupted while waiting for upload to complete");
+            if (resumed) {
+                return scanCheckpointedUpload(request, progress, span);
             }
         }
-    }
 
-    private void checkFileUploadDeadline(Instant deadline) {
-        if (deadline != null && Instant.now().isAfter(deadline)) {
-            throw new NightfallRequestTimeoutException("timed out while uploading file");
-        }
+        InitializeFileUploadRequest initRequest = new InitializeFileUploadRequest(contentSizeBytes);
+        FileUpload upload = this.initializeFileUpload(initRequest, span);
+        UploadProgress progress = new UploadProgress(checkpointKey, new UploadCheckpoint(upload.getFileID(),
+                upload.getFileSizeBytes(), upload.getChunkSize(), Collections.emptyList(), false));
+        progress.save();
+        finishUpload(progress, chunks, deadline, span);
+        return scanCheckpointedUpload(request, progress, span);
     }
 
     /**
-     * Creates a file upload session. If this operation returns successfully, the ID returned as part of the
-     * response object shall be used to refer to the file in all subsequent upload and scanning operations.
-     *
-     * @param request contains metadata describing the requested file upload, such as the file size in bytes.
-     * @return an object representing the file upload.
-     * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
-     * @throws NightfallClientException thrown if a I/O error occurs while processing the request
-     * @throws NightfallRequestTimeoutException thrown if the request is aborted because read/write timeout is exceeded
+     * Scans a completed upload, then deletes its checkpoint. If the scan fails because the upload no longer exists,
+     * e.g. because it expired, the checkpoint is deleted as well, so that the next call starts over.
      */
-    private FileUpload initializeFileUpload(InitializeFileUploadRequest request) {
-        byte[] jsonBody;
+    private ScanFileResponse scanCheckpointedUpload(
+            ScanFileRequest request, UploadProgress progress, NightfallTracer.Span span) {
+        ScanFileResponse response;
         try {
-            jsonBody = objectMapper.writeValueAsBytes(request);
-        } catch (JsonProcessingException e) {
-            throw new NightfallClientException("processing init-upload request: " + e.getMessage());
+            response = this.scanUploadedFile(request, progress.upload.getFileID(), span);
+        } catch (NightfallAPIException e) {
+            if (isStaleUpload(e)) {
+                deleteCheckpoint(progress.key);
+            }
+            throw e;
         }
-
-        MediaType json = MediaType.parse("application/json");
-        return this.issueRequest("/v3/upload", "POST", json, jsonBody, null, FileUpload.class);
+        deleteCheckpoint(progress.key);
+        return response;
     }
 
     /**
-     * Uploads the bytes stored at the provided offset of a file. The byte offset provided should be an exact
-     * multiple of the <code>chunkSize</code> returned by the response when the upload session was created. The
+     * Uploads the chunks that have not been uploaded yet, then completes the upload, recording progress along
+     * the way.
+     */
+    private void finishUpload(
+            UploadProgress progress, ChunkSource chunks, Instant deadline, NightfallTracer.Span span) {
+        if (progress.completed) {
+            return;
+        }
+
+        AtomicReference<BaseNightfallException> uploadException = new AtomicReference<>();
+        boolean uploadSuccess = doChunkedUpload(
+                progress.upload, chunks, deadline, progress, uploadException, span);
+        if (!uploadSuccess) {
+            // record the chunks that did make it, so that resuming does not repeat them
+            progress.save();
+            BaseNightfallException except = uploadException.get();
+            if (except != null) {
+                throw except;
+            }
+            throw new NightfallClientException("internal error: failed to upload all chunks of file");
+        }
+
+        this.completeFileUpload(new CompleteFileUploadRequest(progress.upload.getFileID()), span);
+        progress.markCompleted();
+    }
+
+    private UploadCheckpoint loadCheckpoint(String checkpointKey) {
+        try {
+            return this.uploadCheckpointStore.load(checkpointKey);
+        } catch (IOException e) {
+            throw new NightfallClientException("loading upload checkpoint: " + e.getMessage());
+        }
+    }
+
+    private void deleteCheckpoint(String checkpointKey) {
+        try {
+            this.uploadCheckpointStore.delete(checkpointKey);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "deleting upload checkpoint: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Whether the API rejected a request for a previously initialized upload because the upload session no longer
+     * exists, rather than because of the request itself, the caller's credentials or quota.
+     */
+    private static boolean isStaleUpload(NightfallAPIException e) {
+        int status = e.getHttpStatusCode();
+        return status == 404 || status == 410;
+    }
+
+    private static Instant computeDeadline(Duration timeout) {
+        if (timeout == null) {
+            return null;
+        } else if (timeout.isNegative()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        return Instant.now().plus(timeout);
+    }
+
+    /**
+     * Asynchronous variant of {@link #scanFile(ScanFileRequest, InputStream, long)}.
+     *
+     * <p>This method consumes the provided <code>InputStream</code>, but it *does not* close it; closing remains
+     * the caller's responsibility, and must not happen before the returned future completes.
+     *
+     * @param request contains configuration describing which detectors to use to scan the file, as well as a webhook
+     *                URL for delivering the results of the scan.
+     * @param content a stream of the bytes representing the file to upload
+     * @param contentSizeBytes the size of the input stream
+     * @return a future containing an acknowledgment that the asynchronous scan has been initiated.
+     * @throws IllegalArgumentException thrown if <code>request</code> or <code>content</code> is null
+     */
+    public CompletableFuture<ScanFileResponse> scanFileAsync(
+            ScanFileRequest request, InputStream content, long contentSizeBytes) {
+        return scanFileAsync(request, content, contentSizeBytes, null);
+    }
+
+    /**
+     * Asynchronous variant of {@link #scanFile(ScanFileRequest, InputStream, long, Duration)}. Upload chunks are
+     * issued without blocking the calling thread; at most <code>fileUploadConcurrency</code> chunks are in flight
+     * at any given time. Chunks are read from <code>content</code> on the thread that completes the previous
+     * request, so the stream should not block for long periods of time.
+     *
+     * <p>The returned future completes exceptionally with a {@link NightfallAPIException},
+     * {@link NightfallClientException}, or {@link NightfallRequestTimeoutException} under the same conditions
+     * that the synchronous variant would throw them.
+     *
+     * <p>This method consumes the provided <code>InputStream</code>, but it *does not* close it; closing remains
+     * the caller's responsibility, and must not happen before the returned future completes.
+     *
+     * @param request contains configuration describing which detectors to use to scan the file, as well as a webhook
+     *                URL for delivering the results of the scan.
+     * @param content a stream of the bytes representing the file to upload
+     * @param contentSizeBytes the size of the input stream
+     * @param timeout the allowed duration for the upload; if the execution time exceeds this duration, the request
+     *                will be aborted.
+     * @return a future containing an acknowledgment that the asynchronous scan has been initiated.
+     * @throws IllegalArgumentException thrown if <code>request</code> or <code>content</code> is null, or if
+     *      <code>timeout</code> is negative
+     */
+    public CompletableFuture<ScanFileResponse> scanFileAsync(
+            ScanFileRequest request, InputStream content, long contentSizeBytes, Duration timeout) {
+        if (request == null) {
+            throw new IllegalArgumentException("request must be non-null");
+        } else if (content == null) {
+            throw new IllegalArgumentException("content must be non-null");
+        }
+
+        Instant deadline = computeDeadline(timeout);
+        ChunkSource chunks = new StreamChunkSource(content, false, null);
+
+        NightfallTracer.Span span = this.tracer.startSpan("nightfall.scanFile", null);
+        span.setAttribute("nightfall.file.size", contentSizeBytes);
+        InitializeFileUploadRequest initRequest = new InitializeFileUploadRequest(contentSizeBytes);
+        return this.initializeFileUploadAsync(initRequest, span)
+                .thenCompose(upload -> doChunkedUploadAsync(upload, chunks, deadline, span))
+                .thenCompose(upload -> {
+                    CompleteFileUploadRequest completeReq = new CompleteFileUploadRequest(upload.getFileID());
+                    return this.completeFileUploadAsync(completeReq, span);
+                })
+                .thenCompose(upload -> this.scanUploadedFileAsync(request, upload.getFileID(), span))
+                .whenComplete((r, t) -> {
+                    if (t != null) {
+                        span.recordException(unwrapCompletionException(t));
+                    }
+                    span.end();
+                });
+    }
+
+    private boolean doChunkedUpload(
+            FileUpload upload, ChunkSource chunks, Instant deadline, UploadProgress progress,
+            AtomicReference<BaseNightfallException> uploadException, NightfallTracer.Span span) {
+        if (chunks.isRandomAccess()) {
+            return doParallelChunkedUpload(upload, chunks, deadline, progress, uploadException, span);
+        }
+        // resumable uploads always read from a file, so there is never any progress to record or skip below
+
+        // Use a semaphore to avoid loading the entire stream into memory
+        int numPermits = this.fileUploadConcurrency;
+        Semaphore semaphore = new Semaphore(numPermits);
+
+        UploadScheduler.Lane lane = this.uploadScheduler.newLane();
+        AtomicBoolean allChunksSucceed = new AtomicBoolean(true);
+        for (long offset = 0; offset < upload.getFileSizeBytes(); offset += upload.getChunkSize()) {
+            semaphore.acquireUninterruptibly();
+            checkFileUploadDeadline(deadline);
+
+            if (!allChunksSucceed.get()) {
+                return false;
+            }
+
+            final long chunkOffset = offset;
+            RequestBody chunk;
+            try {
+                chunk = chunks.read(upload, offset, chunkLength(upload, offset));
+            } catch (BaseNightfallException e) {
+                semaphore.release();
+                throw e;
+            }
+
+            lane.execute(() -> {
+                try {
+                    this.uploadFileChunk(upload.getFileID(), chunkOffset, chunk, span);
+                } catch (BaseNightfallException e) {
+                    allChunksSucceed.set(false);
+                    uploadException.set(e);
+                } catch (Throwable t) {
+                    allChunksSucceed.set(false);
+                } finally {
+                    chunks.release(chunk);
+                    semaphore.release();
+                }
+            });
+        }
+
+        while (true) {
+            try {
+                // Attempt to acquire all permits; this is only possible when all chunks have been uploaded.
+                // Allow spurious wake-ups in case the caller puts a deadline on the operation.
+                boolean success = semaphore.tryAcquire(numPermits, wakeupDurationMillis, TimeUnit.MILLISECONDS);
+                if (success) {
+                    return allChunksSucceed.get();
+                }
+                checkFileUploadDeadline(deadline);
+            } catch (InterruptedException e) {
+                throw new NightfallClientException("interrupted while waiting for upload to complete");
+            }
+        }
+    }
+
+    /**
+     * Uploads a file whose chunks can be read in any order. Rather than reading chunks on the calling thread and
+     * handing them off, each upload worker claims the next chunk offset and reads that chunk itself, so reads
+     * proceed in parallel with each other as well as with uploads. Each of the <code>fileUploadConcurrency</code>
+     * chains of chunks re-queues itself in the file's scheduler lane after every chunk, so that workers take turns
+     * between this file and any other files being uploaded.
+     */
+    private boolean doParallelChunkedUpload(
+            FileUpload upload, ChunkSource chunks, Instant deadline, UploadProgress progress,
+            AtomicReference<BaseNightfallException> uploadException, NightfallTracer.Span span) {
+        long numChunks = (upload.getFileSizeBytes() + upload.getChunkSize() - 1) / upload.getChunkSize();
+        int numWorkers = (int) Math.min(this.fileUploadConcurrency, numChunks);
+        UploadScheduler.Lane lane = this.uploadScheduler.newLane();
+        AtomicLong nextOffset = new AtomicLong(0);
+        AtomicBoolean allChunksSucceed = new AtomicBoolean(true);
+        CountDownLatch workersDone = new CountDownLatch(numWorkers);
+
+        Runnable uploadNextChunk = new Runnable() {
+            @Override
+            public void run() {
+                boolean requeue = false;
+                try {
+                    long offset = nextOffset.getAndAdd(upload.getChunkSize());
+                    while (progress != null && progress.isUploaded(offset)) {
+                        offset = nextOffset.getAndAdd(upload.getChunkSize());
+                    }
+                    if (allChunksSucceed.get() && offset < upload.getFileSizeBytes()) {
+                        checkFileUploadDeadline(deadline);
+                        RequestBody chunk = chunks.read(upload, offset, chunkLength(upload, offset));
+                        uploadFileChunk(upload.getFileID(), offset, chunk, span);
+                        if (progress != null) {
+                            progress.chunkUploaded(offset);
+                        }
+                        requeue = true;
+                    }
+                } catch (BaseNightfallException e) {
+                    allChunksSucceed.set(false);
+                    uploadException.compareAndSet(null, e);
+                } catch (Throwable t) {
+                    allChunksSucceed.set(false);
+                }
+
+                if (requeue) {
+                    try {
+                        lane.execute(this);
+                        return;
+                    } catch (RuntimeException e) {
+                        allChunksSucceed.set(false); // the client was closed
+                    }
+                }
+                workersDone.countDown();
+            }
+        };
+        for (int i = 0; i < numWorkers; i++) {
+            lane.execute(uploadNextChunk);
+        }
+
+        while (true) {
+            try {
+                // Allow spurious wake-ups in case the caller puts a deadline on the operation.
+                if (workersDone.await(wakeupDurationMillis, TimeUnit.MILLISECONDS)) {
+                    return allChunksSucceed.get();
+                }
+                checkFileUploadDeadline(deadline);
+            } catch (NightfallRequestTimeoutException e) {
+                allChunksSucceed.set(false); // stop workers from starting any more chunks
+                throw e;
+            } catch (InterruptedException e) {
+                allChunksSucceed.set(false);
+                throw new NightfallClientException("interrupted while waiting for upload to complete");
+            }
+        }
+    }
+
+    private CompletableFuture<FileUpload> doChunkedUploadAsync(
+            FileUpload upload, ChunkSource chunks, Instant deadline, NightfallTracer.Span span) {
+        AsyncChunkedUpload chunkedUpload = new AsyncChunkedUpload(upload, chunks, span);
+        if (deadline != null) {
+            long delayMillis = Math.max(Duration.between(Instant.now(), deadline).toMillis(), 0);
+            ScheduledFuture<?> timeout = this.retryScheduler.schedule(() -> chunkedUpload.result.completeExceptionally(
+                    new NightfallRequestTimeoutException("timed out while uploading file")),
+                    delayMillis, TimeUnit.MILLISECONDS);
+            chunkedUpload.result.whenComplete((r, t) -> timeout.cancel(false));
+        }
+        chunkedUpload.pump();
+        return chunkedUpload.result;
+    }
+
+    /**
+     * Tracks the state of an asynchronous chunked upload. Each completed chunk request pumps the next chunk(s)
+     * from the input stream, so that no more than <code>fileUploadConcurrency</code> chunks are in flight.
+     */
+    private class AsyncChunkedUpload {
+        private final FileUpload upload;
+        private final ChunkSource chunks;
+        private final NightfallTracer.Span span;
+        private final CompletableFuture<FileUpload> result = new CompletableFuture<>();
+        private long nextOffset = 0;
+        private int inFlight = 0;
+
+        AsyncChunkedUpload(FileUpload upload, ChunkSource chunks, NightfallTracer.Span span) {
+            this.upload = upload;
+            this.chunks = chunks;
+            this.span = span;
+        }
+
+        synchronized void pump() {
+            while (!result.isDone() && inFlight < fileUploadConcurrency && nextOffset < upload.getFileSizeBytes()) {
+                long offset = nextOffset;
+                RequestBody chunk;
+                try {
+                    // Once a chunk is in flight, its completion resumes pumping, so it is safe to wait for a
+                    // buffer to be released rather than reading the chunk right away.
+                    chunk = inFlight > 0
+                            ? chunks.tryRead(upload, offset, chunkLength(upload, offset))
+                            : chunks.read(upload, offset, chunkLength(upload, offset));
+                } catch (BaseNightfallException e) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                if (chunk == null) {
+                    break;
+                }
+
+                nextOffset += upload.getChunkSize();
+                inFlight++;
+                uploadFileChunkAsync(upload.getFileID(), offset, chunk, span)
+                        .whenComplete((ignored, t) -> {
+                            chunks.release(chunk);
+                            onChunkComplete(t);
+                        });
+            }
+
+            if (inFlight == 0 && nextOffset >= upload.getFileSizeBytes()) {
+                result.complete(upload);
+            }
+        }
+
+        private synchronized void onChunkComplete(Throwable t) {
+            inFlight--;
+            if (t != null) {
+                result.completeExceptionally(unwrapCompletionException(t));
+                return;
+            }
+            pump();
+        }
+    }
+
+    /**
+     * Tracks which chunks of a resumable upload have been uploaded, and periodically saves a checkpoint to the
+     * client's checkpoint store. Checkpoints are best-effort: a failure to save one is logged, and at worst causes
+     * a resumed upload to repeat some chunks.
+     */
+    private class UploadProgress {
+        private final String key;
+        private final FileUpload upload;
+        private final Set<Long> uploadedOffsets = ConcurrentHashMap.newKeySet();
+        private boolean completed;
+        private int unsavedChunks;
+        private long lastSaveNanos = System.nanoTime();
+        // the version of the latest snapshot taken, and of the latest snapshot written to the store, respectively
+        private long snapshotVersion;
+        private long savedVersion;
+        private final Object saveLock = new Object();
+
+        UploadProgress(String key, UploadCheckpoint checkpoint) {
+            this.key = key;
+            this.upload = new FileUpload(checkpoint.getFileID(), checkpoint.getFileSizeBytes(),
+                    checkpoint.getChunkSize(), null);
+            this.uploadedOffsets.addAll(checkpoint.getUploadedOffsets());
+            this.completed = checkpoint.isCompleted();
+        }
+
+        boolean isUploaded(long offset) {
+            return this.uploadedOffsets.contains(offset);
+        }
+
+        void chunkUploaded(long offset) {
+            this.uploadedOffsets.add(offset);
+            synchronized (this) {
+                this.unsavedChunks++;
+                if (this.unsavedChunks < CHECKPOINT_INTERVAL_CHUNKS
+                        && System.nanoTime() - this.lastSaveNanos < CHECKPOINT_INTERVAL_NANOS) {
+                    return;
+                }
+            }
+            save();
+        }
+
+        void markCompleted() {
+            synchronized (this) {
+                this.completed = true;
+            }
+            save();
+        }
+
+        void save() {
+            UploadCheckpoint checkpoint;
+            long version;
+            synchronized (this) {
+                checkpoint = new UploadCheckpoint(this.upload.getFileID(), this.upload.getFileSizeBytes(),
+                        this.upload.getChunkSize(), new ArrayList<>(this.uploadedOffsets), this.completed);
+                version = ++this.snapshotVersion;
+                this.unsavedChunks = 0;
+                this.lastSaveNanos = System.nanoTime();
+            }
+
+            // don't let an older snapshot overwrite a newer one that was written first
+            synchronized (this.saveLock) {
+                if (version < this.savedVersion) {
+                    return;
+                }
+                try {
+                    uploadCheckpointStore.save(this.key, checkpoint);
+                    this.savedVersion = version;
+                } catch (IOException | RuntimeException e) {
+                    logger.log(Level.WARNING, "saving upload checkpoint: " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Produces the request body holding the bytes of the chunk of a file that starts at a given offset.
+     */
+    private interface ChunkSource {
+        RequestBody read(FileUpload upload, long offset, long length);
+
+        /**
+         * Like {@link #read(FileUpload, long, long)}, but returns null rather than waiting if the chunk cannot be
+         * read right away.
+         */
+        default RequestBody tryRead(FileUpload upload, long offset, long length) {
+            return read(upload, offset, length);
+        }
+
+        /**
+         * Releases any resources held by a chunk once it is no longer needed, i.e. after its upload either
+         * succeeded or failed for good.
+         */
+        default void release(RequestBody chunk) {
+        }
+
+        /**
+         * Whether chunks may be read in any order, and concurrently. Sequential sources must be read in order of
+         * increasing offset, one chunk at a time.
+         */
+        default boolean isRandomAccess() {
+            return false;
+        }
+    }
+
+    /**
+     * A chunk source backed by a channel that supports random access. Bytes are only read from the channel once
+     * the returned request body is written to the connection, i.e. on the thread that uploads the chunk.
+     */
+    private static class ChannelChunkSource implements ChunkSource {
+        private final SeekableByteChannel channel;
+
+        ChannelChunkSource(SeekableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public RequestBody read(FileUpload upload, long offset, long length) {
+            if (this.channel instanceof FileChannel) {
+                return new FileChannelRequestBody((FileChannel) this.channel, offset, length, OCTET_STREAM);
+            }
+            return new SeekableChannelRequestBody(this.channel, offset, length, OCTET_STREAM);
+        }
+
+        @Override
+        public boolean isRandomAccess() {
+            return true;
+        }
+    }
+
+    private static long chunkLength(FileUpload upload, long offset) {
+        return Math.min(upload.getChunkSize(), upload.getFileSizeBytes() - offset);
+    }
+
+    /**
+     * A chunk source that reads a stream sequentially into buffers taken from the client's chunk buffer pool.
+     * Synchronous uploads wait for a buffer to be released when all of them are in use; asynchronous uploads must
+     * not block, so when no chunk is in flight to free one up, they read into a buffer allocated outside the pool.
+     */
+    private class StreamChunkSource implements ChunkSource {
+        private final InputStream content;
+        private final boolean blocking;
+        private final Instant deadline;
+        private ReadableByteChannel channel;
+
+        /**
+         * Create a new chunk source.
+         *
+         * @param content the stream to read
+         * @param blocking whether {@link #read(FileUpload, long, long)} may wait for a pooled buffer
+         * @param deadline the deadline for the upload, or null if it has none
+         */
+        StreamChunkSource(InputStream content, boolean blocking, Instant deadline) {
+            this.content = content;
+            this.blocking = blocking;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public RequestBody read(FileUpload upload, long offset, long length) {
+            ByteBuffer buffer = this.blocking ? acquireBuffer((int) length) : null;
+            if (buffer == null) {
+                buffer = chunkBufferPool.tryAcquire((int) length);
+            }
+            if (buffer == null) {
+                ByteBuffer unpooled = ByteBuffer.allocate((int) length);
+                fill(upload, unpooled, offset);
+                return RequestBody.create(unpooled.array(), OCTET_STREAM, 0, unpooled.limit());
+            }
+            return fillPooled(upload, buffer, offset);
+        }
+
+        @Override
+        public RequestBody tryRead(FileUpload upload, long offset, long length) {
+            ByteBuffer buffer = chunkBufferPool.tryAcquire((int) length);
+            if (buffer == null) {
+                return null;
+            }
+            return fillPooled(upload, buffer, offset);
+        }
+
+        @Override
+        public void release(RequestBody chunk) {
+            if (chunk instanceof ByteBufferRequestBody) {
+                chunkBufferPool.release(((ByteBufferRequestBody) chunk).getBuffer());
+            }
+        }
+
+        private ByteBuffer acquireBuffer(int length) {
+            while (true) {
+                try {
+                    // Allow spurious wake-ups in case the caller puts a deadline on the operation.
+                    ByteBuffer buffer = chunkBufferPool.acquire(length, wakeupDurationMillis, TimeUnit.MILLISECONDS);
+                    if (buffer != null) {
+                        return buffer;
+                    }
+                    checkFileUploadDeadline(this.deadline);
+                } catch (InterruptedException e) {
+                    throw new NightfallClientException("interrupted while waiting for upload buffer");
+                }
+            }
+        }
+
+        private RequestBody fillPooled(FileUpload upload, ByteBuffer buffer, long offset) {
+            try {
+                fill(upload, buffer, offset);
+            } catch (RuntimeException e) {
+                chunkBufferPool.release(buffer);
+                throw e;
+            }
+            return new ByteBufferRequestBody(buffer, OCTET_STREAM);
+        }
+
+        /**
+         * Reads the chunk starting at <code>offset</code> into <code>buffer</code>, up to its limit, then flips
+         * the buffer. Only the last chunk of the file may come up short.
+         */
+        private void fill(FileUpload upload, ByteBuffer buffer, long offset) {
+            try {
+                if (buffer.hasArray()) {
+                    while (buffer.hasRemaining()) {
+                        int bytesRead = this.content.read(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                                buffer.remaining());
+                        if (bytesRead < 0) {
+                            break;
+                        }
+                        buffer.position(buffer.position() + bytesRead);
+                    }
+                } else {
+                    if (this.channel == null) {
+                        this.channel = Channels.newChannel(this.content);
+                    }
+                    while (buffer.hasRemaining() && this.channel.read(buffer) >= 0) {
+                        // keep reading until the buffer is full or the stream is exhausted
+                    }
+                }
+            } catch (IOException e) {
+                throw new NightfallClientException("reading content to upload: " + e.getMessage());
+            }
+
+            boolean notLastChunk = offset + upload.getChunkSize() < upload.getFileSizeBytes();
+            if (buffer.hasRemaining() && notLastChunk) {
+                throw new NightfallClientException("failed to read data from input stream");
+            }
+            buffer.flip();
+        }
+    }
+
+    private void checkFileUploadDeadline(Instant deadline) {
+        if (deadline != null && Instant.now().isAfter(deadline)) {
+            throw new NightfallRequestTimeoutException("timed out while uploading file");
+        }
+    }
+
+    /**
+     * Creates a file upload session. If this operation returns successfully, the ID returned as part of the
+     * response object shall be used to refer to the file in all subsequent upload and scanning operations.
+     *
+     * @param request contains metadata describing the requested file upload, such as the file size in bytes.
+     * @param span the span of the file scan that issues this request
+     * @return an object representing the file upload.
+     * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
+     * @throws NightfallClientException thrown if a I/O error occurs while processing the request
+     * @throws NightfallRequestTimeoutException thrown if the request is aborted because read/write timeout is exceeded
+     */
+    private FileUpload initializeFileUpload(InitializeFileUploadRequest request, NightfallTracer.Span span) {
+        byte[] jsonBody;
+        try {
+            jsonBody = objectMapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            throw new NightfallClientException("processing init-upload request: " + e.getMessage());
+        }
+
+        MediaType json = MediaType.parse("application/json");
+        return this.issueRequest("/v3/upload", "POST", RequestBody.create(jsonBody, json), null, FileUpload.class,
+                span);
+    }
+
+    /**
+     * Uploads the bytes stored at the provided offset of a file. The byte offset provided should be an exact
+     * multiple of the <code>chunkSize</code> returned by the response when the upload session was created. The
      * number of bytes provided in the request should exactly match <code>chunkSize</code>, except if this chunk is
      * the last chunk of the file; then it may be less.
      *
-     * @param request the data to upload, as well as metadata such as the offset at which to upload.
+     * @param fileUploadID the ID of the file
+     * @param fileOffset the offset at which to upload bytes
+     * @param content the bytes to upload
+     * @param span the span of the file scan that issues this request
      * @return true if the chunk was uploaded
      * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
      * @throws NightfallClientException thrown if a I/O error occurs while processing the request
      * @throws NightfallRequestTimeoutException thrown if the request is aborted because read/write timeout is exceeded
      */
-    private boolean uploadFileChunk(UploadFileChunkRequest request) {
-        Headers headers = Headers.of("X-Upload-Offset", Long.toString(request.getFileOffset()));
-        String path = "/v3/upload/" + request.getFileUploadID().toString();
-        MediaType octetStream = MediaType.parse("application/octet-stream");
-        this.issueRequest(path, "PATCH", octetStream, request.getContent(), headers, Void.class);
+    private boolean uploadFileChunk(
+            UUID fileUploadID, long fileOffset, RequestBody content, NightfallTracer.Span span) {
+        Headers headers = Headers.of("X-Upload-Offset", Long.toString(fileOffset));
+        String path = "/v3/upload/" + fileUploadID.toString();
+        this.issueRequest(path, "PATCH", content, headers, Void.class, span);
         return true;
     }
 
-    /**
-     * Marks the file upload as complete, and coalesces all chunks into a single logical file. This method also
-     * validates the uploaded bytes to make sure that they represent a file type for which Nightfall supports scans.
-     *
-     * @param request contains metadata identifying the file upload, namely the upload ID.
-     * @return an object representing the file upload.
-     * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
-     * @throws NightfallClientException thrown if a I/O error occurs while processing the request
-     * @throws NightfallRequestTimeoutException thrown if the request is aborted because read/write timeout is exceeded
-     */
-    private FileUpload completeFileUpload(CompleteFileUploadRequest request) {
-        String path = "/v3/upload/" + request.getFileUploadID().toString() + "/finish";
-        MediaType json = MediaType.parse("application/json");
-        return this.issueRequest(path, "POST", json, new byte[0], null, FileUpload.class);
+    /**
+     * Marks the file upload as complete, and coalesces all chunks into a single logical file. This method also
+     * validates the uploaded bytes to make sure that they represent a file type for which Nightfall supports scans.
+     *
+     * @param request contains metadata identifying the file upload, namely the upload ID.
+     * @param span the span of the file scan that issues this request
+     * @return an object representing the file upload.
+     * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
+     * @throws NightfallClientException thrown if a I/O error occurs while processing the request
+     * @throws NightfallRequestTimeoutException thrown if the request is aborted because read/write timeout is exceeded
+     */
+    private FileUpload completeFileUpload(CompleteFileUploadRequest request, NightfallTracer.Span span) {
+        String path = "/v3/upload/" + request.getFileUploadID().toString() + "/finish";
+        return this.issueRequest(path, "POST", null, null, FileUpload.class, span);
+    }
+
+    /**
+     * Triggers a scan of the file identified by the provided <code>fileID</code>. As the underlying file might be
+     * arbitrarily large, this scan will be conducted asynchronously. Results from the scan will be delivered to the
+     * webhook URL provided in the <code>request</code> payload.
+     *
+     * @param request contains metadata identifying which file to scan, as well as the configuration that
+     *                describes which detectors to use when scanning.
+     * @param fileID the ID of the file to scan
+     * @param span the span of the file scan that issues this request
+     * @return an acknowledgment that the asynchronous scan has been initiated.
+     * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
+     * @throws NightfallClientException thrown if a I/O error occurs while processing the request
+     * @throws NightfallRequestTimeoutException thrown if the request is aborted because read/write timeout is exceeded
+     */
+    private ScanFileResponse scanUploadedFile(ScanFileRequest request, UUID fileID, NightfallTracer.Span span) {
+        String path = "/v3/upload/" + fileID.toString() + "/scan";
+        byte[] jsonBody;
+        try {
+            jsonBody = objectMapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            throw new NightfallClientException("processing scan file request: " + e.getMessage());
+        }
+
+        MediaType json = MediaType.parse("application/json");
+        return this.issueRequest(path, "POST", RequestBody.create(jsonBody, json), null, ScanFileResponse.class,
+                span);
+    }
+
+    private CompletableFuture<FileUpload> initializeFileUploadAsync(
+            InitializeFileUploadRequest request, NightfallTracer.Span span) {
+        byte[] jsonBody;
+        try {
+            jsonBody = objectMapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            throw new NightfallClientException("processing init-upload request: " + e.getMessage());
+        }
+
+        MediaType json = MediaType.parse("application/json");
+        return this.issueRequestAsync("/v3/upload", "POST", RequestBody.create(jsonBody, json), null,
+                FileUpload.class, span);
+    }
+
+    private CompletableFuture<Void> uploadFileChunkAsync(
+            UUID fileUploadID, long fileOffset, RequestBody content, NightfallTracer.Span span) {
+        Headers headers = Headers.of("X-Upload-Offset", Long.toString(fileOffset));
+        String path = "/v3/upload/" + fileUploadID.toString();
+        return this.issueRequestAsync(path, "PATCH", content, headers, Void.class, span);
+    }
+
+    private CompletableFuture<FileUpload> completeFileUploadAsync(
+            CompleteFileUploadRequest request, NightfallTracer.Span span) {
+        String path = "/v3/upload/" + request.getFileUploadID().toString() + "/finish";
+        return this.issueRequestAsync(path, "POST", null, null, FileUpload.class, span);
+    }
+
+    private CompletableFuture<ScanFileResponse> scanUploadedFileAsync(
+            ScanFileRequest request, UUID fileID, NightfallTracer.Span span) {
+        String path = "/v3/upload/" + fileID.toString() + "/scan";
+        byte[] jsonBody;
+        try {
+            jsonBody = objectMapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            CompletableFuture<ScanFileResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(
+                    new NightfallClientException("processing scan file request: " + e.getMessage()));
+            return failed;
+        }
+
+        MediaType json = MediaType.parse("application/json");
+        return this.issueRequestAsync(path, "POST", RequestBody.create(jsonBody, json), null,
+                ScanFileResponse.class, span);
+    }
+
+    /**
+     * Issues an HTTP request to the provided resource. If the request is successful, the response body will be
+     * deserialized into an object based on the provided <code>responseClass</code>. If the request fails, the
+     * configured retry policy decides whether, and after how long, the request is retried.
+     *
+     * @param path the HTTP resource path
+     * @param method the HTTP verb
+     * @param body the HTTP request body
+     * @param headers HTTP headers
+     * @param responseClass the class to deserialize results into
+     * @param parent the span of the operation that issues the request, or null if the request is an operation
+     *               of its own
+     * @return an instance of the <code>responseClass</code>
+     * @throws NightfallClientException thrown if an unexpected error occurs while processing the request
+     * @throws NightfallAPIException thrown if the API returns a 4xx or 5xx error code
+     * @throws NightfallRequestTimeoutException thrown if the request is aborted because read/write timeout is exceeded
+     */
+    private <E> E issueRequest(String path, String method, RequestBody body, Headers headers,
+                               Class<E> responseClass, NightfallTracer.Span parent) {
+        return issueRequest(path, method, body, headers, responseReader(responseClass), parent);
+    }
+
+    /**
+     * Issues an HTTP request to the provided resource, and reads a successful response using the provided
+     * <code>responseReader</code>. Failed requests are retried as described for
+     * {@link #issueRequest(String, String, RequestBody, Headers, Class, NightfallTracer.Span)}.
+     */
+    private <E> E issueRequest(String path, String method, RequestBody body, Headers headers,
+                               ResponseReader<E> responseReader, NightfallTracer.Span parent) {
+        NightfallTracer.Span span = startRequestSpan(path, method, headers, parent);
+        try {
+            return executeRequest(path, buildRequest(path, method, body, headers), responseReader, span);
+        } catch (RuntimeException e) {
+            span.recordException(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private <E> E executeRequest(
+            String path, Request request, ResponseReader<E> responseReader, NightfallTracer.Span span) {
+        Call call = this.httpClient.newCall(request);
+        String method = request.method();
+        String endpoint = endpointTemplate(path);
+        long requestBytes = requestBytes(request);
+
+        long startNanos = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            NightfallErrorResponse lastError = null;
+            RetryContext failure = null;
+            E result = null;
+            awaitRateLimit(call.request(), endpoint, span);
+            NightfallTracer.Span attemptSpan = startAttemptSpan(attempt, span);
+            long attemptNanos = System.nanoTime();
+            int statusCode = 0;
+            long responseBytes = -1;
+            try (Response response = call.execute()) {
+                statusCode = response.code();
+                responseBytes = response.body().contentLength();
+                if (this.rateLimiter != null) {
+                    this.rateLimiter.onResponse(response);
+                }
+                if (response.isSuccessful()) {
+                    result = responseReader.read(response.body());
+                } else {
+                    lastError = readErrorResponse(response);
+                    failure = new RetryContext(path, attempt, elapsedSince(startNanos), response.code(), null,
+                            parseRetryAfter(response));
+                }
+            } catch (JsonProcessingException e) {
+                throw new NightfallClientException("issuing HTTP request: " + e.getMessage());
+            } catch (IOException e) {
+                failure = new RetryContext(path, attempt, elapsedSince(startNanos), 0, e, null);
+                attemptSpan.recordException(e);
+            } catch (BaseNightfallException e) {
+                throw e;
+            } catch (HandlerException e) {
+                throw e.getCause();
+            } catch (Throwable t) {
+                throw new NightfallClientException("failure executing HTTP request: " + t.getMessage());
+            } finally {
+                attemptSpan.setAttribute("http.status_code", statusCode);
+                attemptSpan.end();
+                long now = System.nanoTime();
+                this.metrics.onAttempt(method, endpoint, attempt, statusCode, now - attemptNanos, requestBytes,
+                        responseBytes);
+                if (failure == null) {
+                    // the request either succeeded, or failed in a way that is never retried
+                    this.metrics.onRequest(method, endpoint, attempt, statusCode, now - startNanos);
+                }
+            }
+            if (failure == null) {
+                return result;
+            }
+
+            RetryPolicy policy = retryPolicyFor(request);
+            Duration delay = policy.getRetryDelay(failure);
+            if (delay == null) {
+                this.metrics.onRequest(method, endpoint, attempt, statusCode, System.nanoTime() - startNanos);
+                throw toException(failure, lastError, policy);
+            }
+
+            this.metrics.onRetryWait(method, endpoint, delay.toNanos());
+            NightfallTracer.Span backoffSpan = this.tracer.startSpan("nightfall.retryBackoff", span);
+            try {
+                Thread.sleep(delay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NightfallClientException("interrupted while waiting to retry request: " + path);
+            } finally {
+                backoffSpan.end();
+            }
+            call = call.clone(); // cannot re-use the same call object
+        }
+    }
+
+    /**
+     * Issues an HTTP request to the provided resource without blocking the calling thread. This method mirrors
+     * the semantics of <code>issueRequest</code>, except that retries are scheduled rather than slept on, and that
+     * errors are delivered by completing the returned future exceptionally.
+     *
+     * @param path the HTTP resource path
+     * @param method the HTTP verb
+     * @param body the HTTP request body
+     * @param headers HTTP headers
+     * @param responseClass the class to deserialize results into
+     * @param parent the span of the operation that issues the request, or null if the request is an operation
+     *               of its own
+     * @return a future that will contain an instance of the <code>responseClass</code>
+     */
+    private <E> CompletableFuture<E> issueRequestAsync(String path, String method, RequestBody body, Headers headers,
+                                                       Class<E> responseClass, NightfallTracer.Span parent) {
+        return issueRequestAsync(path, method, body, headers, responseReader(responseClass), parent);
+    }
+
+    /**
+     * Issues an HTTP request to the provided resource without blocking the calling thread, and reads a successful
+     * response using the provided <code>responseReader</code>.
+     */
+    private <E> CompletableFuture<E> issueRequestAsync(String path, String method, RequestBody body, Headers headers,
+                                                       ResponseReader<E> responseReader, NightfallTracer.Span parent) {
+        Request request = buildRequest(path, method, body, headers);
+        NightfallTracer.Span span = startRequestSpan(path, method, headers, parent);
+        CompletableFuture<E> result = new CompletableFuture<>();
+        AtomicReference<Call> currentCall = new AtomicReference<>(this.httpClient.newCall(request));
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled()) {
+                currentCall.get().cancel();
+            }
+            if (t != null) {
+                span.recordException(unwrapCompletionException(t));
+            }
+            span.end();
+        });
+
+        AsyncRequest<E> asyncRequest = new AsyncRequest<>(path, currentCall, System.nanoTime(), responseReader,
+                result, span);
+        enqueueRequest(asyncRequest, 1);
+        return result;
+    }
+
+    /**
+     * The state that an asynchronous request carries across its attempts.
+     */
+    private static final class AsyncRequest<E> {
+        private final String path;
+        private final String endpoint;
+        private final AtomicReference<Call> currentCall;
+        private final long startNanos;
+        private final ResponseReader<E> responseReader;
+        private final CompletableFuture<E> result;
+        private final NightfallTracer.Span span;
+
+        AsyncRequest(String path, AtomicReference<Call> currentCall, long startNanos,
+                     ResponseReader<E> responseReader, CompletableFuture<E> result, NightfallTracer.Span span) {
+            this.path = path;
+            this.endpoint = endpointTemplate(path);
+            this.currentCall = currentCall;
+            this.startNanos = startNanos;
+            this.responseReader = responseReader;
+            this.result = result;
+            this.span = span;
+        }
+    }
+
+    private <E> void enqueueRequest(AsyncRequest<E> req, int attempt) {
+        if (req.result.isDone()) {
+            return;
+        }
+
+        if (this.rateLimiter != null) {
+            Request request = req.currentCall.get().request();
+            long waitNanos = this.rateLimiter.reserve(request);
+            if (waitNanos > 0) {
+                this.metrics.onRateLimitWait(request.method(), req.endpoint, waitNanos);
+                NightfallTracer.Span waitSpan = this.tracer.startSpan("nightfall.rateLimitWait", req.span);
+                try {
+                    this.retryScheduler.schedule(() -> {
+                        waitSpan.end();
+                        dispatchRequest(req, attempt);
+                    }, waitNanos, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // the client was closed
+                    waitSpan.end();
+                    req.result.completeExceptionally(
+                            new NightfallClientException("client closed while waiting for rate limit: " + req.path));
+                }
+                return;
+            }
+        }
+        dispatchRequest(req, attempt);
+    }
+
+    private <E> void dispatchRequest(AsyncRequest<E> req, int attempt) {
+        if (req.result.isDone()) {
+            return;
+        }
+
+        String path = req.path;
+        String method = req.currentCall.get().request().method();
+        String endpoint = req.endpoint;
+        long requestBytes = requestBytes(req.currentCall.get().request());
+        CompletableFuture<E> result = req.result;
+        NightfallTracer.Span attemptSpan = startAttemptSpan(attempt, req.span);
+        long attemptNanos = System.nanoTime();
+        req.currentCall.get().enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                attemptSpan.recordException(e);
+                if (call.isCanceled()) {
+                    attemptSpan.end();
+                    result.completeExceptionally(new NightfallClientException("request cancelled: " + path));
+                    return;
+                }
+                recordAttempt(0, -1);
+                RetryContext failure = new RetryContext(path, attempt, elapsedSince(req.startNanos), 0, e, null);
+                retryOrFail(failure, null);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                long responseBytes = response.body().contentLength();
+                boolean recorded = false;
+                try {
+                    if (rateLimiter != null) {
+                        rateLimiter.onResponse(response);
+                    }
+                    if (!response.isSuccessful()) {
+                        NightfallErrorResponse error = readErrorResponse(response);
+                        RetryContext failure = new RetryContext(path, attempt, elapsedSince(req.startNanos),
+                                response.code(), null, parseRetryAfter(response));
+                        recorded = true;
+                        recordAttempt(response.code(), responseBytes);
+                        retryOrFail(failure, error);
+                        return;
+                    }
+
+                    final E value = req.responseReader.read(response.body());
+                    recorded = true;
+                    recordAttempt(response.code(), responseBytes);
+                    metrics.onRequest(method, endpoint, attempt, response.code(), System.nanoTime() - req.startNanos);
+                    result.complete(value);
+                } catch (IOException e) {
+                    result.completeExceptionally(
+                            new NightfallClientException("issuing HTTP request: " + e.getMessage()));
+                } catch (BaseNightfallException e) {
+                    result.completeExceptionally(e);
+                } catch (HandlerException e) {
+                    result.completeExceptionally(e.getCause());
+                } catch (Throwable t) {
+                    result.completeExceptionally(
+                            new NightfallClientException("failure executing HTTP request: " + t.getMessage()));
+                } finally {
+                    response.close();
+                    if (!recorded) {
+                        // the response could not be read, which is never retried
+                        recordAttempt(response.code(), responseBytes);
+                        metrics.onRequest(method, endpoint, attempt, response.code(),
+                                System.nanoTime() - req.startNanos);
+                    }
+                }
+            }
+
+            private void recordAttempt(int statusCode, long responseBytes) {
+                attemptSpan.setAttribute("http.status_code", statusCode);
+                attemptSpan.end();
+                metrics.onAttempt(method, endpoint, attempt, statusCode, System.nanoTime() - attemptNanos,
+                        requestBytes, responseBytes);
+            }
+
+            private void retryOrFail(RetryContext failure, NightfallErrorResponse error) {
+                RetryPolicy policy = retryPolicyFor(req.currentCall.get().request());
+                Duration delay = policy.getRetryDelay(failure);
+                if (delay == null) {
+                    metrics.onRequest(method, endpoint, attempt, failure.getStatusCode(),
+                            System.nanoTime() - req.startNanos);
+                    result.completeExceptionally(toException(failure, error, policy));
+                    return;
+                }
+
+                metrics.onRetryWait(method, endpoint, delay.toNanos());
+                NightfallTracer.Span backoffSpan = tracer.startSpan("nightfall.retryBackoff", req.span);
+                req.currentCall.set(req.currentCall.get().clone()); // cannot re-use the same call object
+                try {
+                    retryScheduler.schedule(() -> {
+                        backoffSpan.end();
+                        enqueueRequest(req, attempt + 1);
+                    }, delay.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // the client was closed, so the request can no longer be retried
+                    backoffSpan.end();
+                    metrics.onRequest(method, endpoint, attempt, failure.getStatusCode(),
+                            System.nanoTime() - req.startNanos);
+                    result.completeExceptionally(
+                            new NightfallClientException("client closed while waiting to retry request: " + path));
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts the span of a single request, named after the client operation that the request performs.
+     */
+    private NightfallTracer.Span startRequestSpan(
+            String path, String method, Headers headers, NightfallTracer.Span parent) {
+        NightfallTracer.Span span = this.tracer.startSpan(operationName(path), parent);
+        if (span != NoopTracer.INSTANCE) {
+            span.setAttribute("http.method", method);
+            span.setAttribute("nightfall.endpoint", endpointTemplate(path));
+            String offset = headers != null ? headers.get("X-Upload-Offset") : null;
+            if (offset != null) {
+                span.setAttribute("nightfall.upload.offset", Long.parseLong(offset));
+            }
+        }
+        return span;
+    }
+
+    private NightfallTracer.Span startAttemptSpan(int attempt, NightfallTracer.Span parent) {
+        NightfallTracer.Span span = this.tracer.startSpan("nightfall.attempt", parent);
+        span.setAttribute("nightfall.attempt", attempt);
+        return span;
+    }
+
+    private static String operationName(String path) {
+        switch (endpointTemplate(path)) {
+            case "/v3/scan":
+                return "nightfall.scanText";
+            case "/v3/upload":
+                return "nightfall.initializeFileUpload";
+            case "/v3/upload/{id}/finish":
+                return "nightfall.completeFileUpload";
+            case "/v3/upload/{id}/scan":
+                return "nightfall.scanUploadedFile";
+            default:
+                return "nightfall.uploadFileChunk";
+        }
+    }
+
+    private static <E> ResponseReader<E> responseReader(Class<E> responseClass) {
+        return body -> {
+            if (Void.class.equals(responseClass)) {
+                return null;
+            }
+            return objectMapper.readValue(body.byteStream(), responseClass);
+        };
+    }
+
+    /**
+     * Converts the body of a successful response into the result of a request.
+     */
+    private interface ResponseReader<E> {
+        E read(ResponseBody body) throws IOException;
+    }
+
+    /**
+     * Chunk uploads are idempotent, since the API identifies each chunk by its offset, so they are retried under
+     * their own policy; one-shot request bodies cannot be sent twice, so they are never retried; all other
+     * requests follow the client-wide policy.
+     */
+    private RetryPolicy retryPolicyFor(Request request) {
+        if (request.body() != null && request.body().isOneShot()) {
+            return RetryPolicy.noRetries();
+        } else if ("PATCH".equals(request.method()) && request.url().encodedPath().contains("/v3/upload/")) {
+            return this.chunkRetryPolicy;
+        }
+        return this.retryPolicy;
+    }
+
+    private void awaitRateLimit(Request request, String endpoint, NightfallTracer.Span span) {
+        if (this.rateLimiter == null) {
+            return;
+        }
+
+        long waitNanos = this.rateLimiter.reserve(request);
+        if (waitNanos > 0) {
+            this.metrics.onRateLimitWait(request.method(), endpoint, waitNanos);
+            NightfallTracer.Span waitSpan = this.tracer.startSpan("nightfall.rateLimitWait", span);
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NightfallClientException("interrupted while waiting for rate limit: " + request.url());
+            } finally {
+                waitSpan.end();
+            }
+        }
     }
 
     /**
-     * Triggers a scan of the file identified by the provided <code>fileID</code>. As the underlying file might be
-     * arbitrarily large, this scan will be conducted asynchronously. Results from the scan will be delivered to the
-     * webhook URL provided in the <code>request</code> payload.
-     *
-     * @param request contains metadata identifying which file to scan, as well as the configuration that
-     *                describes which detectors to use when scanning.
-     * @return an acknowledgment that the asynchronous scan has been initiated.
-     * @throws NightfallAPIException thrown if a non-2xx status code is returned by the API.
-     * @throws NightfallClientException thrown if a I/O error occurs while processing the request
-     * @throws NightfallRequestTimeoutException thrown if the request is aborted because read/write timeout is exceeded
+     * Maps a request path onto the endpoint it addresses, replacing identifiers with placeholders, so that
+     * metrics are not broken down by individual file uploads.
      */
-    private ScanFileResponse scanUploadedFile(ScanFileRequest request, UUID fileID) {
-        String path = "/v3/upload/" + fileID.toString() + "/scan";
-        byte[] jsonBody;
+    static String endpointTemplate(String path) {
+        if (!path.startsWith("/v3/upload/")) {
+            return path;
+        } else if (path.endsWith("/finish")) {
+            return "/v3/upload/{id}/finish";
+        } else if (path.endsWith("/scan")) {
+            return "/v3/upload/{id}/scan";
+        }
+        return "/v3/upload/{id}";
+    }
+
+    private static long requestBytes(Request request) {
+        if (request.body() == null) {
+            return 0;
+        }
         try {
-            jsonBody = objectMapper.writeValueAsBytes(request);
-        } catch (JsonProcessingException e) {
-            throw new NightfallClientException("processing scan file request: " + e.getMessage());
+            return request.body().contentLength();
+        } catch (IOException e) {
+            return -1;
         }
+    }
 
-        MediaType json = MediaType.parse("application/json");
-        return this.issueRequest(path, "POST", json, jsonBody, null, ScanFileResponse.class);
+    private static BaseNightfallException toException(RetryContext failure, NightfallErrorResponse error,
+                                                      RetryPolicy policy) {
+        if (failure.getStatusCode() == 429 && policy.isAttemptLimitReached(failure)) {
+            String message = "exceeded max retry count on request: " + failure.getPath();
+            return new NightfallAPIException(message, error, 429);
+        } else if (failure.getStatusCode() > 0) {
+            return new NightfallAPIException("unsuccessful response", error, failure.getStatusCode());
+        } else if (failure.isTimeout()) {
+            return new NightfallRequestTimeoutException("request timed out");
+        }
+        return new NightfallClientException("issuing HTTP request: " + failure.getError().getMessage());
     }
 
     /**
-     * Issues an HTTP request to the provided resource. If the request is successful, the response body will be
-     * deserialized into an object based on the provided <code>responseClass</code>. If the response indicates a
-     * rate limiting error, the request will be retried after a short sleep.
+     * Parses the delay requested by the API from the <code>Retry-After</code> header, which may be given either
+     * in seconds or as an HTTP date, falling back on the <code>X-Rate-Limit-Reset</code> header.
      *
-     * @param path the HTTP resource path
-     * @param method the HTTP verb
-     * @param body the HTTP request body
-     * @param headers HTTP headers
-     * @param responseClass the class to deserialize results into
-     * @return an instance of the <code>responseClass</code>
-     * @throws NightfallClientException thrown if an unexpected error occurs while processing the request
-     * @throws NightfallAPIException thrown if the API returns a 4xx or 5xx error code
-     * @throws NightfallRequestTimeoutException thrown if the request is aborted because read/write timeout is exceeded
+     * @param response the unsuccessful response
+     * @return the requested delay, or null if none could be parsed
      */
-    private <E> E issueRequest(
-            String path, String method, MediaType mediaType, byte[] body, Headers headers, Class<E> responseClass) {
+    static Duration parseRetryAfter(Response response) {
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter != null) {
+            try {
+                return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException e) {
+                try {
+                    ZonedDateTime date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    return Duration.between(Instant.now(), date.toInstant());
+                } catch (DateTimeParseException ee) {
+                    // unrecognized format, fall through
+                }
+            }
+        }
+
+        String reset = response.header("X-Rate-Limit-Reset");
+        if (reset != null) {
+            try {
+                long value = Long.parseLong(reset.trim());
+                // tolerate both a Unix timestamp and a number of seconds
+                if (value > EPOCH_SECONDS_THRESHOLD) {
+                    return Duration.between(Instant.now(), Instant.ofEpochSecond(value));
+                }
+                return Duration.ofSeconds(value);
+            } catch (NumberFormatException e) {
+                // unrecognized format, ignore
+            }
+        }
+        return null;
+    }
+
+    private static Duration elapsedSince(long startNanos) {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    private Request buildRequest(String path, String method, RequestBody body, Headers headers) {
         String url = this.apiHost + path;
         Request.Builder builder = new Request.Builder().url(url);
 
@@ -380,78 +2009,86 @@ public class NightfallClient implements Closeable {
 
         builder.addHeader("Authorization", "Bearer " + this.apiKey);
 
-        RequestBody reqBody = null;
-        if (body != null && body.length > 0) {
-            reqBody = RequestBody.create(body, mediaType);
-        } else if (!method.equals("GET") && !method.equals("HEAD")) {
+        RequestBody reqBody = body;
+        if (reqBody == null && !method.equals("GET") && !method.equals("HEAD")) {
             reqBody = RequestBody.create(new byte[0]);
+        } else if (reqBody != null && this.requestCompressionThreshold >= 0 && isScanRequest(path, method)) {
+            RequestBody compressed = gzipRequestBody(path, method, reqBody);
+            if (compressed != reqBody) {
+                builder.addHeader("Content-Encoding", "gzip");
+                reqBody = compressed;
+            }
         }
 
         builder.method(method, reqBody);
+        return builder.build();
+    }
 
-        Request request = builder.build();
-        Call call = this.httpClient.newCall(request);
-
-        NightfallErrorResponse lastError = null;
-        int errorCode = 0;
-        for (int attempt = 0; attempt < this.retryCount; attempt++) {
-            try (Response response = call.execute()) {
-                if (!response.isSuccessful()) {
-                    try {
-                        lastError = objectMapper.readValue(response.body().bytes(), NightfallErrorResponse.class);
-                    } catch (Throwable t) {
-                        // best effort to get more info, swallow failure
-                    }
-
-                    if (response.code() == 429 && attempt < this.retryCount - 1) {
-                        Thread.sleep(1000);
-                        call = call.clone(); // cannot re-use the same call object
-                        continue;
-                    }
-
-                    // cannot directly throw exception here because of Throwable catch branch; need to break
-                    errorCode = response.code();
-                    break;
-                }
+    /**
+     * Whether a request asks the API to scan data, i.e. carries a JSON body that is worth compressing. File chunks
+     * are uploaded as they are: they are often compressed already, and the upload endpoint expects their raw bytes.
+     */
+    private static boolean isScanRequest(String path, String method) {
+        String endpoint = endpointTemplate(path);
+        return method.equals("POST") && (endpoint.equals("/v3/scan") || endpoint.equals("/v3/upload/{id}/scan"));
+    }
 
-                if (Void.class.equals(responseClass)) {
-                    return null;
-                }
-                return objectMapper.readValue(response.body().bytes(), responseClass);
-            } catch (IOException e) {
-                // If OkHTTP times out, allow retries
-                if (e.getMessage().equalsIgnoreCase("timeout") || e.getMessage().equalsIgnoreCase("read timed out")) {
-                    if (attempt >= this.retryCount - 1) {
-                        throw new NightfallRequestTimeoutException("request timed out");
-                    }
+    /**
+     * Compresses the provided request body if it is at least as large as the configured threshold. Bodies of
+     * unknown length, which are streamed as they are produced, are never compressed.
+     *
+     * @return a compressed copy of the body, or the body itself if it is not worth compressing
+     */
+    private RequestBody gzipRequestBody(String path, String method, RequestBody body) {
+        long contentLength;
+        try {
+            contentLength = body.contentLength();
+        } catch (IOException e) {
+            return body;
+        }
+        if (contentLength < 0 || contentLength < this.requestCompressionThreshold || body.isOneShot()) {
+            return body;
+        }
 
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException ee) {
-                        // swallow
-                    }
-                    call = call.clone(); // cannot re-use the same call object
-                    continue;
-                }
-                throw new NightfallClientException("issuing HTTP request: " + e.getMessage());
-            } catch (Throwable t) {
-                throw new NightfallClientException("failure executing HTTP request: " + t.getMessage());
-            }
+        Buffer compressed = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(compressed))) {
+            body.writeTo(sink);
+        } catch (IOException e) {
+            // the body will fail to be written again when the request is issued, and report the error then
+            return body;
+        }
+        this.metrics.onRequestCompression(method, endpointTemplate(path), contentLength, compressed.size());
+        if (compressed.size() >= contentLength) {
+            return body;
         }
+        return RequestBody.create(compressed.readByteString(), body.contentType());
+    }
 
-        if (errorCode > 0) {
-            throw new NightfallAPIException("unsuccessful response", lastError, errorCode);
+    private static NightfallErrorResponse readErrorResponse(Response response) {
+        try {
+            return objectMapper.readValue(response.body().bytes(), NightfallErrorResponse.class);
+        } catch (Throwable t) {
+            // best effort to get more info, swallow failure
+            return null;
         }
+    }
 
-        String message = "exceeded max retry count on request: " + path;
-        throw new NightfallAPIException(message, lastError, 429);
+    private static Throwable unwrapCompletionException(Throwable t) {
+        if (t instanceof CompletionException && t.getCause() != null) {
+            return t.getCause();
+        }
+        return t;
     }
 
     /**
      * A builder class that configures, validates, then creates instances of a Nightfall Client.
      */
     public static class Builder {
+        private static final int MAX_PLATFORM_THREAD_CONCURRENCY = 100;
+        private static final int MAX_VIRTUAL_THREAD_CONCURRENCY = 10000;
+
         private String apiKey;
+        private String apiHost = API_HOST;
         private int fileUploadConcurrency = 1;
 
         private Duration connectionTimeout = Duration.ofSeconds(10);
@@ -460,6 +2097,24 @@ public class NightfallClient implements Closeable {
         private int maxIdleConnections = 100;
         private Duration keepAliveDuration = Duration.ofSeconds(30);
         private List<Interceptor> interceptors = new ArrayList<Interceptor>();
+        private RetryPolicy retryPolicy = RetryPolicy.defaultPolicy();
+        private RetryPolicy chunkRetryPolicy = new ExponentialBackoffRetryPolicy.Builder().build();
+        private RateLimiter rateLimiter;
+        private boolean directChunkBuffers;
+        private UploadCheckpointStore uploadCheckpointStore;
+        private ScanResultCache scanResultCache;
+        private boolean inFlightDeduplication;
+        private boolean policyUUIDDeduplication;
+        private NightfallMetrics metrics;
+        private NightfallTracer tracer;
+        private boolean virtualThreads;
+        private int maxRequests;
+        private int maxRequestsPerHost;
+        private List<Protocol> protocols;
+        private int prewarmedConnections;
+        private boolean warmUp;
+        private boolean requestCompression;
+        private int requestCompressionThreshold = 1024;
 
         /**
          * Builds and returns the client with all default values. The API key is loaded from the environment variable
@@ -480,6 +2135,26 @@ public class NightfallClient implements Closeable {
             return new NightfallClient(API_HOST, readAPIKeyFromEnvironment(), 1, httpClient);
         }
 
+        /**
+         * Returns a builder preconfigured for clients that keep many requests in flight, such as services that
+         * scan many files or large batches of text in parallel: it allows 32 concurrent chunk uploads, and up to
+         * 256 concurrent asynchronous requests in total, of which at most 64 go to the same host (the Nightfall
+         * API being a single host, 64 is the effective limit). It also keeps up to 64 idle connections alive for 2
+         * minutes, and opens 8 connections as soon as the client is built. Any of these values may be overridden
+         * before building the client.
+         *
+         * @return a builder for a high-throughput client
+         */
+        public static Builder highThroughput() {
+            return new Builder()
+                    .withFileUploadConcurrency(32)
+                    .withMaxRequests(256)
+                    .withMaxRequestsPerHost(64)
+                    .withMaxIdleConnections(64)
+                    .withKeepAliveDuration(Duration.ofSeconds(120))
+                    .withPrewarmedConnections(8);
+        }
+
         /**
          * Sets the API key for the Nightfall Client.
          *
@@ -491,19 +2166,39 @@ public class NightfallClient implements Closeable {
             return this;
         }
 
+        /**
+         * Sets the base URL of the Nightfall API, e.g. to point the client at a local stand-in for the API during
+         * testing. Defaults to <code>https://api.nightfall.ai</code> if unset.
+         *
+         * @param apiHost an HTTP or HTTPS URL without a path, such as <code>http://localhost:8080</code>
+         * @return the builder
+         * @throws IllegalArgumentException if the argument is not an HTTP or HTTPS URL
+         */
+        public Builder withAPIHost(String apiHost) {
+            HttpUrl url = apiHost == null ? null : HttpUrl.parse(apiHost);
+            if (url == null) {
+                throw new IllegalArgumentException("apiHost must be an HTTP or HTTPS URL");
+            }
+            String root = url.resolve("/").toString();
+            this.apiHost = root.substring(0, root.length() - 1); // request paths start with a slash
+            return this;
+        }
+
         /**
          * Sets the concurrency for file upload operations. This field represents the number of HTTP requests that
          * may execute in parallel when uploading file bytes. Be cognizant of your HTTP connection pool settings
          * when deciding on a value in order to optimize your upload bandwidth.
-         * Valid values are in the range [1, 100], inclusive. Defaults to 1 if unset.
+         * Valid values are in the range [1, 100], inclusive, or [1, 10000] if the client uses virtual threads
+         * (see {@link #withVirtualThreads(boolean)}). Defaults to 1 if unset.
          *
-         * @param concurrency an integer in the range [1, 100]
+         * @param concurrency an integer in the range [1, 100], or [1, 10000] if the client uses virtual threads
          * @return the builder
          * @throws IllegalArgumentException if the argument falls outside the allowed range
          */
         public Builder withFileUploadConcurrency(int concurrency) {
-            if (concurrency <= 0 || concurrency > 100) {
-                throw new IllegalArgumentException("fileUploadConcurrency must be in range [1,100]");
+            if (concurrency <= 0 || concurrency > MAX_VIRTUAL_THREAD_CONCURRENCY) {
+                throw new IllegalArgumentException(
+                        "fileUploadConcurrency must be in range [1," + MAX_VIRTUAL_THREAD_CONCURRENCY + "]");
             }
             this.fileUploadConcurrency = concurrency;
             return this;
@@ -590,6 +2285,138 @@ public class NightfallClient implements Closeable {
             return this;
         }
 
+        /**
+         * Sets the maximum number of asynchronous requests, such as those issued by
+         * {@link NightfallClient#scanTextAsync(ScanTextRequest)}, that the underlying HTTP client executes at the
+         * same time; further requests are queued. If unset, defaults to the larger of 64 and
+         * <code>fileUploadConcurrency</code>.
+         *
+         * @param maxRequests an integer in the range [1, 10000]
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withMaxRequests(int maxRequests) {
+            if (maxRequests < 1 || maxRequests > MAX_VIRTUAL_THREAD_CONCURRENCY) {
+                throw new IllegalArgumentException(
+                        "maxRequests must be in the range [1, " + MAX_VIRTUAL_THREAD_CONCURRENCY + "]");
+            }
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of asynchronous requests that the underlying HTTP client executes at the same
+         * time against the API host. Since the client only talks to one host, this is usually the effective limit
+         * on concurrency, and it must not exceed the value of <code>maxRequests</code>. If unset, defaults to the
+         * larger of 5 and <code>fileUploadConcurrency</code>, or to <code>maxRequests</code> if the client uses
+         * virtual threads.
+         *
+         * @param maxRequestsPerHost an integer in the range [1, 10000]
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withMaxRequestsPerHost(int maxRequestsPerHost) {
+            if (maxRequestsPerHost < 1 || maxRequestsPerHost > MAX_VIRTUAL_THREAD_CONCURRENCY) {
+                throw new IllegalArgumentException(
+                        "maxRequestsPerHost must be in the range [1, " + MAX_VIRTUAL_THREAD_CONCURRENCY + "]");
+            }
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Sets the HTTP protocols the underlying HTTP client may use, in order of preference. By default, HTTP/2 is
+         * negotiated with HTTPS hosts that support it, so that concurrent requests are multiplexed over a single
+         * connection, and HTTP/1.1 is used otherwise. To use HTTP/2 with a host that only accepts cleartext
+         * connections, such as a local stand-in for the API, set {@link Protocol#H2_PRIOR_KNOWLEDGE} as the only
+         * protocol.
+         *
+         * @param protocols the protocols to use, which must include {@link Protocol#HTTP_1_1} unless the only
+         *                  protocol is {@link Protocol#H2_PRIOR_KNOWLEDGE}
+         * @return the builder
+         * @throws IllegalArgumentException if the list of protocols is empty or is not a supported combination
+         */
+        public Builder withProtocols(List<Protocol> protocols) {
+            if (protocols == null || protocols.isEmpty() || protocols.contains(null)
+                    || protocols.contains(Protocol.HTTP_1_0)) {
+                throw new IllegalArgumentException("protocols must be a non-empty list of HTTP/1.1 or HTTP/2");
+            } else if (protocols.contains(Protocol.H2_PRIOR_KNOWLEDGE) && protocols.size() > 1) {
+                throw new IllegalArgumentException("H2_PRIOR_KNOWLEDGE cannot be combined with other protocols");
+            } else if (!protocols.contains(Protocol.H2_PRIOR_KNOWLEDGE) && !protocols.contains(Protocol.HTTP_1_1)) {
+                throw new IllegalArgumentException("protocols must include HTTP_1_1");
+            }
+            this.protocols = new ArrayList<>(protocols);
+            return this;
+        }
+
+        /**
+         * Sets the number of connections to the API host that the client opens in the background as soon as it is
+         * built, or while it is built if {@link #withWarmUp(boolean)} is set, so that the first requests do not pay
+         * for DNS resolution and TCP and TLS handshakes. Opening
+         * connections is best effort: failures are ignored, and the connections are only kept if they fit in
+         * the connection pool. Connections that are multiplexed with HTTP/2 are shared, so a single connection is
+         * enough in that case. If unset, defaults to 0.
+         *
+         * @param prewarmedConnections an integer in the range [0, 500]
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withPrewarmedConnections(int prewarmedConnections) {
+            if (prewarmedConnections < 0 || prewarmedConnections > 500) {
+                throw new IllegalArgumentException("prewarmedConnections must be in the range [0, 500]");
+            }
+            this.prewarmedConnections = prewarmedConnections;
+            return this;
+        }
+
+        /**
+         * Sets whether {@link #build()} should call {@link NightfallClient#warmUp()} before returning the client, so
+         * that the first requests are not slowed down by JSON serializer construction or connection setup. The
+         * number of connections to open is set by {@link #withPrewarmedConnections(int)}; unlike connections
+         * opened in the background, building the client waits until they are established. Defaults to false if
+         * unset.
+         *
+         * @param warmUp whether to warm up the client before returning it
+         * @return the builder
+         */
+        public Builder withWarmUp(boolean warmUp) {
+            this.warmUp = warmUp;
+            return this;
+        }
+
+        /**
+         * Sets whether the JSON bodies of scan requests, i.e. of text scans and of requests to scan an uploaded
+         * file, should be compressed with gzip before they are sent, to reduce the bandwidth the client uses. The
+         * chunks of uploaded files are always sent uncompressed. Only bodies of at least
+         * <code>requestCompressionThreshold</code> bytes are compressed, and a compressed body is only sent if it
+         * is smaller than the original. The achieved compression ratio is reported to
+         * {@link NightfallMetrics#onRequestCompression(String, String, long, long)}. Defaults to false if unset.
+         *
+         * @param requestCompression whether to compress request bodies
+         * @return the builder
+         */
+        public Builder withRequestCompression(boolean requestCompression) {
+            this.requestCompression = requestCompression;
+            return this;
+        }
+
+        /**
+         * Sets the size from which request bodies are compressed, if request compression is enabled by
+         * {@link #withRequestCompression(boolean)}. Compressing small bodies costs more time than it saves. If
+         * unset, defaults to 1024 bytes.
+         *
+         * @param requestCompressionThreshold a non-negative number of bytes
+         * @return the builder
+         * @throws IllegalArgumentException if the argument is negative
+         */
+        public Builder withRequestCompressionThreshold(int requestCompressionThreshold) {
+            if (requestCompressionThreshold < 0) {
+                throw new IllegalArgumentException("requestCompressionThreshold must be non-negative");
+            }
+            this.requestCompressionThreshold = requestCompressionThreshold;
+            return this;
+        }
+
         /**
          * Adds an interceptor to the HTTP client used to preform requests.
          *
@@ -601,17 +2428,201 @@ public class NightfallClient implements Closeable {
             return this;
         }
 
+        /**
+         * Sets the policy that decides whether, and after how long, failed requests are retried. If unset,
+         * defaults to {@link RetryPolicy#defaultPolicy()}, which retries rate-limited and timed-out requests
+         * after a fixed delay of 1 second. Use {@link ExponentialBackoffRetryPolicy} to spread out retries across
+         * many clients.
+         *
+         * @param retryPolicy the retry policy
+         * @return the builder
+         * @throws IllegalArgumentException if the argument is null
+         */
+        public Builder withRetryPolicy(RetryPolicy retryPolicy) {
+            if (retryPolicy == null) {
+                throw new IllegalArgumentException("retryPolicy must be non-null");
+            }
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Sets the policy that decides whether, and after how long, a failed file chunk upload is retried. Chunk
+         * uploads are idempotent, so by default they are retried more eagerly than other requests: an
+         * {@link ExponentialBackoffRetryPolicy} with default settings retries server errors, connection errors,
+         * timeouts and rate-limited requests, so that a single flaky chunk does not fail the upload of an entire
+         * file. This policy is used instead of the one set by {@link #withRetryPolicy(RetryPolicy)} for chunk
+         * uploads only.
+         *
+         * @param chunkRetryPolicy the retry policy for file chunk uploads
+         * @return the builder
+         * @throws IllegalArgumentException if the argument is null
+         */
+        public Builder withChunkRetryPolicy(RetryPolicy chunkRetryPolicy) {
+            if (chunkRetryPolicy == null) {
+                throw new IllegalArgumentException("chunkRetryPolicy must be non-null");
+            }
+            this.chunkRetryPolicy = chunkRetryPolicy;
+            return this;
+        }
+
+        /**
+         * Sets a client-side rate limiter that paces text scan requests and file chunk uploads so that they stay
+         * within the API quota. If unset, requests are not rate limited by the client.
+         *
+         * @param rateLimiter the rate limiter, or null to disable client-side rate limiting
+         * @return the builder
+         */
+        public Builder withRateLimiter(RateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * Sets whether the buffers that hold file chunks read from an <code>InputStream</code> should be allocated
+         * outside of the Java heap. The client keeps at most <code>fileUploadConcurrency</code> chunk buffers, and
+         * reuses them across all file uploads. Defaults to false if unset.
+         *
+         * @param directChunkBuffers whether to allocate direct buffers for file chunks
+         * @return the builder
+         */
+        public Builder withDirectChunkBuffers(boolean directChunkBuffers) {
+            this.directChunkBuffers = directChunkBuffers;
+            return this;
+        }
+
+        /**
+         * Sets the store used to persist the progress of uploads of files on the local file system, so that an
+         * interrupted upload can be resumed by a later call to {@link NightfallClient#scanFile(ScanFileRequest,
+         * Path, Duration)} for the same file. If unset, or set to null, uploads are not resumable.
+         *
+         * @param uploadCheckpointStore the checkpoint store, or null
+         * @return the builder
+         */
+        public Builder withUploadCheckpointStore(UploadCheckpointStore uploadCheckpointStore) {
+            this.uploadCheckpointStore = uploadCheckpointStore;
+            return this;
+        }
+
+        /**
+         * Sets the cache in which the client keeps the results of scanning individual text payload items. When
+         * set, {@link NightfallClient#scanText(ScanTextRequest)} and
+         * {@link NightfallClient#scanTextAsync(ScanTextRequest)} only send the items that are not already cached
+         * for the same scan configuration, and return the cached findings and redacted text for the rest. Requests
+         * that report violations or configure alerts are never served from the cache, and neither are requests
+         * that reference their policies by UUID, unless {@link #withPolicyUUIDDeduplication(boolean)} is enabled.
+         * If unset, or set to null, results are not cached.
+         *
+         * @param scanResultCache the result cache, or null
+         * @return the builder
+         */
+        public Builder withScanResultCache(ScanResultCache scanResultCache) {
+            this.scanResultCache = scanResultCache;
+            return this;
+        }
+
+        /**
+         * Sets whether concurrent text scans should share the results of identical payload items. When enabled,
+         * {@link NightfallClient#scanText(ScanTextRequest)} and
+         * {@link NightfallClient#scanTextAsync(ScanTextRequest)} do not send an item that is byte-for-byte
+         * identical to an item that another call is currently scanning with the same configuration; they wait for
+         * that call's result instead, and fail if that call fails. Requests that report violations or configure
+         * alerts are never deduplicated, and neither are requests that reference their policies by UUID, unless
+         * {@link #withPolicyUUIDDeduplication(boolean)} is enabled. Defaults to false if unset.
+         *
+         * @param inFlightDeduplication whether to share the results of identical in-flight items
+         * @return the builder
+         */
+        public Builder withInFlightDeduplication(boolean inFlightDeduplication) {
+            this.inFlightDeduplication = inFlightDeduplication;
+            return this;
+        }
+
+        /**
+         * Sets whether text scans that reference their policies by UUID may be served from the result cache or
+         * deduplicated in flight. A policy stored on the server may have alerts configured, which the API only
+         * sends for the requests it actually receives; enable this only if the referenced policies have no
+         * alerts, or if missing alerts for repeated content is acceptable. Defaults to false if unset.
+         *
+         * @param policyUUIDDeduplication whether requests that reference policies by UUID may be deduplicated
+         * @return the builder
+         */
+        public Builder withPolicyUUIDDeduplication(boolean policyUUIDDeduplication) {
+            this.policyUUIDDeduplication = policyUUIDDeduplication;
+            return this;
+        }
+
+        /**
+         * Sets the listener that receives measurements of every request the client issues, such as per-endpoint
+         * latencies, attempt counts, status codes, request and response sizes, and the time spent waiting on
+         * retries, the rate limiter, and file upload workers. If unset, or set to null, measurements are
+         * discarded without being taken.
+         *
+         * @param metrics the metrics listener, or null
+         * @return the builder
+         */
+        public Builder withMetrics(NightfallMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Sets the tracer that creates spans for the operations the client performs, the HTTP requests they issue,
+         * and the time spent waiting on retries and the rate limiter. A file scan is traced as a single span that
+         * ties together the requests to initialize, upload, complete and scan the file. If unset, or set to null,
+         * nothing is traced.
+         *
+         * @param tracer the tracer, or null
+         * @return the builder
+         */
+        public Builder withTracer(NightfallTracer tracer) {
+            this.tracer = tracer;
+            return this;
+        }
+
+        /**
+         * Sets whether the client should run file chunk uploads, and the HTTP calls behind its asynchronous
+         * methods, on virtual threads rather than on pools of platform threads. Since virtual threads are cheap,
+         * this raises the upper bound of <code>fileUploadConcurrency</code> from 100 to 10000, and lets the HTTP
+         * client run as many asynchronous calls in parallel as there are upload workers. Virtual threads require
+         * Java 21 or later. Defaults to false if unset.
+         *
+         * @param virtualThreads whether to use virtual threads
+         * @return the builder
+         */
+        public Builder withVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
         /**
          * Builds the client using the configured values, falling back on defaults if any values
          * were not explicitly set.
          *
          * @return a Nightfall client
-         * @throws IllegalArgumentException if the API key was not set
+         * @throws IllegalArgumentException if the API key was not set, if the upload concurrency exceeds 100
+         *      without virtual threads, or if <code>maxRequestsPerHost</code> exceeds <code>maxRequests</code>
+         * @throws IllegalStateException if virtual threads were requested but are not supported by the JVM
          */
         public NightfallClient build() {
             if (this.apiKey == null || this.apiKey.equals("")) {
                 this.apiKey = readAPIKeyFromEnvironment();
             }
+            if (this.virtualThreads && !VirtualThreads.isSupported()) {
+                throw new IllegalStateException("virtual threads require Java 21 or later");
+            } else if (!this.virtualThreads && this.fileUploadConcurrency > MAX_PLATFORM_THREAD_CONCURRENCY) {
+                throw new IllegalArgumentException("fileUploadConcurrency must be in range [1,"
+                        + MAX_PLATFORM_THREAD_CONCURRENCY + "] unless the client uses virtual threads");
+            }
+
+            int maxRequests = this.maxRequests > 0 ? this.maxRequests : Math.max(64, this.fileUploadConcurrency);
+            int maxRequestsPerHost = this.maxRequestsPerHost;
+            if (maxRequestsPerHost == 0) {
+                maxRequestsPerHost = this.virtualThreads
+                        ? maxRequests : Math.min(maxRequests, Math.max(5, this.fileUploadConcurrency));
+            } else if (maxRequestsPerHost > maxRequests) {
+                throw new IllegalArgumentException("maxRequestsPerHost must not exceed maxRequests");
+            }
 
             ConnectionPool cxnPool = new ConnectionPool(this.maxIdleConnections,
                     this.keepAliveDuration.toMillis(), TimeUnit.MILLISECONDS);
@@ -623,9 +2634,23 @@ public class NightfallClient implements Closeable {
             for (Interceptor interceptor : this.interceptors) {
                 httpClientBuilder = httpClientBuilder.addInterceptor(interceptor);
             }
-            
+            if (this.protocols != null) {
+                httpClientBuilder = httpClientBuilder.protocols(this.protocols);
+            }
+            Dispatcher dispatcher = this.virtualThreads
+                    ? new Dispatcher(VirtualThreads.newExecutor()) : new Dispatcher();
+            dispatcher.setMaxRequests(maxRequests);
+            dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+            httpClientBuilder = httpClientBuilder.dispatcher(dispatcher);
+
             OkHttpClient httpClient = httpClientBuilder.build();
-            return new NightfallClient(API_HOST, this.apiKey, this.fileUploadConcurrency, httpClient);
+            NightfallClient client = new NightfallClient(this.apiHost, this, httpClient);
+            if (this.warmUp) {
+                client.warmUp();
+            } else if (this.prewarmedConnections > 0) {
+                client.prewarmConnections(this.prewarmedConnections);
+            }
+            return client;
         }
 
         private static String readAPIKeyFromEnvironment() {
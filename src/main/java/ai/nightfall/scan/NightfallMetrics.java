@@ -0,0 +1,93 @@
+package ai.nightfall.scan;
+
+/**
+ * Receives measurements of the requests that a {@link NightfallClient} issues to the Nightfall API, so that they
+ * can be recorded by a metrics library. Every method has an empty default implementation, so implementations only
+ * need to override the measurements they are interested in. Methods are invoked synchronously on the thread that
+ * issued or completed the request, so implementations must be thread-safe and should return quickly.
+ *
+ * <p>Requests are identified by their HTTP method and an endpoint template in which identifiers are replaced by
+ * placeholders, such as <code>/v3/upload/{id}/finish</code>, so that the number of distinct endpoints stays
+ * small. File chunk uploads are reported as <code>PATCH</code> requests to <code>/v3/upload/{id}</code>.
+ */
+public interface NightfallMetrics {
+
+    /**
+     * Called after every attempt to issue a request, whether or not a response was received.
+     *
+     * @param method the HTTP method
+     * @param endpoint the endpoint template
+     * @param attempt the number of attempts made so far, including this one; the first attempt is 1
+     * @param statusCode the HTTP status code returned by the API, or 0 if no response was received
+     * @param durationNanos the time from issuing the attempt until its response was read, or until it failed
+     * @param requestBytes the size of the request body, or -1 if unknown
+     * @param responseBytes the size of the response body, or -1 if unknown
+     */
+    default void onAttempt(String method, String endpoint, int attempt, int statusCode, long durationNanos,
+                           long requestBytes, long responseBytes) {
+    }
+
+    /**
+     * Called once a request has either succeeded or failed for good, after all of its attempts.
+     *
+     * @param method the HTTP method
+     * @param endpoint the endpoint template
+     * @param attempts the total number of attempts made
+     * @param statusCode the HTTP status code of the last response, or 0 if the last attempt received no response
+     * @param durationNanos the time from issuing the first attempt until the request succeeded or failed,
+     *                      including any time spent waiting between attempts
+     */
+    default void onRequest(String method, String endpoint, int attempts, int statusCode, long durationNanos) {
+    }
+
+    /**
+     * Called when a failed attempt is about to be retried.
+     *
+     * @param method the HTTP method
+     * @param endpoint the endpoint template
+     * @param delayNanos the time that will be spent waiting before the next attempt
+     */
+    default void onRetryWait(String method, String endpoint, long delayNanos) {
+    }
+
+    /**
+     * Called when the client-side rate limiter holds a request back.
+     *
+     * @param method the HTTP method
+     * @param endpoint the endpoint template
+     * @param delayNanos the time that will be spent waiting before the request is issued
+     */
+    default void onRateLimitWait(String method, String endpoint, long delayNanos) {
+    }
+
+    /**
+     * Called when the client compresses a request body, before the request is issued. The compressed body is only
+     * sent if it is smaller than the original, in which case the request sizes reported to
+     * {@link #onAttempt(String, String, int, int, long, long, long)} are those of the compressed body.
+     *
+     * @param method the HTTP method
+     * @param endpoint the endpoint template
+     * @param uncompressedBytes the size of the request body before compression
+     * @param compressedBytes the size of the request body after compression
+     */
+    default void onRequestCompression(String method, String endpoint, long uncompressedBytes, long compressedBytes) {
+    }
+
+    /**
+     * Called when a file chunk upload task starts running.
+     *
+     * @param waitNanos the time the task spent queued, waiting for an upload worker
+     */
+    default void onUploadQueueWait(long waitNanos) {
+    }
+
+    /**
+     * Get an implementation that discards all measurements. This is used by clients that are not configured
+     * with an explicit implementation.
+     *
+     * @return a no-op implementation
+     */
+    static NightfallMetrics noop() {
+        return new NightfallMetrics() {};
+    }
+}
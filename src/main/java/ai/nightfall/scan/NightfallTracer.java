@@ -0,0 +1,80 @@
+package ai.nightfall.scan;
+
+/**
+ * Creates spans that trace the requests a {@link NightfallClient} issues to the Nightfall API, so that they can be
+ * exported to a distributed tracing system. Every client operation is traced as a span, with a child span for each
+ * HTTP attempt, each backoff before a retry, and each wait imposed by the client-side rate limiter:
+ *
+ * <ul>
+ *     <li><code>nightfall.scanText</code>, for each text scan request</li>
+ *     <li><code>nightfall.scanFile</code>, for each file scan, with a child span for every request it issues:
+ *     <code>nightfall.initializeFileUpload</code>, <code>nightfall.uploadFileChunk</code> for each chunk,
+ *     <code>nightfall.completeFileUpload</code> and <code>nightfall.scanUploadedFile</code></li>
+ *     <li><code>nightfall.attempt</code>, <code>nightfall.retryBackoff</code> and
+ *     <code>nightfall.rateLimitWait</code>, as children of the above</li>
+ * </ul>
+ *
+ * <p>Since chunks are uploaded from worker threads, and asynchronous requests complete on the threads of the
+ * HTTP client, the client passes parent spans explicitly rather than relying on a thread-bound context. Spans
+ * may therefore be started and ended on different threads.
+ */
+public interface NightfallTracer {
+
+    /**
+     * Starts a new span.
+     *
+     * @param name the name of the span
+     * @param parent the parent of the span, or null if the span is the root of a client operation; in that case,
+     *               implementations should use the caller's current context, if any, as the parent
+     * @return the started span
+     */
+    Span startSpan(String name, Span parent);
+
+    /**
+     * Get an implementation that does not trace anything. This is used by clients that are not configured with an
+     * explicit implementation.
+     *
+     * @return a no-op implementation
+     */
+    static NightfallTracer noop() {
+        return NoopTracer.INSTANCE;
+    }
+
+    /**
+     * A unit of work started by a {@link NightfallTracer}. Attributes and exceptions may be recorded until the span
+     * is ended.
+     */
+    interface Span {
+
+        /**
+         * Sets an attribute of the span.
+         *
+         * @param key the attribute key
+         * @param value the attribute value
+         */
+        default void setAttribute(String key, String value) {
+        }
+
+        /**
+         * Sets an attribute of the span.
+         *
+         * @param key the attribute key
+         * @param value the attribute value
+         */
+        default void setAttribute(String key, long value) {
+        }
+
+        /**
+         * Records that the work traced by the span failed.
+         *
+         * @param t the cause of the failure
+         */
+        default void recordException(Throwable t) {
+        }
+
+        /**
+         * Ends the span. Implementations must tolerate this being called more than once.
+         */
+        void end();
+    }
+}
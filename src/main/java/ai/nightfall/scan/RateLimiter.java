@@ -0,0 +1,220 @@
+package ai.nightfall.scan;
+
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * A client-side rate limiter that keeps request throughput just under the API quota, rather than discovering the
+ * quota by being rejected with 429 responses. Text scan requests (<code>/v3/scan</code>) and file chunk uploads
+ * are limited independently, each by a requests-per-second bucket and, optionally, a bytes-per-second bucket.
+ * Other requests, such as those that initialize or complete a file upload, are not limited.
+ *
+ * <p>The configured rates are upper bounds: whenever the API rejects a request with a 429 status code, the rate
+ * for that kind of request is lowered, and it then recovers gradually as requests succeed. If the API indicates
+ * when the quota resets, via the <code>Retry-After</code> header or because no requests remain in the current
+ * window, requests of that kind are held back until then.
+ *
+ * <p>A single rate limiter may be shared by several clients that draw from the same quota.
+ */
+public class RateLimiter {
+    private final Limit scanLimit;
+    private final Limit uploadLimit;
+
+    private RateLimiter(Builder builder) {
+        this.scanLimit = new Limit(builder.scanRequestsPerSecond, builder.scanBytesPerSecond);
+        this.uploadLimit = new Limit(builder.uploadRequestsPerSecond, builder.uploadBytesPerSecond);
+    }
+
+    /**
+     * Reserves capacity for the provided request.
+     *
+     * @param request the request about to be issued
+     * @return the number of nanoseconds to wait before issuing the request
+     */
+    long reserve(Request request) {
+        Limit limit = limitFor(request);
+        if (limit == null) {
+            return 0;
+        }
+        return limit.reserve(contentLength(request.body()));
+    }
+
+    /**
+     * Adapts the rate for the kind of request that produced the provided response.
+     *
+     * @param response the response returned by the API
+     */
+    void onResponse(Response response) {
+        Limit limit = limitFor(response.request());
+        if (limit == null) {
+            return;
+        }
+
+        Duration retryAfter = NightfallClient.parseRetryAfter(response);
+        if (response.code() == 429) {
+            limit.throttle();
+        } else if (response.isSuccessful()) {
+            limit.recover();
+            if (!"0".equals(response.header("X-Rate-Limit-Remaining"))) {
+                retryAfter = null;
+            }
+        } else {
+            return;
+        }
+
+        if (retryAfter != null && !retryAfter.isNegative()) {
+            limit.pause(retryAfter.toNanos());
+        }
+    }
+
+    private Limit limitFor(Request request) {
+        String path = request.url().encodedPath();
+        if (path.endsWith("/v3/scan")) {
+            return this.scanLimit;
+        } else if ("PATCH".equals(request.method()) && path.contains("/v3/upload/")) {
+            return this.uploadLimit;
+        }
+        return null;
+    }
+
+    private static long contentLength(RequestBody body) {
+        if (body == null) {
+            return 0;
+        }
+        try {
+            return Math.max(body.contentLength(), 0);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * The request and byte buckets for a single kind of request; either bucket may be absent.
+     */
+    private static final class Limit {
+        private final TokenBucket requests;
+        private final TokenBucket bytes;
+
+        Limit(double requestsPerSecond, double bytesPerSecond) {
+            this.requests = requestsPerSecond > 0 ? new TokenBucket(requestsPerSecond) : null;
+            this.bytes = bytesPerSecond > 0 ? new TokenBucket(bytesPerSecond) : null;
+        }
+
+        long reserve(long contentLength) {
+            long waitNanos = 0;
+            if (this.requests != null) {
+                waitNanos = this.requests.reserve(1);
+            }
+            if (this.bytes != null) {
+                waitNanos = Math.max(waitNanos, this.bytes.reserve(contentLength));
+            }
+            return waitNanos;
+        }
+
+        void throttle() {
+            if (this.requests != null) {
+                this.requests.throttle();
+            }
+            if (this.bytes != null) {
+                this.bytes.throttle();
+            }
+        }
+
+        void recover() {
+            if (this.requests != null) {
+                this.requests.recover();
+            }
+            if (this.bytes != null) {
+                this.bytes.recover();
+            }
+        }
+
+        void pause(long delayNanos) {
+            if (this.requests != null) {
+                this.requests.pause(delayNanos);
+            }
+            if (this.bytes != null) {
+                this.bytes.pause(delayNanos);
+            }
+        }
+    }
+
+    /**
+     * A builder class that configures, validates, then creates instances of a rate limiter. Any limit that is not
+     * set is not enforced.
+     */
+    public static class Builder {
+        private double scanRequestsPerSecond;
+        private double scanBytesPerSecond;
+        private double uploadRequestsPerSecond;
+        private double uploadBytesPerSecond;
+
+        /**
+         * Sets the maximum rate at which text scan requests may be issued.
+         *
+         * @param requestsPerSecond a positive rate
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withScanRequestsPerSecond(double requestsPerSecond) {
+            this.scanRequestsPerSecond = requirePositive(requestsPerSecond, "scanRequestsPerSecond");
+            return this;
+        }
+
+        /**
+         * Sets the maximum rate at which text scan request bodies may be sent, in bytes per second.
+         *
+         * @param bytesPerSecond a positive rate
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withScanBytesPerSecond(double bytesPerSecond) {
+            this.scanBytesPerSecond = requirePositive(bytesPerSecond, "scanBytesPerSecond");
+            return this;
+        }
+
+        /**
+         * Sets the maximum rate at which file chunk upload requests may be issued.
+         *
+         * @param requestsPerSecond a positive rate
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withUploadRequestsPerSecond(double requestsPerSecond) {
+            this.uploadRequestsPerSecond = requirePositive(requestsPerSecond, "uploadRequestsPerSecond");
+            return this;
+        }
+
+        /**
+         * Sets the maximum rate at which file chunks may be uploaded, in bytes per second.
+         *
+         * @param bytesPerSecond a positive rate
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withUploadBytesPerSecond(double bytesPerSecond) {
+            this.uploadBytesPerSecond = requirePositive(bytesPerSecond, "uploadBytesPerSecond");
+            return this;
+        }
+
+        /**
+         * Builds the rate limiter using the configured values.
+         *
+         * @return a rate limiter
+         */
+        public RateLimiter build() {
+            return new RateLimiter(this);
+        }
+
+        private static double requirePositive(double value, String name) {
+            if (!(value > 0) || Double.isInfinite(value)) {
+                throw new IllegalArgumentException(name + " must be a positive, finite rate");
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ai.nightfall.scan;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+
+/**
+ * Describes a failed attempt to issue a request to the Nightfall API, for consumption by a {@link RetryPolicy}.
+ * An attempt fails either because the API returned a non-2xx status code, or because an I/O error occurred
+ * before a response could be read.
+ */
+public class RetryContext {
+    private final String path;
+    private final int attempt;
+    private final Duration elapsed;
+    private final int statusCode;
+    private final IOException error;
+    private final Duration retryAfter;
+
+    /**
+     * Create a new instance of a retry context.
+     *
+     * @param path the HTTP resource path of the request
+     * @param attempt the number of attempts made so far, including the one that just failed
+     * @param elapsed the time elapsed since the first attempt was issued
+     * @param statusCode the HTTP status code returned by the API, or 0 if no response was received
+     * @param error the I/O error that caused the attempt to fail, or null if a response was received
+     * @param retryAfter the delay requested by the API before retrying, or null if the API did not request one
+     */
+    public RetryContext(String path, int attempt, Duration elapsed, int statusCode, IOException error,
+                        Duration retryAfter) {
+        this.path = path;
+        this.attempt = attempt;
+        this.elapsed = elapsed;
+        this.statusCode = statusCode;
+        this.error = error;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Get the request path.
+     *
+     * @return the HTTP resource path of the request
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Get the attempt number.
+     *
+     * @return the number of attempts made so far, including the one that just failed; the first attempt is 1
+     */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    /**
+     * Get the elapsed time.
+     *
+     * @return the time elapsed since the first attempt was issued
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Get the HTTP status code.
+     *
+     * @return the HTTP status code returned by the API, or 0 if no response was received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Get the I/O error.
+     *
+     * @return the I/O error that caused the attempt to fail, or null if a response was received
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Get the delay requested by the API, as parsed from the <code>Retry-After</code> or rate limit reset
+     * response headers.
+     *
+     * @return the requested delay, or null if the API did not request one
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Whether the attempt failed because the HTTP client timed out while reading or writing, or because the call
+     * as a whole timed out. Timing out while connecting is reported as a connection error instead.
+     *
+     * @return true if the attempt timed out
+     */
+    public boolean isTimeout() {
+        if (error == null) {
+            return false;
+        }
+        String message = error.getMessage();
+        return message != null && (message.equalsIgnoreCase("timeout") || message.equalsIgnoreCase("read timed out"));
+    }
+
+    /**
+     * Whether the attempt failed because the connection could not be established in time, or was reset or closed
+     * by the remote end before a response was received.
+     *
+     * @return true if the attempt failed due to a transient connection error
+     */
+    public boolean isConnectionError() {
+        if (error == null || isTimeout()) {
+            return false;
+        }
+        String message = error.getMessage();
+        return error instanceof SocketException || error instanceof SocketTimeoutException
+                || error instanceof EOFException
+                || (message != null && message.startsWith("unexpected end of stream"));
+    }
+
+    @Override
+    public String toString() {
+        return "RetryContext{"
+                + "path='" + path + '\''
+                + ", attempt=" + attempt
+                + ", elapsed=" + elapsed
+                + ", statusCode=" + statusCode
+                + ", error=" + error
+                + ", retryAfter=" + retryAfter
+                + '}';
+    }
+}
@@ -0,0 +1,59 @@
+package ai.nightfall.scan;
+
+import java.time.Duration;
+
+/**
+ * Decides whether, and after how long, a failed request to the Nightfall API should be re-issued. A policy is
+ * consulted once after every failed attempt; implementations must be thread-safe, since a single policy is shared
+ * by all requests issued by a client.
+ */
+public interface RetryPolicy {
+
+    /**
+     * Get the amount of time to wait before retrying the failed attempt described by <code>context</code>.
+     *
+     * @param context describes the attempt that just failed
+     * @return the non-negative duration to wait before issuing the next attempt, or null if the request should
+     *      not be retried
+     */
+    Duration getRetryDelay(RetryContext context);
+
+    /**
+     * Whether the failed attempt described by <code>context</code> was the last one this policy allows for a
+     * single request. This only affects how a failure that is not retried is reported.
+     *
+     * @param context describes the attempt that just failed
+     * @return true if the policy would not have retried the request because it ran out of attempts
+     */
+    default boolean isAttemptLimitReached(RetryContext context) {
+        return false;
+    }
+
+    /**
+     * Get the policy used by clients that are not configured with an explicit policy: requests that are rate
+     * limited or that time out are retried up to 5 attempts in total, waiting 1 second between attempts.
+     *
+     * @return the default retry policy
+     */
+    static RetryPolicy defaultPolicy() {
+        return new ExponentialBackoffRetryPolicy.Builder()
+                .withMaxAttempts(5)
+                .withBaseDelay(Duration.ofSeconds(1))
+                .withMaxDelay(Duration.ofSeconds(1))
+                .withJitter(false)
+                .withRetryBudget(null)
+                .withRetryAfterHeader(false)
+                .withServerErrorRetries(false)
+                .withConnectionErrorRetries(false)
+                .build();
+    }
+
+    /**
+     * Get a policy that never retries failed requests.
+     *
+     * @return a policy that never retries
+     */
+    static RetryPolicy noRetries() {
+        return context -> null;
+    }
+}
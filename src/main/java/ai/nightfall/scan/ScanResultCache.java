@@ -0,0 +1,30 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.ScanTextResponse;
+
+/**
+ * Stores the results of scanning individual text payload items, so that scanning content that is byte-for-byte
+ * identical to content scanned earlier, with the same configuration, does not require a call to the API. Results
+ * are identified by an opaque key derived from the content of the item and the scan configuration; the content
+ * itself is never used as a key. Implementations must be thread-safe.
+ */
+public interface ScanResultCache {
+
+    /**
+     * Looks up the result stored under the provided key.
+     *
+     * @param key the key identifying the payload item and scan configuration
+     * @return a response whose findings, and redacted payload if redaction was configured, each contain exactly
+     *      one element, or null if no result is stored under the key
+     */
+    ScanTextResponse get(String key);
+
+    /**
+     * Stores a result under the provided key, replacing any result previously stored under it.
+     *
+     * @param key the key identifying the payload item and scan configuration
+     * @param result a response whose findings, and redacted payload if redaction was configured, each contain
+     *      exactly one element
+     */
+    void put(String key, ScanTextResponse result);
+}
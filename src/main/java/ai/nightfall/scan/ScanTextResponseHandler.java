@@ -0,0 +1,29 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.Finding;
+
+/**
+ * Receives the contents of a text scan response as it is decoded, rather than after the entire response has
+ * been read into a {@link ai.nightfall.scan.model.ScanTextResponse}. Findings are delivered in the order in which
+ * the API returned them, i.e. grouped by payload index in ascending order.
+ */
+public interface ScanTextResponseHandler {
+
+    /**
+     * Called for every finding in the response.
+     *
+     * @param payloadIndex the index of the item in the request payload in which the finding occurred
+     * @param finding the finding
+     */
+    void onFinding(int payloadIndex, Finding finding);
+
+    /**
+     * Called for every redacted payload in the response, if the request was configured to redact findings.
+     * The default implementation discards the redacted payload.
+     *
+     * @param payloadIndex the index of the item in the request payload that was redacted
+     * @param redactedPayload the redacted payload item
+     */
+    default void onRedactedPayload(int payloadIndex, String redactedPayload) {
+    }
+}
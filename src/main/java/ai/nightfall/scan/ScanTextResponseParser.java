@@ -0,0 +1,71 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.Finding;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes a text scan response incrementally, handing each finding to a {@link ScanTextResponseHandler} as soon as
+ * it has been read, so that neither the response body nor the complete list of findings is ever held in memory.
+ */
+final class ScanTextResponseParser {
+
+    private ScanTextResponseParser() {}
+
+    /**
+     * Parses a text scan response.
+     *
+     * @param content the response body
+     * @param objectMapper the mapper used to decode individual findings
+     * @param handler the handler to deliver findings and redacted payloads to
+     * @throws IOException if the response body cannot be read or is not a valid scan response
+     */
+    static void parse(InputStream content, ObjectMapper objectMapper, ScanTextResponseHandler handler)
+            throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(content)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("expected scan response to be a JSON object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("findings".equals(field) && value == JsonToken.START_ARRAY) {
+                    parseFindings(parser, objectMapper, handler);
+                } else if ("redactedPayload".equals(field) && value == JsonToken.START_ARRAY) {
+                    parseRedactedPayloads(parser, handler);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private static void parseFindings(JsonParser parser, ObjectMapper objectMapper, ScanTextResponseHandler handler)
+            throws IOException {
+        for (int index = 0; parser.nextToken() != JsonToken.END_ARRAY; index++) {
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren(); // null, i.e. no findings for this payload item
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                handler.onFinding(index, objectMapper.readValue(parser, Finding.class));
+            }
+        }
+    }
+
+    private static void parseRedactedPayloads(JsonParser parser, ScanTextResponseHandler handler)
+            throws IOException {
+        for (int index = 0; parser.nextToken() != JsonToken.END_ARRAY; index++) {
+            if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                handler.onRedactedPayload(index, parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
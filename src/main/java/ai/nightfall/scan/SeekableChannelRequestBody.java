@@ -0,0 +1,71 @@
+package ai.nightfall.scan;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A request body that streams a slice of a {@link SeekableByteChannel} into the HTTP connection. Unlike a
+ * {@link java.nio.channels.FileChannel}, a generic seekable channel has a single position, so each block is read
+ * while holding the channel's monitor; many bodies backed by the same channel may still be written concurrently,
+ * with their reads interleaved block by block.
+ */
+class SeekableChannelRequestBody extends RequestBody {
+    private static final int BLOCK_SIZE = 8192;
+
+    private final SeekableByteChannel channel;
+    private final long position;
+    private final long length;
+    private final MediaType mediaType;
+
+    /**
+     * Create a new request body.
+     *
+     * @param channel the channel to read from
+     * @param position the offset within the channel of the first byte of the slice
+     * @param length the number of bytes in the slice
+     * @param mediaType the content type of the body
+     */
+    SeekableChannelRequestBody(SeekableByteChannel channel, long position, long length, MediaType mediaType) {
+        this.channel = channel;
+        this.position = position;
+        this.length = length;
+        this.mediaType = mediaType;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return this.mediaType;
+    }
+
+    @Override
+    public long contentLength() {
+        return this.length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BLOCK_SIZE, this.length));
+        long written = 0;
+        while (written < this.length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), this.length - written));
+            synchronized (this.channel) {
+                this.channel.position(this.position + written);
+                while (buffer.hasRemaining()) {
+                    if (this.channel.read(buffer) < 0) {
+                        throw new EOFException("unexpected end of channel at offset " + (this.position + written));
+                    }
+                }
+            }
+            buffer.flip();
+            written += buffer.remaining();
+            sink.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.Finding;
+import ai.nightfall.scan.model.Location;
+import ai.nightfall.scan.model.NightfallClientException;
+import ai.nightfall.scan.model.ScanTextRequest;
+import ai.nightfall.scan.model.ScanTextResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Splits text scan requests that exceed the limits enforced by the API into several smaller requests, which are
+ * issued in parallel with {@link NightfallClient#scanTextAsync(ScanTextRequest)}, then reassembles their responses
+ * into a single response that corresponds one-to-one with the payload of the original request.
+ *
+ * <p>Payload items are packed into requests of at most the configured item count and total byte size. An item
+ * that is itself larger than the configured item size is split into overlapping segments, at whitespace where
+ * possible and never within a surrogate pair. Findings are translated into byte and codepoint ranges within the
+ * original item, and a finding that lies within the overlap of two segments is only reported once. A finding
+ * that is longer than the overlap and straddles the end of a segment may be reported truncated or not at all, so
+ * the overlap should exceed the length of the longest expected finding.
+ *
+ * <p>When redaction is configured, the redacted segments of an item are joined at a position within their
+ * overlap that no finding spans, and the redacted locations of findings are translated accordingly.
+ *
+ * <p>Requests that are within the limits are passed to the client unchanged. This class is thread-safe.
+ */
+public class SplittingTextScanner {
+
+    private final NightfallClient client;
+    private final int maxItemsPerRequest;
+    private final long maxRequestBytes;
+    private final long maxItemBytes;
+    private final long overlapBytes;
+
+    private SplittingTextScanner(Builder builder) {
+        this.client = builder.client;
+        this.maxItemsPerRequest = builder.maxItemsPerRequest;
+        this.maxRequestBytes = builder.maxRequestBytes;
+        this.maxItemBytes = builder.maxItemBytes > 0 ? builder.maxItemBytes : builder.maxRequestBytes;
+        this.overlapBytes = builder.overlapBytes;
+    }
+
+    /**
+     * Scans the provided plaintext against the provided detectors, splitting the request as needed.
+     *
+     * @param request the data to scan, along with the configuration describing how to scan the data
+     * @return an object containing the findings from each item in <code>request.payload</code>
+     * @throws ai.nightfall.scan.model.NightfallAPIException thrown if a non-2xx status code is returned by the API.
+     * @throws NightfallClientException thrown if a I/O error occurs while processing the request
+     * @throws IllegalArgumentException thrown if <code>request</code> is null
+     * @throws ai.nightfall.scan.model.NightfallRequestTimeoutException thrown if a request is aborted because the
+     *      timeout is exceeded
+     */
+    public ScanTextResponse scanText(ScanTextRequest request) {
+        try {
+            return scanTextAsync(request).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new NightfallClientException("scanning text: " + e.getCause());
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #scanText(ScanTextRequest)}. The returned future completes once the responses
+     * to all of the requests the original request was split into have been received, or exceptionally as soon as
+     * any of them fails.
+     *
+     * @param request the data to scan, along with the configuration describing how to scan the data
+     * @return a future containing the findings from each item in <code>request.payload</code>
+     * @throws IllegalArgumentException thrown if <code>request</code> is null
+     */
+    public CompletableFuture<ScanTextResponse> scanTextAsync(ScanTextRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("request must be non-null");
+        }
+        List<String> payload = request.getPayload();
+        if (payload == null) {
+            return this.client.scanTextAsync(request);
+        }
+
+        // every request repeats the scan configuration, which leaves less room for the payload
+        long envelopeBytes = BatchingTextScanner.serializedLength(withPayload(request, Collections.emptyList()));
+        long maxSegmentBytes = Math.min(this.maxItemBytes,
+                this.maxRequestBytes - envelopeBytes - BatchingTextScanner.ITEM_DELIMITER_BYTES);
+
+        List<List<Segment>> items = new ArrayList<>(payload.size());
+        long totalBytes = envelopeBytes;
+        boolean splitItems = false;
+        for (String item : payload) {
+            List<Segment> segments = split(item == null ? "" : item, maxSegmentBytes);
+            splitItems |= segments.size() > 1;
+            totalBytes += segments.get(0).bytes;
+            items.add(segments);
+        }
+        if (!splitItems && payload.size() <= this.maxItemsPerRequest && totalBytes <= this.maxRequestBytes) {
+            return this.client.scanTextAsync(request);
+        }
+
+        List<Part> parts = pack(items, envelopeBytes);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[parts.size()];
+        for (int i = 0; i < parts.size(); i++) {
+            Part part = parts.get(i);
+            futures[i] = this.client.scanTextAsync(part.toRequest(request))
+                    .thenAccept(part::setResponse);
+        }
+        return CompletableFuture.allOf(futures).thenApply(ignored -> reassemble(items));
+    }
+
+    private List<Part> pack(List<List<Segment>> items, long envelopeBytes) {
+        List<Part> parts = new ArrayList<>();
+        Part current = null;
+        for (List<Segment> segments : items) {
+            for (Segment segment : segments) {
+                if (current == null || current.segments.size() >= this.maxItemsPerRequest
+                        || current.bytes + segment.bytes > this.maxRequestBytes) {
+                    current = new Part(envelopeBytes);
+                    parts.add(current);
+                }
+                current.add(segment);
+            }
+        }
+        return parts;
+    }
+
+    // Splits an item into overlapping segments whose JSON encoding each fits within maxBytes.
+    private List<Segment> split(String item, long maxBytes) {
+        long itemBytes = BatchingTextScanner.jsonLength(item);
+        if (itemBytes <= maxBytes) {
+            return Collections.singletonList(new Segment(item, itemBytes, 0, 0));
+        } else if (maxBytes <= this.overlapBytes * 2) {
+            throw new NightfallClientException("scan request configuration leaves no room for payload segments "
+                    + "within " + this.maxRequestBytes + " bytes");
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        int start = 0;
+        long byteOffset = 0;
+        long codepointOffset = 0;
+        while (true) {
+            int end = advance(item, start, maxBytes);
+            if (end < item.length()) {
+                // prefer to end the segment after whitespace, as long as that keeps at least half of it
+                for (int i = end; i > start + (end - start) / 2; i--) {
+                    if (Character.isWhitespace(item.charAt(i - 1))) {
+                        end = i;
+                        break;
+                    }
+                }
+            }
+
+            String text = item.substring(start, end);
+            segments.add(new Segment(text, BatchingTextScanner.jsonLength(text), byteOffset, codepointOffset));
+            if (end >= item.length()) {
+                return segments;
+            }
+
+            int next = retreat(item, end, this.overlapBytes);
+            if (next <= start) {
+                next = end;
+            }
+            byteOffset += BatchingTextScanner.utf8Length(item.subSequence(start, next));
+            codepointOffset += item.codePointCount(start, next);
+            start = next;
+        }
+    }
+
+    // Returns the largest index such that the JSON encoding of item[start, index) fits in maxBytes, covering at
+    // least one codepoint.
+    private static int advance(String item, int start, long maxBytes) {
+        int i = start;
+        long bytes = 0;
+        while (i < item.length()) {
+            int next = i + Character.charCount(item.codePointAt(i));
+            for (int j = i; j < next; j++) {
+                bytes += BatchingTextScanner.jsonLength(item.charAt(j));
+            }
+            if (bytes > maxBytes && i > start) {
+                break;
+            }
+            i = next;
+        }
+        return i;
+    }
+
+    // Returns the smallest index such that item[index, end) fits in maxBytes.
+    private static int retreat(String item, int end, long maxBytes) {
+        int i = end;
+        long bytes = 0;
+        while (i > 0) {
+            int codepoint = item.codePointBefore(i);
+            bytes += utf8Length(codepoint);
+            if (bytes > maxBytes) {
+                break;
+            }
+            i -= Character.charCount(codepoint);
+        }
+        return i;
+    }
+
+    private static int utf8Length(int codepoint) {
+        if (codepoint < 0x80) {
+            return 1;
+        } else if (codepoint < 0x800) {
+            return 2;
+        } else if (codepoint < 0x10000) {
+            return 3;
+        }
+        return 4;
+    }
+
+    // Copies the scan configuration of the provided request into a new request for the provided payload.
+    private static ScanTextRequest withPayload(ScanTextRequest original, List<String> payload) {
+        if (original.getPolicy() != null) {
+            return new ScanTextRequest(payload, original.getPolicy(), original.getViolationConfig());
+        }
+        return new ScanTextRequest(payload, original.getPolicyUUIDs(), original.getViolationConfig());
+    }
+
+    private static ScanTextResponse reassemble(List<List<Segment>> items) {
+        boolean redacted = false;
+        for (List<Segment> segments : items) {
+            for (Segment segment : segments) {
+                redacted |= segment.redacted() != null;
+            }
+        }
+
+        List<List<Finding>> findings = new ArrayList<>(items.size());
+        List<String> redactedPayload = redacted ? new ArrayList<>(items.size()) : null;
+        for (List<Segment> segments : items) {
+            if (segments.size() == 1) {
+                Segment segment = segments.get(0);
+                findings.add(segment.findings());
+                if (redacted) {
+                    redactedPayload.add(segment.redacted() != null ? segment.redacted() : "");
+                }
+            } else {
+                reassembleItem(segments, findings, redactedPayload);
+            }
+        }
+        return new ScanTextResponse(findings, redactedPayload);
+    }
+
+    private static void reassembleItem(List<Segment> segments, List<List<Finding>> findings,
+                                       List<String> redactedPayload) {
+        // item-level codepoint positions at which each segment hands over to the next one
+        long[] cuts = new long[segments.size() - 1];
+        for (int k = 0; k < cuts.length; k++) {
+            cuts[k] = cutPoint(segments.get(k), segments.get(k + 1));
+        }
+
+        boolean redacted = false;
+        for (Segment segment : segments) {
+            redacted |= segment.redacted() != null && !segment.redacted().isEmpty();
+        }
+
+        List<Finding> itemFindings = new ArrayList<>();
+        StringBuilder itemRedacted = new StringBuilder();
+        long redactedBytes = 0;
+        long redactedCodepoints = 0;
+        for (int k = 0; k < segments.size(); k++) {
+            Segment segment = segments.get(k);
+            long from = k == 0 ? 0 : cuts[k - 1] - segment.codepointOffset;
+            long to = k == cuts.length ? Long.MAX_VALUE : cuts[k] - segment.codepointOffset;
+
+            // the redacted text of this segment that lies between its two cut points
+            long redactedByteShift = segment.byteOffset;
+            long redactedCodepointShift = segment.codepointOffset;
+            if (redacted) {
+                String text = segment.redacted() == null || segment.redacted().isEmpty()
+                        ? segment.text : segment.redacted();
+                long redactedFrom = toRedacted(segment, from);
+                String skipped = substring(text, 0, redactedFrom);
+                long redactedTo = k == cuts.length ? Long.MAX_VALUE : toRedacted(segment, to);
+                String piece = substring(text, redactedFrom, redactedTo);
+                redactedByteShift = redactedBytes - BatchingTextScanner.utf8Length(skipped);
+                redactedCodepointShift = redactedCodepoints - skipped.codePointCount(0, skipped.length());
+                itemRedacted.append(piece);
+                redactedBytes += BatchingTextScanner.utf8Length(piece);
+                redactedCodepoints += piece.codePointCount(0, piece.length());
+            }
+
+            for (Finding finding : segment.findings()) {
+                Location.Range range = finding.getLocation() == null ? null
+                        : finding.getLocation().getCodepointRange();
+                if (range != null && (range.getStart() < from || range.getStart() >= to)) {
+                    continue; // reported by the neighbouring segment
+                }
+                Location location = finding.getLocation() == null ? null
+                        : finding.getLocation().withOffset(segment.byteOffset, segment.codepointOffset);
+                Location redactedLocation = finding.getRedactedLocation() == null ? null
+                        : finding.getRedactedLocation().withOffset(redactedByteShift, redactedCodepointShift);
+                itemFindings.add(finding.withLocations(location, redactedLocation));
+            }
+        }
+
+        findings.add(itemFindings);
+        if (redactedPayload != null) {
+            redactedPayload.add(itemRedacted.toString());
+        }
+    }
+
+    // Picks the position within the overlap of two consecutive segments, as close to its middle as possible, that
+    // is not strictly inside any finding reported by either segment.
+    private static long cutPoint(Segment current, Segment next) {
+        long low = next.codepointOffset;
+        long high = current.codepointOffset + current.text.codePointCount(0, current.text.length());
+        List<long[]> spans = new ArrayList<>();
+        addSpans(current, spans);
+        addSpans(next, spans);
+
+        long middle = low + (high - low) / 2;
+        List<Long> candidates = new ArrayList<>();
+        candidates.add(middle);
+        candidates.add(low);
+        candidates.add(high);
+        for (long[] span : spans) {
+            candidates.add(span[0]);
+            candidates.add(span[1]);
+        }
+
+        long best = middle;
+        long bestDistance = Long.MAX_VALUE;
+        for (long candidate : candidates) {
+            if (candidate < low || candidate > high || Math.abs(candidate - middle) >= bestDistance) {
+                continue;
+            }
+            boolean inside = false;
+            for (long[] span : spans) {
+                inside |= span[0] < candidate && candidate < span[1];
+            }
+            if (!inside) {
+                best = candidate;
+                bestDistance = Math.abs(candidate - middle);
+            }
+        }
+        return best;
+    }
+
+    private static void addSpans(Segment segment, List<long[]> spans) {
+        for (Finding finding : segment.findings()) {
+            if (finding.getLocation() != null && finding.getLocation().getCodepointRange() != null) {
+                Location.Range range = finding.getLocation().getCodepointRange();
+                long start = segment.codepointOffset + range.getStart();
+                spans.add(new long[] {start, segment.codepointOffset + range.getEnd()});
+            }
+        }
+    }
+
+    // Translates a codepoint position within a segment into the corresponding position within its redacted text.
+    private static long toRedacted(Segment segment, long position) {
+        long redactedPosition = position;
+        for (Finding finding : segment.findings()) {
+            Location location = finding.getLocation();
+            Location redactedLocation = finding.getRedactedLocation();
+            if (location == null || location.getCodepointRange() == null || redactedLocation == null
+                    || redactedLocation.getCodepointRange() == null) {
+                continue;
+            }
+            Location.Range range = location.getCodepointRange();
+            Location.Range redactedRange = redactedLocation.getCodepointRange();
+            if (range.getEnd() <= position) {
+                redactedPosition += (redactedRange.getEnd() - redactedRange.getStart())
+                        - (range.getEnd() - range.getStart());
+            }
+        }
+        return redactedPosition;
+    }
+
+    private static String substring(String s, long fromCodepoint, long toCodepoint) {
+        int codepoints = s.codePointCount(0, s.length());
+        int from = (int) Math.max(0, Math.min(codepoints, fromCodepoint));
+        int to = (int) Math.max(from, Math.min(codepoints, toCodepoint));
+        int begin = s.offsetByCodePoints(0, from);
+        return s.substring(begin, s.offsetByCodePoints(begin, to - from));
+    }
+
+    /**
+     * A whole payload item, or a fragment of one, along with its position within the item and, once the request
+     * it was sent in completes, the results of scanning it.
+     */
+    private static final class Segment {
+        private final String text;
+        // the size of the segment within the request body, and its UTF-8 encoded position within the item
+        private final long bytes;
+        private final long byteOffset;
+        private final long codepointOffset;
+        private Part part;
+        private int index;
+
+        Segment(String text, long jsonBytes, long byteOffset, long codepointOffset) {
+            this.text = text;
+            this.bytes = jsonBytes + BatchingTextScanner.ITEM_DELIMITER_BYTES;
+            this.byteOffset = byteOffset;
+            this.codepointOffset = codepointOffset;
+        }
+
+        List<Finding> findings() {
+            List<Finding> findings = this.part.response.getFindings().get(this.index);
+            return findings != null ? findings : Collections.emptyList();
+        }
+
+        String redacted() {
+            List<String> redactedPayload = this.part.response.getRedactedPayload();
+            return redactedPayload != null && this.index < redactedPayload.size()
+                    ? redactedPayload.get(this.index) : null;
+        }
+    }
+
+    /**
+     * The segments sent in a single request.
+     */
+    private static final class Part {
+        private final List<Segment> segments = new ArrayList<>();
+        private long bytes;
+        private volatile ScanTextResponse response;
+
+        Part(long envelopeBytes) {
+            this.bytes = envelopeBytes;
+        }
+
+        void add(Segment segment) {
+            segment.part = this;
+            segment.index = this.segments.size();
+            this.segments.add(segment);
+            this.bytes += segment.bytes;
+        }
+
+        ScanTextRequest toRequest(ScanTextRequest original) {
+            List<String> payload = new ArrayList<>(this.segments.size());
+            for (Segment segment : this.segments) {
+                payload.add(segment.text);
+            }
+            return withPayload(original, payload);
+        }
+
+        void setResponse(ScanTextResponse response) {
+            List<List<Finding>> findings = response.getFindings();
+            if (findings == null || findings.size() != this.segments.size()) {
+                throw new NightfallClientException(
+                        "expected findings for " + this.segments.size() + " items in split scan response");
+            }
+            this.response = response;
+        }
+    }
+
+    /**
+     * A builder class that configures, validates, then creates instances of a splitting text scanner.
+     */
+    public static class Builder {
+        private final NightfallClient client;
+        private int maxItemsPerRequest = 50_000;
+        private long maxRequestBytes = 500_000;
+        private long maxItemBytes;
+        private long overlapBytes = 1024;
+
+        /**
+         * Creates a builder for a scanner that issues its requests with the provided client.
+         *
+         * @param client the client to use to issue scan requests
+         * @throws IllegalArgumentException if <code>client</code> is null
+         */
+        public Builder(NightfallClient client) {
+            if (client == null) {
+                throw new IllegalArgumentException("client must be non-null");
+            }
+            this.client = client;
+        }
+
+        /**
+         * Sets the maximum number of payload items to send in a single request. If unset, defaults to 50,000.
+         *
+         * @param maxItemsPerRequest a positive integer
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withMaxItemsPerRequest(int maxItemsPerRequest) {
+            if (maxItemsPerRequest < 1) {
+                throw new IllegalArgumentException("maxItemsPerRequest must be positive");
+            }
+            this.maxItemsPerRequest = maxItemsPerRequest;
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of the body of a single request, i.e. of the scan configuration along with the
+         * payload, UTF-8 encoded and escaped as JSON. If unset, defaults to 500KB, which is the maximum payload size
+         * accepted by the API.
+         *
+         * @param maxRequestBytes a positive number of bytes
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withMaxRequestBytes(long maxRequestBytes) {
+            if (maxRequestBytes < 1) {
+                throw new IllegalArgumentException("maxRequestBytes must be positive");
+            }
+            this.maxRequestBytes = maxRequestBytes;
+            return this;
+        }
+
+        /**
+         * Sets the size, UTF-8 encoded and escaped as a JSON string, above which an individual payload item is
+         * split into segments. If unset, defaults to the maximum request size. Items are also split if they would
+         * not fit in a request along with its scan configuration.
+         *
+         * @param maxItemBytes a positive number of bytes, no larger than the maximum request size
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withMaxItemBytes(long maxItemBytes) {
+            if (maxItemBytes < 1) {
+                throw new IllegalArgumentException("maxItemBytes must be positive");
+            }
+            this.maxItemBytes = maxItemBytes;
+            return this;
+        }
+
+        /**
+         * Sets the number of bytes by which consecutive segments of a split item overlap. If unset, defaults to
+         * 1KB.
+         *
+         * @param overlapBytes a non-negative number of bytes, less than half the maximum item size
+         * @return the builder
+         * @throws IllegalArgumentException if the argument falls outside the allowed range
+         */
+        public Builder withOverlapBytes(long overlapBytes) {
+            if (overlapBytes < 0) {
+                throw new IllegalArgumentException("overlapBytes must be non-negative");
+            }
+            this.overlapBytes = overlapBytes;
+            return this;
+        }
+
+        /**
+         * Builds the scanner using the configured values, falling back on defaults if any values
+         * were not explicitly set.
+         *
+         * @return a splitting text scanner
+         * @throws IllegalArgumentException if the maximum item size exceeds the maximum request size, or if the
+         *      overlap is not less than half the maximum item size
+         */
+        public SplittingTextScanner build() {
+            long itemBytes = this.maxItemBytes > 0 ? this.maxItemBytes : this.maxRequestBytes;
+            if (itemBytes > this.maxRequestBytes) {
+                throw new IllegalArgumentException("maxItemBytes must not exceed maxRequestBytes");
+            } else if (this.overlapBytes * 2 >= itemBytes) {
+                throw new IllegalArgumentException("overlapBytes must be less than half of maxItemBytes");
+            }
+            return new SplittingTextScanner(this);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ai.nightfall.scan;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+
+/**
+ * The payload of a text scan request whose items are produced lazily, while the request is being written to the
+ * network, instead of being collected into a <code>List&lt;String&gt;</code> up front. Items are written to the
+ * request body one at a time, so a large batch is never fully materialized on the heap.
+ *
+ * <p>A streaming payload can be consumed only once; see
+ * {@link NightfallClient#scanText(ai.nightfall.scan.model.ScanTextRequest, StreamingPayload)}.
+ */
+public abstract class StreamingPayload {
+
+    private StreamingPayload() {}
+
+    /**
+     * Creates a payload whose items are produced by an iterator of character sequences.
+     *
+     * @param items the payload items
+     * @return a streaming payload
+     * @throws IllegalArgumentException if <code>items</code> is null
+     */
+    public static StreamingPayload fromCharSequences(Iterator<? extends CharSequence> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("items must be non-null");
+        }
+        return new StreamingPayload() {
+            @Override
+            void writeItems(JsonGenerator generator) throws IOException {
+                while (items.hasNext()) {
+                    CharSequence item = items.next();
+                    if (item == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeString(item.toString());
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a payload whose items are read from readers, e.g. readers over files. Each reader is read to
+     * completion and then closed, just before the next one is taken from the iterator.
+     *
+     * @param items the payload items
+     * @return a streaming payload
+     * @throws IllegalArgumentException if <code>items</code> is null
+     */
+    public static StreamingPayload fromReaders(Iterator<? extends Reader> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("items must be non-null");
+        }
+        return new StreamingPayload() {
+            @Override
+            void writeItems(JsonGenerator generator) throws IOException {
+                while (items.hasNext()) {
+                    try (Reader item = items.next()) {
+                        if (item == null) {
+                            generator.writeNull();
+                        } else {
+                            generator.writeString(item, -1);
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Writes every payload item as an element of the JSON array that the generator is currently positioned in.
+     *
+     * @param generator the generator to write to
+     * @throws IOException if an item cannot be read or written
+     */
+    abstract void writeItems(JsonGenerator generator) throws IOException;
+}
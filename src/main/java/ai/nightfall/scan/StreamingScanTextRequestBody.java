@@ -0,0 +1,69 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.ScanTextRequest;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+
+/**
+ * A text scan request body that is serialized directly into the HTTP connection with a {@link JsonGenerator},
+ * pulling the payload items from a {@link StreamingPayload} as it goes. The length of the body is not known in
+ * advance, so it is sent with chunked transfer encoding, and since the payload can only be consumed once, the
+ * body is one-shot.
+ */
+class StreamingScanTextRequestBody extends RequestBody {
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private final ObjectMapper objectMapper;
+    private final ScanTextRequest options;
+    private final StreamingPayload payload;
+
+    /**
+     * Create a new request body.
+     *
+     * @param objectMapper the mapper used to create the JSON generator and to serialize the scan configuration
+     * @param options the request whose fields other than the payload are sent
+     * @param payload the payload items
+     */
+    StreamingScanTextRequestBody(ObjectMapper objectMapper, ScanTextRequest options, StreamingPayload payload) {
+        this.objectMapper = objectMapper;
+        this.options = options;
+        this.payload = payload;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isOneShot() {
+        return true;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(sink.outputStream())) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("payload");
+            this.payload.writeItems(generator);
+            generator.writeEndArray();
+
+            // the remaining fields of ScanTextRequest; a frozen policy writes its pre-serialized form
+            generator.writeObjectField("policy", this.options.getPolicy());
+            generator.writeObjectField("policyUUIDs", this.options.getPolicyUUIDs());
+            generator.writeObjectField("violation", this.options.getViolationConfig());
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package ai.nightfall.scan;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket whose refill rate adapts to feedback from the API. Permits are handed out by reservation: a caller
+ * always receives its permits immediately, possibly putting the bucket into debt, and is told how long it must wait
+ * before using them. This lets blocking callers sleep and non-blocking callers schedule their work, using the same
+ * bucket.
+ *
+ * <p>The rate is lowered multiplicatively whenever the API signals that the quota was exceeded, and recovers
+ * additively with every successful request, up to the configured maximum.
+ */
+final class TokenBucket {
+    private static final double DECREASE_FACTOR = 0.75;
+    private static final double INCREASE_FRACTION = 0.05;
+    private static final double MIN_RATE_FRACTION = 0.05;
+
+    private final double maxRate;
+    private final double minRate;
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    /**
+     * Create a new bucket that starts out full, allowing a burst of one second's worth of permits.
+     *
+     * @param permitsPerSecond the maximum rate at which permits are refilled
+     */
+    TokenBucket(double permitsPerSecond) {
+        this.maxRate = permitsPerSecond;
+        this.minRate = permitsPerSecond * MIN_RATE_FRACTION;
+        this.rate = permitsPerSecond;
+        this.tokens = permitsPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+        this.pausedUntilNanos = this.lastRefillNanos;
+    }
+
+    /**
+     * Reserves the requested number of permits.
+     *
+     * @param permits the number of permits to take from the bucket
+     * @return the number of nanoseconds the caller must wait before proceeding
+     */
+    synchronized long reserve(double permits) {
+        long now = System.nanoTime();
+        refill(now);
+        this.tokens -= permits;
+
+        long waitNanos = 0;
+        if (this.tokens < 0) {
+            waitNanos = (long) (-this.tokens / this.rate * TimeUnit.SECONDS.toNanos(1));
+        }
+        return Math.max(waitNanos, this.pausedUntilNanos - now);
+    }
+
+    /**
+     * Lowers the refill rate in response to the API rejecting a request for exceeding the quota.
+     */
+    synchronized void throttle() {
+        refill(System.nanoTime());
+        this.rate = Math.max(this.minRate, this.rate * DECREASE_FACTOR);
+        this.tokens = Math.min(this.tokens, 0);
+    }
+
+    /**
+     * Raises the refill rate towards its maximum in response to a successful request.
+     */
+    synchronized void recover() {
+        if (this.rate < this.maxRate) {
+            refill(System.nanoTime());
+            this.rate = Math.min(this.maxRate, this.rate + this.maxRate * INCREASE_FRACTION);
+        }
+    }
+
+    /**
+     * Prevents any reservation from proceeding before the provided time, e.g. because the API indicated when the
+     * current quota window resets.
+     *
+     * @param delayNanos the number of nanoseconds from now during which no permits may be used
+     */
+    synchronized void pause(long delayNanos) {
+        this.pausedUntilNanos = Math.max(this.pausedUntilNanos, System.nanoTime() + delayNanos);
+    }
+
+    synchronized double getRate() {
+        return this.rate;
+    }
+
+    private void refill(long now) {
+        double elapsedSeconds = (double) (now - this.lastRefillNanos) / TimeUnit.SECONDS.toNanos(1);
+        // burst capacity is one second's worth of permits at the current rate
+        this.tokens = Math.min(this.rate, this.tokens + elapsedSeconds * this.rate);
+        this.lastRefillNanos = now;
+    }
+}
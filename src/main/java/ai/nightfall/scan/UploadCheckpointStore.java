@@ -0,0 +1,39 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.UploadCheckpoint;
+
+import java.io.IOException;
+
+/**
+ * Persists the progress of file uploads, so that an upload that was interrupted, e.g. because the process was
+ * restarted or the upload timed out, can be resumed by a later call instead of starting over. Checkpoints are
+ * identified by an opaque key derived from the uploaded file. Implementations must be thread-safe.
+ */
+public interface UploadCheckpointStore {
+
+    /**
+     * Loads the checkpoint stored under the provided key.
+     *
+     * @param key the key identifying the uploaded file
+     * @return the stored checkpoint, or null if there is none
+     * @throws IOException if the checkpoint could not be read
+     */
+    UploadCheckpoint load(String key) throws IOException;
+
+    /**
+     * Stores a checkpoint under the provided key, replacing any checkpoint previously stored under it.
+     *
+     * @param key the key identifying the uploaded file
+     * @param checkpoint the checkpoint to store
+     * @throws IOException if the checkpoint could not be written
+     */
+    void save(String key, UploadCheckpoint checkpoint) throws IOException;
+
+    /**
+     * Removes the checkpoint stored under the provided key, if any.
+     *
+     * @param key the key identifying the uploaded file
+     * @throws IOException if the checkpoint could not be removed
+     */
+    void delete(String key) throws IOException;
+}
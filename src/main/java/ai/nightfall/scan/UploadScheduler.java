@@ -0,0 +1,134 @@
+package ai.nightfall.scan;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Schedules file chunk uploads across all files that a client is uploading at the same time. Each file upload
+ * queues its work in its own {@link Lane}, and up to <code>maxWorkers</code> workers take turns serving the lanes
+ * that have work in round-robin order, one task at a time. A small file therefore waits for at most one task of
+ * every other active file before each of its own chunks is uploaded, instead of queuing behind all chunks of a
+ * large file, while a large file still uses every worker that other files leave idle.
+ *
+ * <p>If the scheduler is given a metrics listener, it reports how long each task waited in its lane before a
+ * worker picked it up.
+ */
+final class UploadScheduler {
+    private final ExecutorService executor;
+    private final int maxWorkers;
+    private final NightfallMetrics metrics;
+    private final Deque<Lane> readyLanes = new ArrayDeque<>();
+    private int activeWorkers;
+
+    /**
+     * Create a new scheduler.
+     *
+     * @param executor the executor on which workers run; it must be able to run <code>maxWorkers</code> tasks
+     *                 concurrently
+     * @param maxWorkers the maximum number of tasks that may run at any given time, across all lanes
+     * @param metrics the listener that receives queue wait times, or null if they should not be measured
+     */
+    UploadScheduler(ExecutorService executor, int maxWorkers, NightfallMetrics metrics) {
+        this.executor = executor;
+        this.maxWorkers = maxWorkers;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Creates a new lane, in which a single file upload queues its tasks.
+     *
+     * @return a new lane
+     */
+    Lane newLane() {
+        return new Lane();
+    }
+
+    /**
+     * Stops accepting new workers once all queued tasks have run, and releases the underlying threads.
+     */
+    void shutdown() {
+        this.executor.shutdown();
+    }
+
+    private synchronized Runnable nextTask() {
+        Lane lane = this.readyLanes.pollFirst();
+        if (lane == null) {
+            this.activeWorkers--;
+            return null;
+        }
+
+        Runnable task = lane.tasks.pollFirst();
+        if (!lane.tasks.isEmpty()) {
+            this.readyLanes.addLast(lane);
+        }
+        return task;
+    }
+
+    private void runWorker() {
+        for (Runnable task = nextTask(); task != null; task = nextTask()) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // tasks report their own failures; keep serving other lanes
+            }
+        }
+    }
+
+    /**
+     * A FIFO queue of tasks belonging to a single file upload.
+     */
+    final class Lane {
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+        /**
+         * Queues a task to be run by the next worker that serves this lane.
+         *
+         * @param task the task to run
+         */
+        void execute(Runnable task) {
+            boolean startWorker = false;
+            synchronized (UploadScheduler.this) {
+                if (this.tasks.isEmpty()) {
+                    readyLanes.addLast(this);
+                }
+                this.tasks.addLast(metrics != null ? new TimedTask(task, metrics) : task);
+                if (activeWorkers < maxWorkers) {
+                    activeWorkers++;
+                    startWorker = true;
+                }
+            }
+
+            if (startWorker) {
+                try {
+                    executor.execute(UploadScheduler.this::runWorker);
+                } catch (RuntimeException e) {
+                    synchronized (UploadScheduler.this) {
+                        activeWorkers--;
+                    }
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * A task that reports how long it was queued once a worker starts running it.
+     */
+    private static final class TimedTask implements Runnable {
+        private final Runnable task;
+        private final NightfallMetrics metrics;
+        private final long queuedNanos = System.nanoTime();
+
+        TimedTask(Runnable task, NightfallMetrics metrics) {
+            this.task = task;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void run() {
+            this.metrics.onUploadQueueWait(System.nanoTime() - this.queuedNanos);
+            this.task.run();
+        }
+    }
+}
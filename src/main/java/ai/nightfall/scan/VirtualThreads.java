@@ -0,0 +1,50 @@
+package ai.nightfall.scan;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Provides access to virtual threads, which are only available on Java 21 and later. The SDK is compiled for
+ * Java 8, so the relevant factory method is looked up reflectively, and callers must check
+ * {@link #isSupported()} before creating an executor.
+ */
+final class VirtualThreads {
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findFactory();
+
+    private VirtualThreads() {}
+
+    /**
+     * Whether the running JVM supports virtual threads.
+     *
+     * @return true if virtual threads are available
+     */
+    static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread.
+     *
+     * @return a new executor
+     * @throws IllegalStateException if the running JVM does not support virtual threads
+     */
+    static ExecutorService newExecutor() {
+        if (!isSupported()) {
+            throw new IllegalStateException("virtual threads require Java 21 or later");
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("creating virtual thread executor: " + e.getMessage(), e);
+        }
+    }
+
+    private static Method findFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -20,6 +20,24 @@ public class FileUpload {
     @JsonProperty("mimeType")
     private String mimeType;
 
+    // appease jackson serialization
+    public FileUpload() {}
+
+    /**
+     * Create a new file upload object.
+     *
+     * @param fileID a unique ID representing this file
+     * @param fileSizeBytes the size of the file in bytes
+     * @param chunkSize the number of bytes to use when uploading the file chunk-by-chunk
+     * @param mimeType the RFC-2045 media type represented by this file
+     */
+    public FileUpload(UUID fileID, long fileSizeBytes, long chunkSize, String mimeType) {
+        this.fileID = fileID;
+        this.fileSizeBytes = fileSizeBytes;
+        this.chunkSize = chunkSize;
+        this.mimeType = mimeType;
+    }
+
     /**
      * Get the file ID.
      *
@@ -133,6 +133,28 @@ public class Finding {
         return matchedDetectionRules;
     }
 
+    /**
+     * Returns a copy of this finding that occurred at the provided locations instead.
+     *
+     * @param location the location of the finding in the original content
+     * @param redactedLocation the location of the redacted finding, or null if redaction was not configured
+     * @return the relocated finding
+     */
+    public Finding withLocations(Location location, Location redactedLocation) {
+        Finding relocated = new Finding();
+        relocated.finding = finding;
+        relocated.redactedFinding = redactedFinding;
+        relocated.beforeContext = beforeContext;
+        relocated.afterContext = afterContext;
+        relocated.detector = detector;
+        relocated.confidence = confidence;
+        relocated.location = location;
+        relocated.redactedLocation = redactedLocation;
+        relocated.matchedDetectionRuleUUIDs = matchedDetectionRuleUUIDs;
+        relocated.matchedDetectionRules = matchedDetectionRules;
+        return relocated;
+    }
+
     @Override
     public String toString() {
         return "Finding{"
@@ -0,0 +1,21 @@
+package ai.nightfall.scan.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Helpers shared by the frozen variants of scan configurations.
+ */
+final class Frozen {
+
+    private Frozen() {}
+
+    static <T> List<T> copy(List<T> list) {
+        return list == null ? null : Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    static UnsupportedOperationException modified() {
+        return new UnsupportedOperationException("a frozen configuration cannot be modified");
+    }
+}
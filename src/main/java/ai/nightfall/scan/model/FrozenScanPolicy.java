@@ -0,0 +1,74 @@
+package ai.nightfall.scan.model;
+
+import ai.nightfall.scan.model.alert.AlertConfig;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An immutable scan policy whose JSON representation is computed once, when it is frozen, and then copied
+ * verbatim into every request that uses it. See {@link ScanPolicy#freeze()}.
+ */
+final class FrozenScanPolicy extends ScanPolicy implements JsonSerializable {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SerializableString json;
+
+    @SuppressWarnings("deprecation")
+    FrozenScanPolicy(ScanPolicy policy) {
+        super(policy.getAlertConfig(), Frozen.copy(policy.getDetectionRules()),
+                Frozen.copy(policy.getDetectionRuleUUIDs()));
+        super.setWebhookURL(policy.getWebhookURL());
+        try {
+            this.json = new SerializedString(objectMapper.writeValueAsString(policy));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("serializing scan policy: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ScanPolicy freeze() {
+        return this;
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeRawValue(this.json);
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+        serialize(gen, serializers);
+    }
+
+    @Override
+    @Deprecated
+    public void setWebhookURL(String webhookURL) {
+        throw Frozen.modified();
+    }
+
+    @Override
+    public void setDetectionRules(List<DetectionRule> detectionRules) {
+        throw Frozen.modified();
+    }
+
+    @Override
+    public void setDetectionRuleUUIDs(List<UUID> detectionRuleUUIDs) {
+        throw Frozen.modified();
+    }
+
+    @Override
+    public void setAlertConfig(AlertConfig alertConfig) {
+        throw Frozen.modified();
+    }
+}
@@ -0,0 +1,78 @@
+package ai.nightfall.scan.model;
+
+import ai.nightfall.scan.model.alert.AlertConfig;
+import ai.nightfall.scan.model.redaction.RedactionConfig;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An immutable scan configuration whose JSON representation is computed once, when it is frozen, and then copied
+ * verbatim into every request that uses it. See {@link ScanTextConfig#freeze()}.
+ */
+final class FrozenScanTextConfig extends ScanTextConfig implements JsonSerializable {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SerializableString json;
+
+    FrozenScanTextConfig(ScanTextConfig config) {
+        super(Frozen.copy(config.getDetectionRuleUUIDs()), Frozen.copy(config.getDetectionRules()),
+                config.getContextBytes(), config.getDefaultRedactionConfig());
+        super.setAlertConfig(config.getAlertConfig());
+        try {
+            this.json = new SerializedString(objectMapper.writeValueAsString(config));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("serializing scan configuration: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ScanTextConfig freeze() {
+        return this;
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeRawValue(this.json);
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+        serialize(gen, serializers);
+    }
+
+    @Override
+    public void setDetectionRuleUUIDs(List<UUID> detectionRuleUUIDs) {
+        throw Frozen.modified();
+    }
+
+    @Override
+    public void setDetectionRules(List<DetectionRule> detectionRules) {
+        throw Frozen.modified();
+    }
+
+    @Override
+    public void setContextBytes(int contextBytes) {
+        throw Frozen.modified();
+    }
+
+    @Override
+    public void setDefaultRedactionConfig(RedactionConfig defaultRedactionConfig) {
+        throw Frozen.modified();
+    }
+
+    @Override
+    public void setAlertConfig(AlertConfig alertConfig) {
+        throw Frozen.modified();
+    }
+}
@@ -82,6 +82,36 @@ public class Location {
         return commitAuthor;
     }
    
+    /**
+     * Returns a copy of this location whose byte and codepoint ranges are shifted by the provided offsets, e.g. to
+     * translate a location within a fragment of some content into a location within the content as a whole. Row
+     * and column ranges are copied unchanged.
+     *
+     * @param byteOffset the number of bytes to add to the start and end of the byte range
+     * @param codepointOffset the number of codepoints to add to the start and end of the codepoint range
+     * @return the shifted location
+     */
+    public Location withOffset(long byteOffset, long codepointOffset) {
+        Location shifted = new Location();
+        shifted.byteRange = shift(byteRange, byteOffset);
+        shifted.codepointRange = shift(codepointRange, codepointOffset);
+        shifted.commitHash = commitHash;
+        shifted.commitAuthor = commitAuthor;
+        shifted.rowRange = rowRange;
+        shifted.columnRange = columnRange;
+        return shifted;
+    }
+
+    private static Range shift(Range range, long offset) {
+        if (range == null) {
+            return null;
+        }
+        Range shifted = new Range();
+        shifted.start = range.start + offset;
+        shifted.end = range.end + offset;
+        return shifted;
+    }
+
     @Override
     public String toString() {
         return "Location{"
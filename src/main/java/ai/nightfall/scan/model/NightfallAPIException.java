@@ -55,8 +55,20 @@ public class NightfallAPIException extends BaseNightfallException {
         return error;
     }
 
+    /**
+     * Get the HTTP status code returned by Nightfall.
+     *
+     * @return the HTTP status code, or 0 if the exception was not caused by an HTTP response
+     */
+    public int getHttpStatusCode() {
+        return httpStatusCode;
+    }
+
     @Override
     public String getMessage() {
+        if (this.error == null) {
+            return super.getMessage();
+        }
         return this.error.getMessage();
     }
 }
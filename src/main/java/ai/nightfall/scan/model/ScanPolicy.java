@@ -149,4 +149,16 @@ public class ScanPolicy {
         this.alertConfig = alertConfig;
     }
 
+    /**
+     * Returns an immutable copy of this policy whose JSON representation is computed once, up front, and reused by
+     * every request that refers to it. Setters of the returned object throw {@link UnsupportedOperationException};
+     * nested objects, such as detection rules, must not be modified after freezing either, since changes to them
+     * would not be reflected in requests.
+     *
+     * @return a frozen copy of this policy, or this policy if it is already frozen
+     */
+    public ScanPolicy freeze() {
+        return new FrozenScanPolicy(this);
+    }
+
 }
@@ -170,6 +170,19 @@ public class ScanTextConfig {
         this.alertConfig = alertConfig;
     }
 
+    /**
+     * Returns an immutable copy of this configuration whose JSON representation is computed once, up front, and
+     * reused by every request that refers to it. Freezing a configuration that is sent with many requests saves
+     * re-serializing the same detection rules on every call. Setters of the returned object throw
+     * {@link UnsupportedOperationException}; nested objects, such as detection rules, must not be modified
+     * after freezing either, since changes to them would not be reflected in requests.
+     *
+     * @return a frozen copy of this configuration, or this configuration if it is already frozen
+     */
+    public ScanTextConfig freeze() {
+        return new FrozenScanTextConfig(this);
+    }
+
     @Override
     public String toString() {
         return "ScanTextConfig{"
@@ -18,6 +18,20 @@ public class ScanTextResponse {
     @JsonProperty("redactedPayload")
     private List<String> redactedPayload;
 
+    // appease jackson serialization
+    public ScanTextResponse() {}
+
+    /**
+     * Construct a new ScanTextResponse object.
+     *
+     * @param findings the findings, indexed by the position of the corresponding item in the request payload
+     * @param redactedPayload the request payload with redactions applied, or null if redaction was not configured
+     */
+    public ScanTextResponse(List<List<Finding>> findings, List<String> redactedPayload) {
+        this.findings = findings;
+        this.redactedPayload = redactedPayload;
+    }
+
     /**
      * Get the findings.
      *
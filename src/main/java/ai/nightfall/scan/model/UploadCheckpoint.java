@@ -0,0 +1,111 @@
+package ai.nightfall.scan.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A snapshot of the progress of a file upload, persisted so that an interrupted upload can be resumed by
+ * uploading only the chunks that the API has not yet acknowledged.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UploadCheckpoint {
+
+    @JsonProperty("fileID")
+    private UUID fileID;
+
+    @JsonProperty("fileSizeBytes")
+    private long fileSizeBytes;
+
+    @JsonProperty("chunkSize")
+    private long chunkSize;
+
+    @JsonProperty("uploadedOffsets")
+    private List<Long> uploadedOffsets;
+
+    @JsonProperty("completed")
+    private boolean completed;
+
+    // appease jackson serialization
+    public UploadCheckpoint() {}
+
+    /**
+     * Create a new upload checkpoint.
+     *
+     * @param fileID the ID of the file upload session
+     * @param fileSizeBytes the size of the file in bytes
+     * @param chunkSize the number of bytes in each chunk of the file
+     * @param uploadedOffsets the offsets of the chunks that were uploaded successfully
+     * @param completed whether the upload was completed, meaning that only the scan remains to be triggered
+     */
+    public UploadCheckpoint(UUID fileID, long fileSizeBytes, long chunkSize, Collection<Long> uploadedOffsets,
+                            boolean completed) {
+        this.fileID = fileID;
+        this.fileSizeBytes = fileSizeBytes;
+        this.chunkSize = chunkSize;
+        this.uploadedOffsets = new ArrayList<>(uploadedOffsets);
+        Collections.sort(this.uploadedOffsets);
+        this.completed = completed;
+    }
+
+    /**
+     * Get the file ID.
+     *
+     * @return the ID of the file upload session
+     */
+    public UUID getFileID() {
+        return fileID;
+    }
+
+    /**
+     * Get the file size.
+     *
+     * @return the size of the file in bytes
+     */
+    public long getFileSizeBytes() {
+        return fileSizeBytes;
+    }
+
+    /**
+     * Get the chunk size.
+     *
+     * @return the number of bytes in each chunk of the file
+     */
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Get the offsets of the chunks that were uploaded.
+     *
+     * @return the offsets of the chunks that were uploaded successfully, in ascending order
+     */
+    public List<Long> getUploadedOffsets() {
+        return uploadedOffsets == null ? Collections.emptyList() : uploadedOffsets;
+    }
+
+    /**
+     * Get whether the upload was completed.
+     *
+     * @return true if all chunks were uploaded and the upload was marked as complete
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return "UploadCheckpoint{"
+                + "fileID=" + fileID
+                + ", fileSizeBytes=" + fileSizeBytes
+                + ", chunkSize=" + chunkSize
+                + ", uploadedOffsets=" + uploadedOffsets
+                + ", completed=" + completed
+                + '}';
+    }
+}
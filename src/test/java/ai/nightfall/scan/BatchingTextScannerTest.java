@@ -0,0 +1,165 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.ScanTextConfig;
+import ai.nightfall.scan.model.ScanTextResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit tests for the BatchingTextScanner.
+ */
+public class BatchingTextScannerTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String FINDING = "{\"finding\": \"4242-4242-4242-4242\"}";
+
+    @Test
+    public void testSubmit_CoalescesIntoSingleRequest() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[], [" + FINDING + "], []],"
+                    + "\"redactedPayload\": [\"\", \"[REDACTED]\", \"\"]}"));
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            ScanTextConfig cfg = ScanTextConfig.fromDetectionRuleUUIDs(Collections.singletonList(UUID.randomUUID()), 0);
+            try (BatchingTextScanner scanner = new BatchingTextScanner.Builder(c)
+                    .withMaxBatchSize(3)
+                    .withMaxLinger(Duration.ofSeconds(30))
+                    .build()) {
+                CompletableFuture<ScanTextResponse> first = scanner.submit("hello", cfg);
+                CompletableFuture<ScanTextResponse> second = scanner.submit("4242-4242-4242-4242", cfg);
+                CompletableFuture<ScanTextResponse> third = scanner.submit("world", cfg);
+
+                assertTrue(first.get().getFindings().get(0).isEmpty());
+                assertEquals("4242-4242-4242-4242", second.get().getFindings().get(0).get(0).getFinding());
+                assertEquals("[REDACTED]", second.get().getRedactedPayload().get(0));
+                assertTrue(third.get().getFindings().get(0).isEmpty());
+            }
+
+            assertEquals(1, server.getRequestCount());
+            String body = server.takeRequest().getBody().readUtf8();
+            assertTrue(body.contains("[\"hello\",\"4242-4242-4242-4242\",\"world\"]"));
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSubmit_SeparatesDistinctPolicies() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            try (BatchingTextScanner scanner = new BatchingTextScanner.Builder(c)
+                    .withMaxLinger(Duration.ofMillis(1))
+                    .build()) {
+                CompletableFuture<ScanTextResponse> first =
+                        scanner.submit("hello", Collections.singletonList(UUID.randomUUID()));
+                CompletableFuture<ScanTextResponse> second =
+                        scanner.submit("world", Collections.singletonList(UUID.randomUUID()));
+
+                assertTrue(first.get().getFindings().get(0).isEmpty());
+                assertTrue(second.get().getFindings().get(0).isEmpty());
+            }
+
+            assertEquals(2, server.getRequestCount());
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSubmit_RespectsSerializedRequestSize() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.setDispatcher(new Dispatcher() {
+                @NotNull
+                @Override
+                public MockResponse dispatch(@NotNull RecordedRequest r) {
+                    try {
+                        int items = objectMapper.readTree(r.getBody().readUtf8()).get("payload").size();
+                        String findings = String.join(",", Collections.nCopies(items, "[]"));
+                        return new MockResponse().setBody("{\"findings\": [" + findings + "]}");
+                    } catch (IOException e) {
+                        return new MockResponse().setResponseCode(500);
+                    }
+                }
+            });
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            // every quote doubles in size once escaped, so these items would fit twice as many per request otherwise
+            String item = String.join("", Collections.nCopies(40, "\""));
+            List<CompletableFuture<ScanTextResponse>> results = new ArrayList<>();
+            try (BatchingTextScanner scanner = new BatchingTextScanner.Builder(c)
+                    .withMaxBatchBytes(400)
+                    .withMaxLinger(Duration.ofSeconds(30))
+                    .build()) {
+                List<UUID> policyUUIDs = Collections.singletonList(UUID.randomUUID());
+                for (int i = 0; i < 12; i++) {
+                    results.add(scanner.submit(item, policyUUIDs));
+                }
+            }
+            for (CompletableFuture<ScanTextResponse> result : results) {
+                assertTrue(result.get().getFindings().get(0).isEmpty());
+            }
+
+            int requests = server.getRequestCount();
+            assertTrue(requests >= 4);
+            for (int i = 0; i < requests; i++) {
+                assertTrue(server.takeRequest().getBodySize() <= 400);
+            }
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testJsonLength() throws IOException {
+        String s = "plain \"quoted\" back\\slash\ttab\u0001 é € 😀";
+        // the serialized string includes its two quotes
+        assertEquals(objectMapper.writeValueAsBytes(s).length - 2, BatchingTextScanner.jsonLength(s));
+    }
+
+    @Test
+    public void testUtf8Length() {
+        assertEquals(5, BatchingTextScanner.utf8Length("hello"));
+        assertEquals(2, BatchingTextScanner.utf8Length("é"));
+        assertEquals(3, BatchingTextScanner.utf8Length("€"));
+        assertEquals(4, BatchingTextScanner.utf8Length("😀"));
+    }
+
+    private OkHttpClient getHttpClient() {
+        return new OkHttpClient.Builder()
+                .readTimeout(Duration.ofMillis(500))
+                .writeTimeout(Duration.ofMillis(500))
+                .connectTimeout(Duration.ofMillis(500))
+                .build();
+    }
+
+    private String getRequestURL(MockWebServer server) {
+        return new HttpUrl.Builder()
+                .scheme("http")
+                .host(server.getHostName())
+                .port(server.getPort())
+                .build().url().toString();
+    }
+}
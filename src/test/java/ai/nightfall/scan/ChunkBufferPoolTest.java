@@ -0,0 +1,53 @@
+package ai.nightfall.scan;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChunkBufferPoolTest {
+
+    @Test
+    public void testBuffersAreReused() {
+        ChunkBufferPool pool = new ChunkBufferPool(2, false);
+        ByteBuffer buffer = pool.tryAcquire(100);
+        assertNotNull(buffer);
+        buffer.put((byte) 1);
+        pool.release(buffer);
+
+        ByteBuffer reused = pool.tryAcquire(80);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(80, reused.limit());
+    }
+
+    @Test
+    public void testPoolIsBounded() throws InterruptedException {
+        ChunkBufferPool pool = new ChunkBufferPool(2, false);
+        ByteBuffer first = pool.tryAcquire(10);
+        assertNotNull(pool.tryAcquire(10));
+        assertNull(pool.tryAcquire(10));
+        assertNull(pool.acquire(10, 10, TimeUnit.MILLISECONDS));
+
+        pool.release(first);
+        assertSame(first, pool.acquire(10, 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testSmallBufferReplacedAndDirectAllocation() {
+        ChunkBufferPool pool = new ChunkBufferPool(1, true);
+        ByteBuffer small = pool.tryAcquire(10);
+        assertTrue(small.isDirect());
+        pool.release(small);
+
+        ByteBuffer large = pool.tryAcquire(20);
+        assertTrue(large.isDirect());
+        assertEquals(20, large.capacity());
+    }
+}
@@ -0,0 +1,109 @@
+package ai.nightfall.scan;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the ExponentialBackoffRetryPolicy.
+ */
+public class ExponentialBackoffRetryPolicyTest {
+
+    @Test
+    public void testBackoffDoublesUpToMaxDelay() {
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy.Builder()
+                .withMaxAttempts(10)
+                .withBaseDelay(Duration.ofMillis(100))
+                .withMaxDelay(Duration.ofMillis(500))
+                .withJitter(false)
+                .build();
+
+        assertEquals(Duration.ofMillis(100), policy.getRetryDelay(statusContext(1, 429)));
+        assertEquals(Duration.ofMillis(200), policy.getRetryDelay(statusContext(2, 429)));
+        assertEquals(Duration.ofMillis(400), policy.getRetryDelay(statusContext(3, 429)));
+        assertEquals(Duration.ofMillis(500), policy.getRetryDelay(statusContext(4, 429)));
+        assertEquals(Duration.ofMillis(500), policy.getRetryDelay(statusContext(9, 429)));
+    }
+
+    @Test
+    public void testJitterStaysWithinBounds() {
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy.Builder()
+                .withBaseDelay(Duration.ofMillis(100))
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            Duration delay = policy.getRetryDelay(statusContext(3, 503));
+            assertNotNull(delay);
+            assertTrue(!delay.isNegative() && delay.toMillis() <= 400);
+        }
+    }
+
+    @Test
+    public void testMaxAttemptsAndRetryBudget() {
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy.Builder()
+                .withMaxAttempts(3)
+                .withRetryBudget(Duration.ofSeconds(10))
+                .build();
+
+        assertNull(policy.getRetryDelay(statusContext(3, 429)));
+        RetryContext overBudget = new RetryContext("/v3/scan", 1, Duration.ofSeconds(9), 429, null,
+                Duration.ofSeconds(5));
+        assertNull(policy.getRetryDelay(overBudget));
+    }
+
+    @Test
+    public void testRetryAfterHonored() {
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy.Builder().build();
+        RetryContext ctx = new RetryContext("/v3/scan", 1, Duration.ZERO, 429, null, Duration.ofSeconds(7));
+        assertEquals(Duration.ofSeconds(7), policy.getRetryDelay(ctx));
+    }
+
+    @Test
+    public void testRetryableFailures() {
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy.Builder().build();
+        assertNull(policy.getRetryDelay(statusContext(1, 400)));
+        assertNull(policy.getRetryDelay(statusContext(1, 501)));
+        assertNotNull(policy.getRetryDelay(statusContext(1, 502)));
+        assertNotNull(policy.getRetryDelay(errorContext(new SocketException("Connection reset"))));
+        assertNotNull(policy.getRetryDelay(errorContext(new SocketTimeoutException("timeout"))));
+        assertNotNull(policy.getRetryDelay(errorContext(new SocketTimeoutException("connect timed out"))));
+        assertNull(policy.getRetryDelay(errorContext(new IOException("Canceled"))));
+
+        RetryPolicy noServerErrors = new ExponentialBackoffRetryPolicy.Builder()
+                .withServerErrorRetries(false)
+                .withConnectionErrorRetries(false)
+                .build();
+        assertNull(noServerErrors.getRetryDelay(statusContext(1, 503)));
+        assertNull(noServerErrors.getRetryDelay(errorContext(new SocketException("Connection reset"))));
+    }
+
+    @Test
+    public void testDefaultPolicy() {
+        RetryPolicy policy = RetryPolicy.defaultPolicy();
+        assertEquals(Duration.ofSeconds(1), policy.getRetryDelay(statusContext(1, 429)));
+        assertEquals(Duration.ofSeconds(1), policy.getRetryDelay(statusContext(4, 429)));
+        assertNull(policy.getRetryDelay(statusContext(5, 429)));
+        assertNull(policy.getRetryDelay(statusContext(1, 500)));
+        assertNotNull(policy.getRetryDelay(errorContext(new SocketTimeoutException("timeout"))));
+        assertNull(policy.getRetryDelay(errorContext(new SocketTimeoutException("connect timed out"))));
+        assertTrue(policy.isAttemptLimitReached(statusContext(5, 429)));
+        assertFalse(policy.isAttemptLimitReached(statusContext(4, 429)));
+    }
+
+    private RetryContext statusContext(int attempt, int statusCode) {
+        return new RetryContext("/v3/scan", attempt, Duration.ZERO, statusCode, null, null);
+    }
+
+    private RetryContext errorContext(IOException e) {
+        return new RetryContext("/v3/scan", 1, Duration.ZERO, 0, e, null);
+    }
+}
@@ -0,0 +1,46 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.UploadCheckpoint;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileSystemUploadCheckpointStoreTest {
+
+    @Test
+    public void testSaveLoadDelete() throws IOException {
+        Path dir = Files.createTempDirectory("nightfall-checkpoints");
+        FileSystemUploadCheckpointStore store = new FileSystemUploadCheckpointStore(dir.resolve("nested"));
+        String key = "/data/archive.tar:2500:1650000000000";
+        assertNull(store.load(key));
+
+        UUID fileID = UUID.fromString("2eda1019-f991-4535-be9f-cecbe6b6c2eb");
+        store.save(key, new UploadCheckpoint(fileID, 2500, 1000, Arrays.asList(1000L, 0L), false));
+        store.save(key, new UploadCheckpoint(fileID, 2500, 1000, Arrays.asList(2000L, 1000L, 0L), true));
+
+        UploadCheckpoint loaded = store.load(key);
+        assertEquals(fileID, loaded.getFileID());
+        assertEquals(2500, loaded.getFileSizeBytes());
+        assertEquals(1000, loaded.getChunkSize());
+        assertEquals(Arrays.asList(0L, 1000L, 2000L), loaded.getUploadedOffsets());
+        assertTrue(loaded.isCompleted());
+
+        store.delete(key);
+        assertNull(store.load(key));
+        store.delete(key);
+    }
+
+    @Test
+    public void testNullDirectory() {
+        assertThrows(IllegalArgumentException.class, () -> new FileSystemUploadCheckpointStore(null));
+    }
+}
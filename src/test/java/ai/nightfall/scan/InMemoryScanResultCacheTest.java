@@ -0,0 +1,52 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.ScanTextResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for the InMemoryScanResultCache.
+ */
+public class InMemoryScanResultCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        InMemoryScanResultCache cache = new InMemoryScanResultCache.Builder().withMaxEntries(2).build();
+        ScanTextResponse a = result();
+        ScanTextResponse b = result();
+        cache.put("a", a);
+        cache.put("b", b);
+        assertSame(a, cache.get("a"));
+
+        cache.put("c", result());
+        assertEquals(2, cache.size());
+        assertSame(a, cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void testExpiresEntries() throws InterruptedException {
+        InMemoryScanResultCache cache = new InMemoryScanResultCache.Builder()
+                .withTimeToLive(Duration.ofMillis(20))
+                .build();
+        cache.put("a", result());
+        Thread.sleep(50);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new InMemoryScanResultCache.Builder().withTimeToLive(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new InMemoryScanResultCache.Builder().withMaxEntries(0));
+    }
+
+    private static ScanTextResponse result() {
+        return new ScanTextResponse(Collections.singletonList(Collections.emptyList()), null);
+    }
+}
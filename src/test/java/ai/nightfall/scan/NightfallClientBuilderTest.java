@@ -28,12 +28,44 @@ public class NightfallClientBuilderTest {
         assertThrows(IllegalArgumentException.class, NightfallClient.Builder::defaultClient);
     }
 
+    @Test
+    public void testNullRetryPolicy() {
+        assertThrows(IllegalArgumentException.class, () -> new NightfallClient.Builder().withRetryPolicy(null));
+    }
+
+    @Test
+    public void testNullChunkRetryPolicy() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new NightfallClient.Builder().withChunkRetryPolicy(null));
+    }
+
+    @Test
+    public void testAPIHost() {
+        assertNotNull(new NightfallClient.Builder().withAPIKey("foo").withAPIHost("http://localhost:8080").build());
+        assertThrows(IllegalArgumentException.class, () -> new NightfallClient.Builder().withAPIHost(null));
+        assertThrows(IllegalArgumentException.class, () -> new NightfallClient.Builder().withAPIHost("localhost"));
+    }
+
+    @Test
+    public void testVirtualThreads() {
+        NightfallClient.Builder builder = new NightfallClient.Builder()
+                .withAPIKey("foo")
+                .withFileUploadConcurrency(1000)
+                .withVirtualThreads(true);
+        if (VirtualThreads.isSupported()) {
+            builder.build().close();
+        } else {
+            assertThrows(IllegalStateException.class, builder::build);
+        }
+    }
+
     @ParameterizedTest
     @CsvSource(value = {
         // invalid upload concurrency
         "-1, 60, 50, 40, 30, 20",
         "0, 60, 50, 40, 30, 20",
         "101, 60, 50, 40, 30, 20",
+        "10001, 60, 50, 40, 30, 20",
         // invalid connection timeout
         "100, -1, 50, 40, 30, 20",
         "100, 61, 50, 40, 30, 20",
@@ -2,6 +2,7 @@ package ai.nightfall.scan;
 
 import ai.nightfall.scan.model.Finding;
 import ai.nightfall.scan.model.NightfallAPIException;
+import ai.nightfall.scan.model.NightfallClientException;
 import ai.nightfall.scan.model.NightfallErrorResponse;
 import ai.nightfall.scan.model.NightfallRequestTimeoutException;
 import ai.nightfall.scan.model.ScanFileRequest;
@@ -10,29 +11,58 @@ import ai.nightfall.scan.model.ScanPolicy;
 import ai.nightfall.scan.model.ScanTextConfig;
 import ai.nightfall.scan.model.ScanTextRequest;
 import ai.nightfall.scan.model.ScanTextResponse;
+import ai.nightfall.scan.model.UploadCheckpoint;
+import ai.nightfall.scan.model.alert.AlertConfig;
+import ai.nightfall.scan.model.alert.WebhookAlert;
 import ai.nightfall.scan.model.redaction.RedactionConfig;
 import ai.nightfall.scan.model.redaction.SubstitutionConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
 import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
 import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.GzipSource;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -76,6 +106,276 @@ public class NightfallClientTest {
         }
     }
 
+    @Test
+    public void testScanText_FrozenConfig() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            RedactionConfig defRedCfg = new RedactionConfig(new SubstitutionConfig("REDACTED"));
+            List<UUID> ruleUUIDs = new ArrayList<>(
+                    Collections.singletonList(UUID.fromString("c08c6c43-85ca-40e5-8f46-7d1cf1e176a3")));
+            ScanTextConfig cfg = new ScanTextConfig(ruleUUIDs, Collections.emptyList(), 20, defRedCfg);
+            ScanTextConfig frozen = cfg.freeze();
+            assertTrue(frozen == frozen.freeze());
+            assertThrows(UnsupportedOperationException.class, () -> frozen.setContextBytes(5));
+            assertThrows(UnsupportedOperationException.class, () -> frozen.getDetectionRuleUUIDs().clear());
+
+            c.scanText(new ScanTextRequest(Collections.singletonList("4242"), cfg));
+            c.scanText(new ScanTextRequest(Collections.singletonList("4242"), frozen));
+            // the frozen copy does not observe changes made to the original afterwards
+            ruleUUIDs.clear();
+            cfg.setContextBytes(5);
+
+            ObjectMapper mapper = new ObjectMapper();
+            JsonNode plain = mapper.readTree(server.takeRequest().getBody().readUtf8());
+            JsonNode precompiled = mapper.readTree(server.takeRequest().getBody().readUtf8());
+            assertEquals(plain, precompiled);
+            assertEquals(mapper.readTree(mapper.writeValueAsString(frozen)), plain.get("policy"));
+
+            ScanPolicy policy = new ScanPolicy((AlertConfig) null, null, Collections.singletonList(UUID.randomUUID()));
+            ScanPolicy frozenPolicy = policy.freeze();
+            assertEquals(mapper.writeValueAsString(policy), mapper.writeValueAsString(frozenPolicy));
+            assertThrows(UnsupportedOperationException.class, () -> frozenPolicy.setDetectionRules(null));
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanText_ResultCache() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[], [{\"finding\": \"4242\"}]],"
+                    + "\"redactedPayload\": [\"\", \"[REDACTED]\"]}"));
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]], \"redactedPayload\": [\"\"]}"));
+
+            NightfallClient.Builder config = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withScanResultCache(new InMemoryScanResultCache.Builder().build())
+                    .withPolicyUUIDDeduplication(true);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            List<UUID> policyUUIDs = Collections.singletonList(UUID.fromString("c08c6c43-85ca-40e5-8f46-7d1cf1e176a3"));
+            c.scanText(new ScanTextRequest(Arrays.asList("hello", "4242"), policyUUIDs));
+
+            ScanTextResponse resp = c.scanText(new ScanTextRequest(Arrays.asList("4242", "world"), policyUUIDs));
+            assertEquals("4242", resp.getFindings().get(0).get(0).getFinding());
+            assertEquals(Arrays.asList("[REDACTED]", ""), resp.getRedactedPayload());
+            assertTrue(resp.getFindings().get(1).isEmpty());
+
+            // served entirely from the cache
+            resp = c.scanTextAsync(new ScanTextRequest(Arrays.asList("world", "hello"), policyUUIDs)).get();
+            assertEquals(Arrays.asList(Collections.emptyList(), Collections.emptyList()), resp.getFindings());
+            assertEquals(2, server.getRequestCount());
+
+            server.takeRequest();
+            JsonNode sent = new ObjectMapper().readTree(server.takeRequest().getBody().readUtf8());
+            assertEquals(1, sent.get("payload").size());
+            assertEquals("world", sent.get("payload").get(0).asText());
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanText_AlertingRequestsNotDeduplicated() {
+        try (MockWebServer server = new MockWebServer()) {
+            for (int i = 0; i < 4; i++) {
+                server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+            }
+
+            NightfallClient.Builder config = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withScanResultCache(new InMemoryScanResultCache.Builder().build())
+                    .withInFlightDeduplication(true);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            ScanTextConfig alerting = ScanTextConfig.fromDetectionRuleUUIDs(
+                    Collections.singletonList(UUID.fromString("c08c6c43-85ca-40e5-8f46-7d1cf1e176a3")), 20);
+            alerting.setAlertConfig(new AlertConfig(new WebhookAlert("https://example.com/alerts")));
+            c.scanText(new ScanTextRequest(Collections.singletonList("4242"), alerting));
+            c.scanTextAsync(new ScanTextRequest(Collections.singletonList("4242"), alerting)).get();
+            assertEquals(2, server.getRequestCount());
+
+            // policies stored on the server may carry alerts too, so they are only deduplicated on request
+            List<UUID> policyUUIDs = Collections.singletonList(UUID.fromString("c08c6c43-85ca-40e5-8f46-7d1cf1e176a3"));
+            c.scanText(new ScanTextRequest(Collections.singletonList("4242"), policyUUIDs));
+            c.scanText(new ScanTextRequest(Collections.singletonList("4242"), policyUUIDs));
+            assertEquals(4, server.getRequestCount());
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanText_InFlightDeduplication() {
+        try (MockWebServer server = new MockWebServer()) {
+            CountDownLatch received = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            List<String> bodies = Collections.synchronizedList(new ArrayList<>());
+            server.setDispatcher(new Dispatcher() {
+                @NotNull
+                @Override
+                public MockResponse dispatch(@NotNull RecordedRequest request) throws InterruptedException {
+                    String body = request.getBody().readUtf8();
+                    bodies.add(body);
+                    if (body.contains("4242")) {
+                        received.countDown();
+                        release.await();
+                        return new MockResponse().setBody("{\"findings\": [[{\"finding\": \"4242\"}]]}");
+                    }
+                    return new MockResponse().setBody("{\"findings\": [[]]}");
+                }
+            });
+
+            NightfallClient.Builder config = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withInFlightDeduplication(true)
+                    .withPolicyUUIDDeduplication(true);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            List<UUID> policyUUIDs = Collections.singletonList(UUID.fromString("c08c6c43-85ca-40e5-8f46-7d1cf1e176a3"));
+            CompletableFuture<ScanTextResponse> first = c.scanTextAsync(
+                    new ScanTextRequest(Collections.singletonList("4242"), policyUUIDs));
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            CompletableFuture<ScanTextResponse> second = c.scanTextAsync(
+                    new ScanTextRequest(Arrays.asList("hello", "4242"), policyUUIDs));
+            release.countDown();
+
+            assertEquals("4242", first.get().getFindings().get(0).get(0).getFinding());
+            assertTrue(second.get().getFindings().get(0).isEmpty());
+            assertEquals("4242", second.get().getFindings().get(1).get(0).getFinding());
+            assertEquals(2, bodies.size());
+            assertTrue(bodies.get(1).contains("[\"hello\"]"));
+
+            // once the first call has completed, identical items are sent again
+            c.scanText(new ScanTextRequest(Collections.singletonList("4242"), policyUUIDs));
+            assertEquals(3, bodies.size());
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanText_StreamingHandler() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[{\"finding\": \"4242-4242-4242-4242\","
+                    + "\"confidence\": \"LIKELY\", \"location\": {\"byteRange\": {\"start\": 0, \"end\": 19}}}],"
+                    + "[], [{\"finding\": \"a\", \"extra\": {\"nested\": [1]}}, {\"finding\": \"b\"}]],"
+                    + "\"foo\": {\"bar\": [1, 2]}, \"redactedPayload\": [\"[REDACTED]\", \"\", \"x\"]}"));
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            ScanTextRequest req = new ScanTextRequest(Arrays.asList("4242-4242-4242-4242", "", "ab"),
+                    Collections.singletonList(UUID.fromString("c08c6c43-85ca-40e5-8f46-7d1cf1e176a3")));
+            List<String> findings = new ArrayList<>();
+            List<String> redacted = new ArrayList<>();
+            c.scanText(req, new ScanTextResponseHandler() {
+                @Override
+                public void onFinding(int payloadIndex, Finding finding) {
+                    findings.add(payloadIndex + ":" + finding.getFinding());
+                }
+
+                @Override
+                public void onRedactedPayload(int payloadIndex, String redactedPayload) {
+                    redacted.add(payloadIndex + ":" + redactedPayload);
+                }
+            });
+
+            assertEquals(Arrays.asList("0:4242-4242-4242-4242", "2:a", "2:b"), findings);
+            assertEquals(Arrays.asList("0:[REDACTED]", "1:", "2:x"), redacted);
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanText_StreamingMalformedResponse() {
+        assertThrows(NightfallClientException.class, () -> {
+            try (MockWebServer server = new MockWebServer()) {
+                server.enqueue(new MockResponse().setBody("{\"findings\": [[{\"finding\": \"a\"}, "));
+
+                NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+                ScanTextRequest req = new ScanTextRequest(Collections.singletonList("a"),
+                        Collections.singletonList(UUID.fromString("c08c6c43-85ca-40e5-8f46-7d1cf1e176a3")));
+                c.scanText(req, (payloadIndex, finding) -> { });
+            }
+        });
+    }
+
+    @Test
+    public void testScanText_StreamingHandlerException() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[{\"finding\": \"a\"}]]}"));
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[{\"finding\": \"a\"}]]}"));
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            ScanTextRequest req = new ScanTextRequest(Collections.singletonList("a"),
+                    Collections.singletonList(UUID.fromString("c08c6c43-85ca-40e5-8f46-7d1cf1e176a3")));
+            IllegalStateException thrown = new IllegalStateException("handler failed");
+            ScanTextResponseHandler handler = (payloadIndex, finding) -> {
+                throw thrown;
+            };
+            assertSame(thrown, assertThrows(IllegalStateException.class, () -> c.scanText(req, handler)));
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> c.scanTextAsync(req, handler).get());
+            assertSame(thrown, e.getCause());
+            assertEquals(2, server.getRequestCount());
+        } catch (IOException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanText_StreamingPayload() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[], []]}"));
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            UUID policyUUID = UUID.fromString("c08c6c43-85ca-40e5-8f46-7d1cf1e176a3");
+            ScanTextRequest req = new ScanTextRequest(null, Collections.singletonList(policyUUID));
+            List<Reader> items = Arrays.asList(new StringReader("hello \"world\""), new StringReader("caf\u00e9"));
+            ScanTextResponse resp = c.scanText(req, StreamingPayload.fromReaders(items.iterator()));
+            assertEquals(2, resp.getFindings().size());
+
+            RecordedRequest recorded = server.takeRequest();
+            JsonNode sent = new ObjectMapper().readTree(recorded.getBody().readUtf8());
+            assertEquals("hello \"world\"", sent.get("payload").get(0).asText());
+            assertEquals("caf\u00e9", sent.get("payload").get(1).asText());
+            assertEquals(policyUUID.toString(), sent.get("policyUUIDs").get(0).asText());
+
+            // a frozen configuration is sent exactly as it was serialized when it was frozen
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+            ScanTextConfig config = ScanTextConfig.fromDetectionRuleUUIDs(Collections.singletonList(policyUUID), 20);
+            ScanTextConfig frozen = config.freeze();
+            c.scanText(new ScanTextRequest(null, frozen), StreamingPayload.fromCharSequences(
+                    Collections.singletonList(new StringBuilder("4242")).iterator()));
+            sent = new ObjectMapper().readTree(server.takeRequest().getBody().readUtf8());
+            assertEquals(new ObjectMapper().valueToTree(config), sent.get("policy"));
+            assertEquals("4242", sent.get("payload").get(0).asText());
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanText_StreamingPayloadNotRetried() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setResponseCode(429).setBody(getRateLimitErrorResponse()));
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            ScanTextRequest req = new ScanTextRequest(null,
+                    Collections.singletonList(UUID.fromString("c08c6c43-85ca-40e5-8f46-7d1cf1e176a3")));
+            StreamingPayload payload = StreamingPayload.fromCharSequences(
+                    Collections.singletonList(new StringBuilder("4242")).iterator());
+            assertThrows(NightfallAPIException.class, () -> c.scanText(req, payload));
+            assertEquals(1, server.getRequestCount());
+            assertThrows(IllegalArgumentException.class,
+                    () -> c.scanText(new ScanTextRequest(Collections.singletonList("a"), req.getPolicyUUIDs()),
+                            payload));
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+    }
+
     @Test
     public void testScanText_NullRequestArg() {
         assertThrows(IllegalArgumentException.class, () -> {
@@ -136,6 +436,202 @@ public class NightfallClientTest {
         }
     }
 
+    @Test
+    public void testScanText_ServerErrorRetriedWithPolicy() {
+        try (MockWebServer server = new MockWebServer()) {
+            String body = "{\"code\": 503, \"message\": \"unavailable\", \"description\": \"unavailable\"}";
+            server.enqueue(new MockResponse().setResponseCode(503).setBody(body));
+            server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0")
+                    .setBody(getRateLimitErrorResponse()));
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+
+            RetryPolicy policy = new ExponentialBackoffRetryPolicy.Builder()
+                    .withBaseDelay(Duration.ofMillis(1))
+                    .build();
+            NightfallClient.Builder config = new NightfallClient.Builder().withAPIKey("key").withRetryPolicy(policy);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            ScanTextResponse resp = c.scanText(new ScanTextRequest(null, (ScanTextConfig) null));
+            assertEquals(Arrays.asList(Collections.emptyList()), resp.getFindings());
+            assertEquals(3, server.getRequestCount());
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanText_429NotRetriedByPolicy() {
+        try (MockWebServer server = new MockWebServer()) {
+            // without an error body, the exception reports the client's own message
+            server.enqueue(new MockResponse().setResponseCode(429));
+
+            NightfallClient.Builder config = new NightfallClient.Builder().withAPIKey("key")
+                    .withRetryPolicy(RetryPolicy.noRetries());
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            NightfallAPIException e = assertThrows(NightfallAPIException.class,
+                    () -> c.scanText(new ScanTextRequest(null, (ScanTextConfig) null)));
+            assertEquals("unsuccessful response", e.getMessage());
+            assertEquals(429, e.getHttpStatusCode());
+            assertEquals(1, server.getRequestCount());
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testMetricsRecorded() {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        NightfallMetrics metrics = new NightfallMetrics() {
+            @Override
+            public void onAttempt(String method, String endpoint, int attempt, int statusCode, long durationNanos,
+                                  long requestBytes, long responseBytes) {
+                assertTrue(durationNanos >= 0 && requestBytes >= 0 && responseBytes >= 0);
+                events.add("attempt " + method + " " + endpoint + " " + attempt + " " + statusCode);
+            }
+
+            @Override
+            public void onRequest(String method, String endpoint, int attempts, int statusCode, long durationNanos) {
+                events.add("request " + method + " " + endpoint + " " + attempts + " " + statusCode);
+            }
+
+            @Override
+            public void onRetryWait(String method, String endpoint, long delayNanos) {
+                events.add("retry " + method + " " + endpoint);
+            }
+
+            @Override
+            public void onUploadQueueWait(long waitNanos) {
+                events.add("queued");
+            }
+        };
+
+        try (MockWebServer server = new MockWebServer()) {
+            String fileUpload = "{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 10, \"mimeType\": \"text/plain\", \"chunkSize\": 10485760}";
+            server.enqueue(new MockResponse().setResponseCode(503).setBody("{\"code\": 503}"));
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+            server.enqueue(new MockResponse().setBody(fileUpload));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setBody(fileUpload));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\"}"));
+
+            RetryPolicy policy = new ExponentialBackoffRetryPolicy.Builder()
+                    .withBaseDelay(Duration.ofMillis(1))
+                    .build();
+            NightfallClient.Builder config = new NightfallClient.Builder().withAPIKey("key")
+                    .withRetryPolicy(policy).withMetrics(metrics);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            c.scanText(new ScanTextRequest(null, (ScanTextConfig) null));
+            c.scanFile(new ScanFileRequest(new ScanPolicy("foo", null, null), "foo"),
+                    new ByteArrayInputStream(new byte[10]), 10, null);
+
+            assertEquals(Arrays.asList(
+                    "attempt POST /v3/scan 1 503", "retry POST /v3/scan",
+                    "attempt POST /v3/scan 2 200", "request POST /v3/scan 2 200",
+                    "attempt POST /v3/upload 1 200", "request POST /v3/upload 1 200",
+                    "queued", "attempt PATCH /v3/upload/{id} 1 204", "request PATCH /v3/upload/{id} 1 204",
+                    "attempt POST /v3/upload/{id}/finish 1 200", "request POST /v3/upload/{id}/finish 1 200",
+                    "attempt POST /v3/upload/{id}/scan 1 200", "request POST /v3/upload/{id}/scan 1 200"), events);
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTracingSpans() {
+        List<String> spans = Collections.synchronizedList(new ArrayList<>());
+        NightfallTracer tracer = new NightfallTracer() {
+            @Override
+            public Span startSpan(String name, Span parent) {
+                String path = parent == null ? name : parent + "/" + name;
+                return new Span() {
+                    @Override
+                    public void end() {
+                        spans.add(path);
+                    }
+
+                    @Override
+                    public String toString() {
+                        return path;
+                    }
+                };
+            }
+        };
+
+        try (MockWebServer server = new MockWebServer()) {
+            String fileUpload = "{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 10, \"mimeType\": \"text/plain\", \"chunkSize\": 10485760}";
+            server.enqueue(new MockResponse().setBody(fileUpload));
+            server.enqueue(new MockResponse().setResponseCode(503).setBody("{\"code\": 503}"));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setBody(fileUpload));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\"}"));
+
+            RetryPolicy policy = new ExponentialBackoffRetryPolicy.Builder()
+                    .withBaseDelay(Duration.ofMillis(1))
+                    .build();
+            NightfallClient.Builder config = new NightfallClient.Builder().withAPIKey("key")
+                    .withChunkRetryPolicy(policy).withTracer(tracer);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            c.scanFile(new ScanFileRequest(new ScanPolicy("foo", null, null), "foo"),
+                    new ByteArrayInputStream(new byte[10]), 10, null);
+
+            String chunk = "nightfall.scanFile/nightfall.uploadFileChunk";
+            assertEquals(Arrays.asList(
+                    "nightfall.scanFile/nightfall.initializeFileUpload/nightfall.attempt",
+                    "nightfall.scanFile/nightfall.initializeFileUpload",
+                    chunk + "/nightfall.attempt", chunk + "/nightfall.retryBackoff", chunk + "/nightfall.attempt",
+                    chunk,
+                    "nightfall.scanFile/nightfall.completeFileUpload/nightfall.attempt",
+                    "nightfall.scanFile/nightfall.completeFileUpload",
+                    "nightfall.scanFile/nightfall.scanUploadedFile/nightfall.attempt",
+                    "nightfall.scanFile/nightfall.scanUploadedFile",
+                    "nightfall.scanFile"), spans);
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanText_RateLimitedByClient() {
+        try (MockWebServer server = new MockWebServer()) {
+            for (int i = 0; i < 3; i++) {
+                server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+            }
+
+            RateLimiter limiter = new RateLimiter.Builder().withScanRequestsPerSecond(4).build();
+            NightfallClient.Builder config = new NightfallClient.Builder().withAPIKey("key").withRateLimiter(limiter);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            // drain the initial burst allowance so that subsequent requests are paced
+            limiter.reserve(new Request.Builder().url(getRequestURL(server) + "v3/scan").build());
+            limiter.reserve(new Request.Builder().url(getRequestURL(server) + "v3/scan").build());
+            limiter.reserve(new Request.Builder().url(getRequestURL(server) + "v3/scan").build());
+
+            long start = System.nanoTime();
+            for (int i = 0; i < 3; i++) {
+                c.scanText(new ScanTextRequest(null, (ScanTextConfig) null));
+            }
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            assertTrue(elapsed.toMillis() >= 500, "expected requests to be paced, took " + elapsed);
+            assertEquals(3, server.getRequestCount());
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testParseRetryAfter() {
+        Request req = new Request.Builder().url("http://localhost").build();
+        Response.Builder builder = new Response.Builder().request(req).protocol(Protocol.HTTP_1_1)
+                .code(429).message("Too Many Requests");
+
+        assertEquals(Duration.ofSeconds(3),
+                NightfallClient.parseRetryAfter(builder.header("Retry-After", "3").build()));
+        assertEquals(Duration.ofSeconds(4),
+                NightfallClient.parseRetryAfter(builder.removeHeader("Retry-After")
+                        .header("X-Rate-Limit-Reset", "4").build()));
+        assertEquals(null, NightfallClient.parseRetryAfter(builder.removeHeader("X-Rate-Limit-Reset").build()));
+    }
+
     @Test
     public void testScanText_InternalException() {
         NightfallErrorResponse expectedErr = new NightfallErrorResponse(500, "internal", "internal error", null);
@@ -203,6 +699,304 @@ public class NightfallClientTest {
         assertEquals(expectedException.getMessage(), actualException.getMessage());
     }
 
+    @Test
+    public void testScanTextAsync_HappyPath() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+
+            List<List<Finding>> expectedFindings = Arrays.asList(Collections.emptyList());
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            ScanTextRequest req = new ScanTextRequest(null, (ScanTextConfig) null);
+            ScanTextResponse resp = c.scanTextAsync(req).get();
+            assertEquals(expectedFindings, resp.getFindings());
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanTextAsync_RateLimitRetried() {
+        // use reference type to work around Java inner class limitations
+        final int[] reqCount = {0};
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.setDispatcher(new Dispatcher() {
+                @NotNull
+                @Override
+                public MockResponse dispatch(@NotNull RecordedRequest r) {
+                    if (++reqCount[0] >= 3) {
+                        return new MockResponse().setBody("{\"findings\": [[]]}");
+                    }
+                    // rate limit the first few requests
+                    return new MockResponse().setResponseCode(429).setBody(getRateLimitErrorResponse());
+                }
+            });
+
+            List<List<Finding>> expectedFindings = Arrays.asList(Arrays.asList());
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            ScanTextRequest req = new ScanTextRequest(null, (ScanTextConfig) null);
+            ScanTextResponse resp = c.scanTextAsync(req).get();
+            assertEquals(expectedFindings, resp.getFindings());
+            assertEquals(reqCount[0], 3); // validate that rate limit responses were actually returned
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanTextAsync_ClosedWhileRetrying() {
+        CompletableFuture<NightfallClient> client = new CompletableFuture<>();
+        try (MockWebServer server = new MockWebServer()) {
+            server.setDispatcher(new Dispatcher() {
+                @NotNull
+                @Override
+                public MockResponse dispatch(@NotNull RecordedRequest r) {
+                    // close the client before it gets to schedule the retry of the timed out request
+                    client.join().close();
+                    return new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE);
+                }
+            });
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            client.complete(c);
+            CompletableFuture<ScanTextResponse> resp = c.scanTextAsync(
+                    new ScanTextRequest(null, (ScanTextConfig) null));
+            ExecutionException e = assertThrows(ExecutionException.class, () -> resp.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof NightfallClientException);
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanTextAsync_InternalException() {
+        try (MockWebServer server = new MockWebServer()) {
+            String body = "{\"code\": 500, \"message\": \"internal\", \"description\": \"internal error\"}";
+            server.enqueue(new MockResponse().setResponseCode(500).setBody(body));
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            ScanTextRequest req = new ScanTextRequest(null, (ScanTextConfig) null);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> c.scanTextAsync(req).get());
+            assertTrue(e.getCause() instanceof NightfallAPIException);
+            assertEquals("internal", e.getCause().getMessage());
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanTextAsync_MaxRequestsPerHost() {
+        int concurrency = 8;
+        CountDownLatch arrived = new CountDownLatch(concurrency);
+        AtomicBoolean allInFlight = new AtomicBoolean(true);
+        try (MockWebServer server = new MockWebServer()) {
+            server.setDispatcher(new Dispatcher() {
+                @NotNull
+                @Override
+                public MockResponse dispatch(@NotNull RecordedRequest r) throws InterruptedException {
+                    // only respond once every request is in flight at the same time
+                    arrived.countDown();
+                    if (!arrived.await(2, TimeUnit.SECONDS)) {
+                        allInFlight.set(false);
+                    }
+                    return new MockResponse().setBody("{\"findings\": [[]]}");
+                }
+            });
+
+            NightfallClient c = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withAPIHost(getRequestURL(server))
+                    .withMaxRequestsPerHost(concurrency)
+                    .build();
+            List<CompletableFuture<ScanTextResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(c.scanTextAsync(new ScanTextRequest(null, (ScanTextConfig) null)));
+            }
+            for (CompletableFuture<ScanTextResponse> future : futures) {
+                future.get();
+            }
+            assertTrue(allInFlight.get());
+            c.close();
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new NightfallClient.Builder().withAPIKey("key")
+                .withMaxRequests(4).withMaxRequestsPerHost(8).build());
+    }
+
+    @Test
+    public void testScanText_PriorKnowledgeHTTP2() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+
+            NightfallClient c = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withAPIHost(getRequestURL(server))
+                    .withProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE))
+                    .build();
+            ScanTextResponse resp = c.scanText(new ScanTextRequest(null, (ScanTextConfig) null));
+            assertEquals(Collections.singletonList(Collections.emptyList()), resp.getFindings());
+            c.close();
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new NightfallClient.Builder()
+                .withProtocols(Arrays.asList(Protocol.H2_PRIOR_KNOWLEDGE, Protocol.HTTP_1_1)));
+        assertThrows(IllegalArgumentException.class, () -> new NightfallClient.Builder()
+                .withProtocols(Collections.singletonList(Protocol.HTTP_2)));
+    }
+
+    @Test
+    public void testPrewarmedConnections() {
+        try (MockWebServer server = new MockWebServer()) {
+            NightfallClient c = NightfallClient.Builder.highThroughput()
+                    .withAPIKey("key")
+                    .withAPIHost(getRequestURL(server))
+                    .withPrewarmedConnections(3)
+                    .build();
+            for (int i = 0; i < 3; i++) {
+                RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+                assertEquals("HEAD", request.getMethod());
+                assertEquals("/", request.getPath());
+            }
+            c.close();
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testWarmUp() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.setDispatcher(new Dispatcher() {
+                @NotNull
+                @Override
+                public MockResponse dispatch(@NotNull RecordedRequest r) {
+                    if ("HEAD".equals(r.getMethod())) {
+                        return new MockResponse(); // a body would leave the connection unusable
+                    }
+                    return new MockResponse().setBody("{\"findings\": [[]]}");
+                }
+            });
+
+            NightfallClient c = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withAPIHost(getRequestURL(server))
+                    .withPrewarmedConnections(2)
+                    .withWarmUp(true)
+                    .build();
+            // the connections were established before the client was returned
+            assertEquals(2, server.getRequestCount());
+            assertEquals("HEAD", server.takeRequest().getMethod());
+            assertEquals("HEAD", server.takeRequest().getMethod());
+            assertTrue(c.warmUp() >= 1);
+            server.takeRequest();
+            server.takeRequest();
+
+            c.scanText(new ScanTextRequest(null, (ScanTextConfig) null));
+            RecordedRequest scan = server.takeRequest();
+            assertEquals("/v3/scan", scan.getPath());
+            assertTrue(scan.getSequenceNumber() > 0); // served over a pooled connection
+            c.close();
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanText_RequestCompression() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+
+            List<long[]> compressions = Collections.synchronizedList(new ArrayList<>());
+            NightfallClient.Builder config = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withRequestCompression(true)
+                    .withRequestCompressionThreshold(512)
+                    .withMetrics(new NightfallMetrics() {
+                        @Override
+                        public void onRequestCompression(String method, String endpoint, long uncompressedBytes,
+                                                         long compressedBytes) {
+                            compressions.add(new long[] {uncompressedBytes, compressedBytes});
+                        }
+                    });
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 100; i++) {
+                text.append("my SSN is 123-45-6789. ");
+            }
+            c.scanText(new ScanTextRequest(Collections.singletonList(text.toString()), (ScanTextConfig) null));
+            c.scanText(new ScanTextRequest(Collections.singletonList("short"), (ScanTextConfig) null));
+
+            RecordedRequest compressed = server.takeRequest();
+            assertEquals("gzip", compressed.getHeader("Content-Encoding"));
+            Buffer decompressed = new Buffer();
+            try (GzipSource source = new GzipSource(compressed.getBody())) {
+                while (source.read(decompressed, 8192) != -1) {
+                    // read the whole body
+                }
+            }
+            JsonNode body = new ObjectMapper().readTree(decompressed.readUtf8());
+            assertEquals(text.toString(), body.get("payload").get(0).asText());
+
+            assertEquals(1, compressions.size());
+            assertEquals(compressed.getBodySize(), compressions.get(0)[1]);
+            assertTrue(compressions.get(0)[1] < compressions.get(0)[0] / 10);
+
+            // bodies below the threshold are sent as they are
+            RecordedRequest plain = server.takeRequest();
+            assertNull(plain.getHeader("Content-Encoding"));
+            assertEquals("short", new ObjectMapper().readTree(plain.getBody().readUtf8()).get("payload").get(0)
+                    .asText());
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new NightfallClient.Builder().withRequestCompressionThreshold(-1));
+    }
+
+    @Test
+    public void testScanFile_RequestCompressionSkipsChunks() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 1738, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 1738, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"message\": \"scan initiated\"}"));
+
+            Path file = Files.createTempFile("nightfall", ".txt");
+            Files.write(file, new byte[1738]);
+
+            NightfallClient.Builder config = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withRequestCompression(true)
+                    .withRequestCompressionThreshold(0);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            ScanFileRequest req = new ScanFileRequest(new ScanPolicy("foo", null, null), "foo");
+            ScanFileResponse resp = c.scanFile(req, file);
+            assertEquals("scan initiated", resp.getMessage());
+
+            server.takeRequest(); // init
+            for (int i = 0; i < 2; i++) {
+                RecordedRequest chunk = server.takeRequest();
+                assertEquals("PATCH", chunk.getMethod());
+                assertNull(chunk.getHeader("Content-Encoding"));
+                assertEquals(i == 0 ? 1000 : 738, chunk.getBodySize());
+            }
+            Files.delete(file);
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
     @Test
     public void testScanFile_InvalidReq() {
         assertThrows(IllegalArgumentException.class, () -> {
@@ -256,6 +1050,400 @@ public class NightfallClientTest {
         }
     }
 
+    @Test
+    public void testScanFile_PathHappyPath() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 2500, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            for (int i = 0; i < 3; i++) {
+                server.enqueue(new MockResponse().setResponseCode(204));
+            }
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 2500, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"message\": \"scan initiated\"}"));
+
+            byte[] content = new byte[2500];
+            for (int i = 0; i < content.length; i++) {
+                content[i] = (byte) (i % 128);
+            }
+            Path file = Files.createTempFile("nightfall", ".txt");
+            Files.write(file, content);
+
+            try {
+                NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+                ScanFileRequest req = new ScanFileRequest(new ScanPolicy("foo", null, null), "foo");
+                ScanFileResponse resp = c.scanFile(req, file);
+                assertEquals("scan initiated", resp.getMessage());
+            } finally {
+                Files.delete(file);
+            }
+
+            server.takeRequest(); // init
+            for (int i = 0; i < 3; i++) {
+                RecordedRequest chunk = server.takeRequest();
+                long offset = Long.parseLong(chunk.getHeader("X-Upload-Offset"));
+                int length = (int) Math.min(1000, content.length - offset);
+                assertEquals("PATCH", chunk.getMethod());
+                assertArrayEquals(Arrays.copyOfRange(content, (int) offset, (int) offset + length),
+                        chunk.getBody().readByteArray());
+            }
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanFile_SeekableChannelParallelReads() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 4500, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            for (int i = 0; i < 5; i++) {
+                server.enqueue(new MockResponse().setResponseCode(204));
+            }
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 4500, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"message\": \"scan initiated\"}"));
+
+            byte[] content = new byte[4500];
+            for (int i = 0; i < content.length; i++) {
+                content[i] = (byte) (i % 127);
+            }
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 3, getHttpClient());
+            ScanFileRequest req = new ScanFileRequest(new ScanPolicy("foo", null, null), "foo");
+            ScanFileResponse resp = c.scanFile(req, new ByteArrayChannel(content));
+            assertEquals("scan initiated", resp.getMessage());
+
+            server.takeRequest(); // init
+            Set<Long> offsets = new HashSet<>();
+            for (int i = 0; i < 5; i++) {
+                RecordedRequest chunk = server.takeRequest();
+                long offset = Long.parseLong(chunk.getHeader("X-Upload-Offset"));
+                int length = (int) Math.min(1000, content.length - offset);
+                assertArrayEquals(Arrays.copyOfRange(content, (int) offset, (int) offset + length),
+                        chunk.getBody().readByteArray());
+                offsets.add(offset);
+            }
+            assertEquals(new HashSet<>(Arrays.asList(0L, 1000L, 2000L, 3000L, 4000L)), offsets);
+            assertEquals("POST", server.takeRequest().getMethod()); // complete
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanFile_PooledDirectBuffersWithShortReads() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 2500, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            for (int i = 0; i < 3; i++) {
+                server.enqueue(new MockResponse().setResponseCode(204));
+            }
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 2500, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"message\": \"scan initiated\"}"));
+
+            byte[] content = new byte[2500];
+            for (int i = 0; i < content.length; i++) {
+                content[i] = (byte) (i % 125);
+            }
+            // a stream that returns fewer bytes than requested, as network streams do
+            InputStream trickle = new ByteArrayInputStream(content) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    return super.read(b, off, Math.min(len, 300));
+                }
+            };
+
+            NightfallClient.Builder config = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withFileUploadConcurrency(2)
+                    .withDirectChunkBuffers(true);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            ScanFileRequest req = new ScanFileRequest(new ScanPolicy("foo", null, null), "foo");
+            ScanFileResponse resp = c.scanFile(req, trickle, content.length);
+            assertEquals("scan initiated", resp.getMessage());
+
+            server.takeRequest(); // init
+            for (int i = 0; i < 3; i++) {
+                RecordedRequest chunk = server.takeRequest();
+                long offset = Long.parseLong(chunk.getHeader("X-Upload-Offset"));
+                int length = (int) Math.min(1000, content.length - offset);
+                assertArrayEquals(Arrays.copyOfRange(content, (int) offset, (int) offset + length),
+                        chunk.getBody().readByteArray());
+            }
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanFile_ResumesFromCheckpoint() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 2500, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"message\": \"scan initiated\"}"));
+
+            Path dir = Files.createTempDirectory("nightfall-checkpoints");
+            Path file = Files.createTempFile("nightfall", ".txt");
+            byte[] content = new byte[2500];
+            Arrays.fill(content, (byte) 'x');
+            Files.write(file, content);
+
+            UploadCheckpointStore store = new FileSystemUploadCheckpointStore(dir);
+            String key = file.toAbsolutePath().normalize() + ":2500:" + Files.getLastModifiedTime(file).toMillis();
+            store.save(key, new UploadCheckpoint(UUID.fromString("2eda1019-f991-4535-be9f-cecbe6b6c2eb"),
+                    2500, 1000, Arrays.asList(0L, 1000L), false));
+
+            NightfallClient.Builder config = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withUploadCheckpointStore(store);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            ScanFileRequest req = new ScanFileRequest(new ScanPolicy("foo", null, null), "foo");
+            ScanFileResponse resp = c.scanFile(req, file);
+            assertEquals("scan initiated", resp.getMessage());
+
+            RecordedRequest chunk = server.takeRequest();
+            assertEquals("PATCH", chunk.getMethod());
+            assertEquals("2000", chunk.getHeader("X-Upload-Offset"));
+            assertEquals(500, chunk.getBodySize());
+            assertEquals(3, server.getRequestCount());
+            assertNull(store.load(key));
+            Files.delete(file);
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanFile_StaleCheckpointRestartsUpload() {
+        try (MockWebServer server = new MockWebServer()) {
+            String notFound = "{\"code\": 40400, \"message\": \"Not Found\"}";
+            server.enqueue(new MockResponse().setResponseCode(404).setBody(notFound));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"9bc2a9a4-8e0c-4a3c-9b4c-2a8e58f3d6a1\","
+                    + "\"fileSizeBytes\": 1500, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"9bc2a9a4-8e0c-4a3c-9b4c-2a8e58f3d6a1\","
+                    + "\"fileSizeBytes\": 1500, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"9bc2a9a4-8e0c-4a3c-9b4c-2a8e58f3d6a1\","
+                    + "\"message\": \"scan initiated\"}"));
+
+            Path dir = Files.createTempDirectory("nightfall-checkpoints");
+            Path file = Files.createTempFile("nightfall", ".txt");
+            Files.write(file, new byte[1500]);
+
+            UploadCheckpointStore store = new FileSystemUploadCheckpointStore(dir);
+            String key = file.toAbsolutePath().normalize() + ":1500:" + Files.getLastModifiedTime(file).toMillis();
+            store.save(key, new UploadCheckpoint(UUID.fromString("2eda1019-f991-4535-be9f-cecbe6b6c2eb"),
+                    1500, 1000, Collections.singletonList(0L), false));
+
+            NightfallClient.Builder config = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withUploadCheckpointStore(store);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            ScanFileRequest req = new ScanFileRequest(new ScanPolicy("foo", null, null), "foo");
+            ScanFileResponse resp = c.scanFile(req, file);
+
+            assertEquals(UUID.fromString("9bc2a9a4-8e0c-4a3c-9b4c-2a8e58f3d6a1"), resp.getId());
+            assertTrue(server.takeRequest().getPath().contains("2eda1019-f991-4535-be9f-cecbe6b6c2eb"));
+            assertTrue(server.takeRequest().getPath().endsWith("/v3/upload"));
+            assertEquals(6, server.getRequestCount());
+            assertNull(store.load(key));
+            Files.delete(file);
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanFile_ExpiredCompletedCheckpointDiscarded() {
+        try (MockWebServer server = new MockWebServer()) {
+            String notFound = "{\"code\": 40400, \"message\": \"Not Found\"}";
+            server.enqueue(new MockResponse().setResponseCode(404).setBody(notFound));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"9bc2a9a4-8e0c-4a3c-9b4c-2a8e58f3d6a1\","
+                    + "\"fileSizeBytes\": 1500, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"9bc2a9a4-8e0c-4a3c-9b4c-2a8e58f3d6a1\","
+                    + "\"fileSizeBytes\": 1500, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"9bc2a9a4-8e0c-4a3c-9b4c-2a8e58f3d6a1\","
+                    + "\"message\": \"scan initiated\"}"));
+
+            Path dir = Files.createTempDirectory("nightfall-checkpoints");
+            Path file = Files.createTempFile("nightfall", ".txt");
+            Files.write(file, new byte[1500]);
+
+            UploadCheckpointStore store = new FileSystemUploadCheckpointStore(dir);
+            String key = file.toAbsolutePath().normalize() + ":1500:" + Files.getLastModifiedTime(file).toMillis();
+            store.save(key, new UploadCheckpoint(UUID.fromString("2eda1019-f991-4535-be9f-cecbe6b6c2eb"),
+                    1500, 1000, Arrays.asList(0L, 1000L), true));
+
+            NightfallClient.Builder config = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withUploadCheckpointStore(store);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            ScanFileRequest req = new ScanFileRequest(new ScanPolicy("foo", null, null), "foo");
+            NightfallAPIException e = assertThrows(NightfallAPIException.class, () -> c.scanFile(req, file));
+            assertEquals(404, e.getHttpStatusCode());
+            assertEquals(1, server.getRequestCount());
+            assertNull(store.load(key));
+
+            // the next call starts over rather than scanning the expired upload again
+            ScanFileResponse resp = c.scanFile(req, file);
+            assertEquals(UUID.fromString("9bc2a9a4-8e0c-4a3c-9b4c-2a8e58f3d6a1"), resp.getId());
+            assertTrue(server.takeRequest().getPath().endsWith("/v3/upload/2eda1019-f991-4535-be9f-cecbe6b6c2eb/scan"));
+            assertTrue(server.takeRequest().getPath().endsWith("/v3/upload"));
+            assertEquals(6, server.getRequestCount());
+            assertNull(store.load(key));
+            Files.delete(file);
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanFile_InvalidScanRequestKeepsCompletedUpload() {
+        try (MockWebServer server = new MockWebServer()) {
+            String badRequest = "{\"code\": 40000, \"message\": \"Invalid policy\"}";
+            server.enqueue(new MockResponse().setResponseCode(400).setBody(badRequest));
+
+            Path dir = Files.createTempDirectory("nightfall-checkpoints");
+            Path file = Files.createTempFile("nightfall", ".txt");
+            Files.write(file, new byte[1500]);
+
+            UploadCheckpointStore store = new FileSystemUploadCheckpointStore(dir);
+            String key = file.toAbsolutePath().normalize() + ":1500:" + Files.getLastModifiedTime(file).toMillis();
+            store.save(key, new UploadCheckpoint(UUID.fromString("2eda1019-f991-4535-be9f-cecbe6b6c2eb"),
+                    1500, 1000, Arrays.asList(0L, 1000L), true));
+
+            NightfallClient.Builder config = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withUploadCheckpointStore(store);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            ScanFileRequest req = new ScanFileRequest(new ScanPolicy("foo", null, null), "foo");
+            NightfallAPIException e = assertThrows(NightfallAPIException.class, () -> c.scanFile(req, file));
+            assertEquals(400, e.getHttpStatusCode());
+
+            // the file is not uploaded again, and the completed upload can still be scanned later
+            assertEquals(1, server.getRequestCount());
+            assertTrue(server.takeRequest().getPath().endsWith("/v3/upload/2eda1019-f991-4535-be9f-cecbe6b6c2eb/scan"));
+            assertTrue(store.load(key).isCompleted());
+            Files.delete(file);
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanFile_CheckpointWriteFailureIsNotFatal() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 1500, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 1500, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"message\": \"scan initiated\"}"));
+
+            Path file = Files.createTempFile("nightfall", ".txt");
+            Files.write(file, new byte[1500]);
+
+            UploadCheckpointStore store = new UploadCheckpointStore() {
+                @Override
+                public UploadCheckpoint load(String key) {
+                    return null;
+                }
+
+                @Override
+                public void save(String key, UploadCheckpoint checkpoint) throws IOException {
+                    throw new IOException("disk full");
+                }
+
+                @Override
+                public void delete(String key) throws IOException {
+                    throw new IOException("disk full");
+                }
+            };
+            NightfallClient.Builder config = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withUploadCheckpointStore(store);
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            ScanFileRequest req = new ScanFileRequest(new ScanPolicy("foo", null, null), "foo");
+            ScanFileResponse resp = c.scanFile(req, file);
+
+            assertEquals("scan initiated", resp.getMessage());
+            assertEquals(5, server.getRequestCount());
+            Files.delete(file);
+        } catch (IOException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanFile_FailedChunkRetried() {
+        try (MockWebServer server = new MockWebServer()) {
+            String body = "{\"code\": 50300, \"message\": \"Service Unavailable\"}";
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 1738, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setResponseCode(503).setBody(body));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 1738, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"message\": \"scan initiated\"}"));
+
+            NightfallClient.Builder config = new NightfallClient.Builder()
+                    .withAPIKey("key")
+                    .withChunkRetryPolicy(new ExponentialBackoffRetryPolicy.Builder()
+                            .withBaseDelay(Duration.ZERO)
+                            .build());
+            NightfallClient c = new NightfallClient(getRequestURL(server), config, getHttpClient());
+            ScanFileRequest req = new ScanFileRequest(new ScanPolicy("foo", null, null), "foo");
+            ScanFileResponse resp = c.scanFile(req, new ByteArrayInputStream(new byte[1738]), 1738);
+
+            assertEquals("scan initiated", resp.getMessage());
+            assertEquals(6, server.getRequestCount());
+            server.takeRequest(); // init
+            server.takeRequest(); // first chunk
+            assertEquals("1000", server.takeRequest().getHeader("X-Upload-Offset"));
+            assertEquals("1000", server.takeRequest().getHeader("X-Upload-Offset"));
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanFileAsync_HappyPath() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 1738, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"fileSizeBytes\": 1738, \"mimeType\": \"text/plain\", \"chunkSize\": 1000}"));
+            server.enqueue(new MockResponse().setBody("{\"id\": \"2eda1019-f991-4535-be9f-cecbe6b6c2eb\","
+                    + "\"message\": \"scan initiated\"}"));
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 2, getHttpClient());
+            ScanFileRequest req = new ScanFileRequest(new ScanPolicy("foo", null, null), "foo");
+            ScanFileResponse resp = c.scanFileAsync(req, new ByteArrayInputStream(new byte[1738]), 1738).get();
+
+            assertEquals(UUID.fromString("2eda1019-f991-4535-be9f-cecbe6b6c2eb"), resp.getId());
+            assertEquals("scan initiated", resp.getMessage());
+            assertEquals(5, server.getRequestCount());
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            fail("unexpected exception during test: " + e.getMessage());
+        }
+    }
+
     @Test
     public void testScanFile_Timeout() {
         assertThrows(NightfallRequestTimeoutException.class, () -> {
@@ -312,6 +1500,64 @@ public class NightfallClientTest {
         });
     }
 
+    /**
+     * A seekable channel over an in-memory array, standing in for non-file random access sources.
+     */
+    private static class ByteArrayChannel implements SeekableByteChannel {
+        private final byte[] content;
+        private int position;
+
+        ByteArrayChannel(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (position >= content.length) {
+                return -1;
+            }
+            int n = Math.min(dst.remaining(), content.length - position);
+            dst.put(content, position, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) {
+            position = (int) newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() {
+            return content.length;
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     private OkHttpClient getHttpClient() {
         return new OkHttpClient.Builder()
                 .readTimeout(Duration.ofMillis(500))
@@ -0,0 +1,93 @@
+package ai.nightfall.scan;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the RateLimiter.
+ */
+public class RateLimiterTest {
+
+    @Test
+    public void testBucket_BurstThenWait() {
+        TokenBucket bucket = new TokenBucket(10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, bucket.reserve(1));
+        }
+        // the bucket is now empty, so the next permit takes ~100ms to accrue
+        long waitNanos = bucket.reserve(1);
+        assertTrue(waitNanos > TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(waitNanos <= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testBucket_AdaptsRate() {
+        TokenBucket bucket = new TokenBucket(100);
+        bucket.throttle();
+        assertEquals(75, bucket.getRate(), 0.001);
+        bucket.recover();
+        assertEquals(80, bucket.getRate(), 0.001);
+        for (int i = 0; i < 10; i++) {
+            bucket.recover();
+        }
+        assertEquals(100, bucket.getRate(), 0.001);
+    }
+
+    @Test
+    public void testBucket_Pause() {
+        TokenBucket bucket = new TokenBucket(100);
+        bucket.pause(TimeUnit.SECONDS.toNanos(2));
+        assertTrue(bucket.reserve(1) > TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testLimiter_SeparatesScanAndUpload() {
+        RateLimiter limiter = new RateLimiter.Builder()
+                .withScanRequestsPerSecond(1)
+                .withUploadBytesPerSecond(100)
+                .build();
+
+        Request scan = request("/v3/scan", "POST", 10);
+        Request chunk = request("/v3/upload/2eda1019-f991-4535-be9f-cecbe6b6c2eb", "PATCH", 100);
+        Request init = request("/v3/upload", "POST", 10);
+
+        assertEquals(0, limiter.reserve(scan));
+        assertTrue(limiter.reserve(scan) > 0);
+        assertEquals(0, limiter.reserve(chunk));
+        assertTrue(limiter.reserve(chunk) > TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(0, limiter.reserve(init));
+    }
+
+    @Test
+    public void testLimiter_PausesOnRetryAfter() {
+        RateLimiter limiter = new RateLimiter.Builder().withScanRequestsPerSecond(1000).build();
+        Request scan = request("/v3/scan", "POST", 10);
+        Response rateLimited = new Response.Builder().request(scan).protocol(Protocol.HTTP_1_1)
+                .code(429).message("Too Many Requests").header("Retry-After", "2").build();
+
+        limiter.onResponse(rateLimited);
+        assertTrue(limiter.reserve(scan) > TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testBuilder_InvalidRate() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter.Builder().withScanRequestsPerSecond(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RateLimiter.Builder().withUploadBytesPerSecond(Double.NaN));
+    }
+
+    private Request request(String path, String method, int bodySize) {
+        RequestBody body = RequestBody.create(new byte[bodySize], MediaType.parse("application/octet-stream"));
+        return new Request.Builder().url("http://localhost" + path).method(method, body).build();
+    }
+}
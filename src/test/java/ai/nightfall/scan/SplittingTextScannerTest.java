@@ -0,0 +1,225 @@
+package ai.nightfall.scan;
+
+import ai.nightfall.scan.model.NightfallAPIException;
+import ai.nightfall.scan.model.ScanTextRequest;
+import ai.nightfall.scan.model.ScanTextResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit tests for the SplittingTextScanner.
+ */
+public class SplittingTextScannerTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String SECRET = "SECRET";
+
+    @Test
+    public void testScanText_SplitsLargeItems() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.setDispatcher(new FakeScanDispatcher());
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            SplittingTextScanner scanner = new SplittingTextScanner.Builder(c)
+                    .withMaxItemBytes(64)
+                    .withMaxRequestBytes(200)
+                    .withOverlapBytes(16)
+                    .build();
+
+            StringBuilder large = new StringBuilder();
+            for (int i = 0; i < 40; i++) {
+                large.append("héllo ").append(i).append(SECRET).append(i % 3 == 0 ? "😀" : " wörld ");
+            }
+            List<String> payload = Arrays.asList("short " + SECRET, large.toString(), "", "tail " + SECRET);
+            ScanTextRequest req = new ScanTextRequest(payload, Collections.singletonList(UUID.randomUUID()));
+            ScanTextResponse resp = scanner.scanText(req);
+
+            assertTrue(server.getRequestCount() > 2);
+            JsonNode expected = fakeScan(payload);
+            assertEquals(expected.get("findings"), objectMapper.valueToTree(resp.getFindings()));
+            assertEquals(expected.get("redactedPayload"), objectMapper.valueToTree(resp.getRedactedPayload()));
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanText_PacksItemsIntoRequests() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.setDispatcher(new FakeScanDispatcher());
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            SplittingTextScanner scanner = new SplittingTextScanner.Builder(c).withMaxItemsPerRequest(2).build();
+
+            List<String> payload = Arrays.asList("a", SECRET, "b", "c " + SECRET);
+            ScanTextResponse resp = scanner.scanText(
+                    new ScanTextRequest(payload, Collections.singletonList(UUID.randomUUID())));
+            assertEquals(2, server.getRequestCount());
+            assertEquals(fakeScan(payload).get("findings"), objectMapper.valueToTree(resp.getFindings()));
+
+            // requests that are within the limits are sent as-is
+            scanner.scanText(new ScanTextRequest(payload.subList(0, 2), Collections.singletonList(UUID.randomUUID())));
+            assertEquals(3, server.getRequestCount());
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanText_RespectsSerializedRequestSize() {
+        try (MockWebServer server = new MockWebServer()) {
+            List<Long> bodySizes = Collections.synchronizedList(new ArrayList<>());
+            server.setDispatcher(new FakeScanDispatcher() {
+                @NotNull
+                @Override
+                public MockResponse dispatch(@NotNull RecordedRequest request) {
+                    bodySizes.add(request.getBodySize());
+                    return super.dispatch(request);
+                }
+            });
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            SplittingTextScanner scanner = new SplittingTextScanner.Builder(c)
+                    .withMaxRequestBytes(300)
+                    .withOverlapBytes(16)
+                    .build();
+
+            // items whose escaped size is far larger than their UTF-8 encoded size
+            StringBuilder large = new StringBuilder();
+            for (int i = 0; i < 30; i++) {
+                large.append("\"q\"\t").append(SECRET).append('\u0001').append(i % 4 == 0 ? "😀" : "\\\n");
+            }
+            List<String> payload = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                payload.add(String.join("", Collections.nCopies(40 + i, "\"")) + SECRET);
+            }
+            payload.add(large.toString());
+            ScanTextRequest req = new ScanTextRequest(payload, Collections.singletonList(UUID.randomUUID()));
+            ScanTextResponse resp = scanner.scanText(req);
+
+            assertTrue(bodySizes.size() > 2);
+            for (long size : bodySizes) {
+                assertTrue(size <= 300, "request body of " + size + " bytes exceeds the limit");
+            }
+            JsonNode expected = fakeScan(payload);
+            assertEquals(expected.get("findings"), objectMapper.valueToTree(resp.getFindings()));
+            assertEquals(expected.get("redactedPayload"), objectMapper.valueToTree(resp.getRedactedPayload()));
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScanText_PartFailure() {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"findings\": [[]]}"));
+            server.enqueue(new MockResponse().setResponseCode(400).setBody("{\"code\": 40000}"));
+
+            NightfallClient c = new NightfallClient(getRequestURL(server), "key", 1, getHttpClient());
+            SplittingTextScanner scanner = new SplittingTextScanner.Builder(c).withMaxItemsPerRequest(1).build();
+            ScanTextRequest req = new ScanTextRequest(Arrays.asList("a", "b"),
+                    Collections.singletonList(UUID.randomUUID()));
+            assertThrows(NightfallAPIException.class, () -> scanner.scanText(req));
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> new SplittingTextScanner.Builder(c).withMaxItemBytes(100).withOverlapBytes(50).build());
+            assertThrows(IllegalArgumentException.class,
+                    () -> new SplittingTextScanner.Builder(c).withMaxRequestBytes(10).withMaxItemBytes(20).build());
+        } catch (IOException e) {
+            fail("IOException during test: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Serves text scan requests by reporting, and redacting, every occurrence of {@link #SECRET}.
+     */
+    private static class FakeScanDispatcher extends Dispatcher {
+        @NotNull
+        @Override
+        public MockResponse dispatch(@NotNull RecordedRequest request) {
+            try {
+                JsonNode body = objectMapper.readTree(request.getBody().readUtf8());
+                List<String> payload = new ArrayList<>();
+                for (JsonNode item : body.get("payload")) {
+                    payload.add(item.asText());
+                }
+                return new MockResponse().setBody(objectMapper.writeValueAsString(fakeScan(payload)));
+            } catch (IOException e) {
+                return new MockResponse().setResponseCode(500);
+            }
+        }
+    }
+
+    private static JsonNode fakeScan(List<String> payload) {
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode findings = response.putArray("findings");
+        ArrayNode redactedPayload = response.putArray("redactedPayload");
+        for (String item : payload) {
+            ArrayNode itemFindings = findings.addArray();
+            StringBuilder redacted = new StringBuilder();
+            int previous = 0;
+            for (int i = item.indexOf(SECRET); i >= 0; i = item.indexOf(SECRET, i + SECRET.length())) {
+                redacted.append(item, previous, i);
+                ObjectNode finding = itemFindings.addObject();
+                finding.put("finding", SECRET);
+                finding.put("redactedFinding", "***");
+                putLocation(finding.putObject("location"), item.substring(0, i), SECRET);
+                putLocation(finding.putObject("redactedLocation"), redacted.toString(), "***");
+                redacted.append("***");
+                previous = i + SECRET.length();
+            }
+            redacted.append(item.substring(previous));
+            redactedPayload.add(itemFindings.size() == 0 ? "" : redacted.toString());
+        }
+        // round trip through the model, so that the findings compare equal to those returned by the scanner
+        ScanTextResponse parsed = objectMapper.convertValue(response, ScanTextResponse.class);
+        return objectMapper.valueToTree(parsed);
+    }
+
+    private static void putLocation(ObjectNode location, String before, String match) {
+        int bytes = before.getBytes(StandardCharsets.UTF_8).length;
+        int codepoints = before.codePointCount(0, before.length());
+        location.putObject("byteRange").put("start", bytes).put("end", bytes + match.length());
+        location.putObject("codepointRange").put("start", codepoints).put("end", codepoints + match.length());
+    }
+
+    private OkHttpClient getHttpClient() {
+        return new OkHttpClient.Builder()
+                .readTimeout(Duration.ofMillis(500))
+                .writeTimeout(Duration.ofMillis(500))
+                .connectTimeout(Duration.ofMillis(500))
+                .build();
+    }
+
+    private String getRequestURL(MockWebServer server) {
+        return new HttpUrl.Builder()
+                .scheme("http")
+                .host(server.getHostName())
+                .port(server.getPort())
+                .build().url().toString();
+    }
+}
@@ -0,0 +1,100 @@
+package ai.nightfall.scan;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UploadSchedulerTest {
+
+    @Test
+    public void testLanesServedRoundRobin() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        UploadScheduler scheduler = new UploadScheduler(executor, 1, null);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(6);
+
+        UploadScheduler.Lane large = scheduler.newLane();
+        UploadScheduler.Lane small = scheduler.newLane();
+        large.execute(() -> {
+            started.countDown();
+            awaitQuietly(blocker);
+            order.add("large-1");
+            done.countDown();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 2; i <= 5; i++) {
+            String name = "large-" + i;
+            large.execute(() -> {
+                order.add(name);
+                done.countDown();
+            });
+        }
+        small.execute(() -> {
+            order.add("small-1");
+            done.countDown();
+        });
+
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("large-1", "large-2", "small-1", "large-3", "large-4", "large-5"), order);
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testConcurrencyCappedAcrossLanes() throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        UploadScheduler scheduler = new UploadScheduler(executor, 2, null);
+        Object lock = new Object();
+        int[] running = new int[2]; // current, max
+        CountDownLatch done = new CountDownLatch(12);
+
+        for (int l = 0; l < 3; l++) {
+            UploadScheduler.Lane lane = scheduler.newLane();
+            for (int i = 0; i < 4; i++) {
+                lane.execute(() -> {
+                    synchronized (lock) {
+                        running[0]++;
+                        running[1] = Math.max(running[1], running[0]);
+                    }
+                    sleepQuietly(5);
+                    synchronized (lock) {
+                        running[0]--;
+                    }
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, running[1]);
+        scheduler.shutdown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
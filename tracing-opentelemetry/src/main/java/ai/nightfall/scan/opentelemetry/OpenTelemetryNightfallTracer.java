@@ -0,0 +1,84 @@
+package ai.nightfall.scan.opentelemetry;
+
+import ai.nightfall.scan.NightfallTracer;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+
+/**
+ * Traces the operations of a {@link ai.nightfall.scan.NightfallClient} with OpenTelemetry. Spans that the client
+ * starts without a parent, such as those of text and file scans, are children of the span that is current on the
+ * calling thread, so they show up within the caller's own traces. HTTP attempts are reported as client spans.
+ */
+public class OpenTelemetryNightfallTracer implements NightfallTracer {
+    private static final String INSTRUMENTATION_NAME = "ai.nightfall.scan";
+
+    private final Tracer tracer;
+
+    /**
+     * Create a new instance that obtains its tracer from the provided OpenTelemetry instance.
+     *
+     * @param openTelemetry the OpenTelemetry instance, e.g. <code>GlobalOpenTelemetry.get()</code>
+     */
+    public OpenTelemetryNightfallTracer(OpenTelemetry openTelemetry) {
+        this(openTelemetry.getTracer(INSTRUMENTATION_NAME));
+    }
+
+    /**
+     * Create a new instance that starts spans with the provided tracer.
+     *
+     * @param tracer the tracer
+     */
+    public OpenTelemetryNightfallTracer(Tracer tracer) {
+        if (tracer == null) {
+            throw new IllegalArgumentException("tracer must be non-null");
+        }
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Span startSpan(String name, Span parent) {
+        Context context = parent instanceof OpenTelemetrySpan
+                ? Context.current().with(((OpenTelemetrySpan) parent).span)
+                : Context.current();
+        io.opentelemetry.api.trace.Span span = this.tracer.spanBuilder(name)
+                .setParent(context)
+                .setSpanKind("nightfall.attempt".equals(name) ? SpanKind.CLIENT : SpanKind.INTERNAL)
+                .startSpan();
+        return new OpenTelemetrySpan(span);
+    }
+
+    /**
+     * Adapts an OpenTelemetry span.
+     */
+    private static final class OpenTelemetrySpan implements Span {
+        private final io.opentelemetry.api.trace.Span span;
+
+        OpenTelemetrySpan(io.opentelemetry.api.trace.Span span) {
+            this.span = span;
+        }
+
+        @Override
+        public void setAttribute(String key, String value) {
+            this.span.setAttribute(key, value);
+        }
+
+        @Override
+        public void setAttribute(String key, long value) {
+            this.span.setAttribute(key, value);
+        }
+
+        @Override
+        public void recordException(Throwable t) {
+            this.span.recordException(t);
+            this.span.setStatus(StatusCode.ERROR);
+        }
+
+        @Override
+        public void end() {
+            this.span.end();
+        }
+    }
+}